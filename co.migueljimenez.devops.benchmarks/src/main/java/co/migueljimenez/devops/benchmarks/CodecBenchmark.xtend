@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.benchmarks
+
+import co.migueljimenez.devops.infrastructure.model.VirtualInfrastructure
+import co.migueljimenez.devops.infrastructure.model.impl.ModelPackageImpl
+import co.migueljimenez.devops.mart.infrastructure.EcoreCodec
+import co.migueljimenez.devops.transformation.Hcl2Infrastructure
+import co.migueljimenez.devops.transformation.Text2Hcl
+import com.rigiresearch.lcastane.framework.EcoreMART.Format
+import java.util.List
+import java.util.concurrent.TimeUnit
+import org.eclipse.emf.ecore.EObject
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+
+/**
+ * Measures the time to serialize and deserialize an infrastructure model in
+ * each of the formats supported by Ecore-based MARTs. The size of the
+ * serialized model is printed during the setup.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-21
+ * @version $Id$
+ * @since 0.0.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+class CodecBenchmark {
+
+	/**
+	 * The approximate number of resources in the model.
+	 */
+	@Param(#["1000", "10000", "100000"])
+	public int resources
+
+	/**
+	 * The serialization format.
+	 */
+	@Param(#["XMI", "BINARY", "COMPRESSED_BINARY"])
+	public Format format
+
+	/**
+	 * The codec for the current format.
+	 */
+	var EcoreCodec codec
+
+	/**
+	 * The model.
+	 */
+	var VirtualInfrastructure model
+
+	/**
+	 * The serialized model.
+	 */
+	var byte[] bytes
+
+	/**
+	 * Creates the model and serializes it once.
+	 */
+	@Setup
+	def void setup() {
+		ModelPackageImpl.init
+		val source = TemplateGenerator.scaled(this.resources).template
+		this.model = new Hcl2Infrastructure().model(new Text2Hcl(source).model)
+		this.codec = new EcoreCodec(this.format)
+		this.bytes = this.codec.encode(#[this.model])
+		println('''«this.format» model of «this.resources» resources: «this.bytes.length» bytes''')
+	}
+
+	/**
+	 * Serializes the model.
+	 */
+	@Benchmark
+	def byte[] encode() {
+		this.codec.encode(#[this.model])
+	}
+
+	/**
+	 * Deserializes the model.
+	 */
+	@Benchmark
+	def List<EObject> decode() {
+		this.codec.decode(this.bytes)
+	}
+}
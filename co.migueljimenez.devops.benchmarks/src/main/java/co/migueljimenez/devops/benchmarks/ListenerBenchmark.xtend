@@ -0,0 +1,425 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.benchmarks
+
+import co.migueljimenez.devops.listener.BatchHandler
+import co.migueljimenez.devops.listener.Change
+import co.migueljimenez.devops.listener.Pipeline
+import co.migueljimenez.devops.listener.openstack.OpenStackEvent
+import co.migueljimenez.devops.listener.openstack.OpenStackListener
+import co.migueljimenez.devops.mart.infrastructure.operations.InfrastructureModelOp
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.rabbitmq.client.Channel
+import com.rabbitmq.client.Connection
+import com.rabbitmq.client.Consumer
+import com.rabbitmq.client.Envelope
+import com.rabbitmq.client.impl.AMQImpl
+import com.rigiresearch.lcastane.framework.Command
+import java.lang.reflect.InvocationHandler
+import java.lang.reflect.Method
+import java.lang.reflect.Proxy
+import java.util.List
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import org.apache.commons.configuration2.BaseConfiguration
+import org.eclipse.xtend.lib.annotations.Accessors
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OperationsPerInvocation
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import org.openjdk.jmh.infra.Blackhole
+
+/**
+ * Measures the number of OpenStack events per second handled by the
+ * listener, without a RabbitMQ server. A recorded-like sequence of Nova and
+ * Neutron notifications is delivered to the listener's consumers through an
+ * in-process stand-in of the RabbitMQ channels, which honours the prefetch
+ * limit and records the acknowledgements. The events go through the event
+ * pipeline; model changes are counted instead of being sent to PrIMoR.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-22
+ * @version $Id$
+ * @since 0.0.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+class ListenerBenchmark {
+
+	/**
+	 * The number of replayed events (see {@link OperationsPerInvocation}).
+	 */
+	static val EVENTS = 10000
+
+	/**
+	 * The maximum number of events per pipeline window.
+	 */
+	@Param(#["1", "200"])
+	public int window
+
+	/**
+	 * The number of channels (and consumers).
+	 */
+	@Param(#["1", "4"])
+	public int channels
+
+	/**
+	 * The maximum number of unacknowledged events per channel.
+	 */
+	@Param(#["50", "500"])
+	public int prefetch
+
+	/**
+	 * The number of events acknowledged at once.
+	 */
+	@Param(#["1", "50"])
+	public int ackBatch
+
+	/**
+	 * The bodies of the replayed messages.
+	 */
+	var List<byte[]> messages
+
+	/**
+	 * Creates the messages. Every four events, two keypairs are created,
+	 * one of them is deleted and a security group is created.
+	 */
+	@Setup
+	def void setup() {
+		val mapper = new ObjectMapper
+		this.messages = (0 ..< EVENTS).map [ i |
+			val n = i / 4
+			val event = mapper.createObjectNode
+				.put("_context_user_name", "benchmark")
+				.put("_context_project_name", "benchmark")
+				.put("message_id", '''message-«i»'''.toString)
+				.put("priority", "INFO")
+				.put("timestamp", "2018-07-22 00:00:00.000000")
+			switch (i % 4) {
+				case 0: {
+					event.put("event_type", "keypair.create.end")
+					event.putObject("payload").put("key_name", '''a-«n»'''.toString)
+				}
+				case 1: {
+					event.put("event_type", "keypair.create.end")
+					event.putObject("payload").put("key_name", '''b-«n»'''.toString)
+				}
+				case 2: {
+					event.put("event_type", "keypair.delete.end")
+					event.putObject("payload").put("key_name", '''a-«n»'''.toString)
+				}
+				default: {
+					event.put("event_type", "security_group.create.end")
+					event.putObject("payload").putObject("security_group")
+						.put("name", '''group-«n»'''.toString)
+				}
+			}
+			// Nova wraps its notifications; Neutron does not
+			val message = if (i % 4 < 3)
+					mapper.createObjectNode.put("oslo.message", event.toString)
+				else
+					event
+			mapper.writeValueAsBytes(message)
+		].toList
+	}
+
+	/**
+	 * Parses the messages.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(10000)
+	def void parse(Blackhole blackhole) {
+		this.messages.forEach[m|blackhole.consume(OpenStackListener.parse(m))]
+	}
+
+	/**
+	 * Delivers the messages to the listener, one thread per channel, and
+	 * handles them through the event pipeline until every event has been
+	 * acknowledged.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(10000)
+	def int replay() {
+		val handler = new CountingHandler
+		val pipeline = new Pipeline(#[handler], 1000, 0, this.window, 10)
+		pipeline.start
+		val broker = new Broker
+		val configuration = new BaseConfiguration
+		configuration.setProperty("channels", this.channels)
+		configuration.setProperty("prefetch", this.prefetch)
+		configuration.setProperty("ack-batch", this.ackBatch)
+		configuration.setProperty("ack-interval", 10)
+		val listener = new OpenStackListener(
+			"benchmark",
+			"notifications.info",
+			configuration,
+			broker.connection
+		)
+		listener.listen[d|pipeline.submit(d)]
+		val threads = (0 ..< broker.channels.size).map [ i |
+			val channel = broker.channels.get(i)
+			new Thread [
+				(0 ..< this.messages.size)
+					.filter[m|m % this.channels == i]
+					.forEach[m|channel.deliver(this.messages.get(m))]
+			]
+		].toList
+		threads.forEach[start]
+		threads.forEach[join]
+		broker.channels.forEach[await]
+		pipeline.stop
+		listener.stop
+		handler.count
+	}
+
+	/**
+	 * An in-process stand-in of a RabbitMQ connection, whose channels are
+	 * {@link InProcessChannel}s.
+	 * @author Miguel Jimenez (miguel@uvic.ca)
+	 * @date 2018-07-26
+	 * @version $Id$
+	 * @since 0.0.1
+	 */
+	static class Broker implements InvocationHandler {
+
+		/**
+		 * The channels created so far.
+		 */
+		@Accessors(PUBLIC_GETTER)
+		val List<InProcessChannel> channels = newArrayList
+
+		/**
+		 * The connection.
+		 */
+		@Accessors(PUBLIC_GETTER)
+		val Connection connection
+
+		new() {
+			this.connection = Proxy.newProxyInstance(
+				Connection.classLoader,
+				#[Connection],
+				this
+			) as Connection
+		}
+
+		override invoke(Object proxy, Method method, Object[] args) {
+			switch (method.name) {
+				case "createChannel": {
+					val channel = new InProcessChannel(this.channels.size + 1)
+					this.channels.add(channel)
+					channel.channel
+				}
+				case "isOpen":
+					true
+				case "hashCode":
+					System.identityHashCode(proxy)
+				case "equals":
+					proxy === args.get(0)
+				case "toString":
+					"in-process connection"
+				default:
+					null
+			}
+		}
+	}
+
+	/**
+	 * An in-process stand-in of a RabbitMQ channel. Deliveries are numbered
+	 * as the server does, and a delivery waits while the channel has as many
+	 * unacknowledged deliveries as the prefetch limit.
+	 * @author Miguel Jimenez (miguel@uvic.ca)
+	 * @date 2018-07-26
+	 * @version $Id$
+	 * @since 0.0.1
+	 */
+	static class InProcessChannel implements InvocationHandler {
+
+		/**
+		 * The channel number.
+		 */
+		val int number
+
+		/**
+		 * The channel.
+		 */
+		@Accessors(PUBLIC_GETTER)
+		val Channel channel
+
+		/**
+		 * The maximum number of unacknowledged deliveries. Zero means
+		 * unlimited.
+		 */
+		var int prefetch
+
+		/**
+		 * The consumer registered in this channel.
+		 */
+		var Consumer consumer
+
+		/**
+		 * The tag of the last delivery.
+		 */
+		var long delivered
+
+		/**
+		 * The tag of the last settled delivery. The deliveries are expected
+		 * to be settled in order.
+		 */
+		var long settled
+
+		new(int number) {
+			this.number = number
+			this.channel = Proxy.newProxyInstance(
+				Channel.classLoader,
+				#[Channel],
+				this
+			) as Channel
+		}
+
+		override invoke(Object proxy, Method method, Object[] args) {
+			switch (method.name) {
+				case "basicQos":
+					synchronized (this) {
+						// basicQos([prefetchSize,] prefetchCount[, global])
+						this.prefetch = (if (args.length == 3) args.get(1) else args.get(0)) as Integer
+						null
+					}
+				case "queueDeclare":
+					new AMQImpl.Queue.DeclareOk("benchmark", 0, 0)
+				case "basicConsume":
+					synchronized (this) {
+						this.consumer = args.last as Consumer
+						args.get(2)
+					}
+				case "basicAck",
+				case "basicNack",
+				case "basicReject":
+					synchronized (this) {
+						this.settled = Math.max(this.settled, args.get(0) as Long)
+						this.notifyAll
+						null
+					}
+				case "getChannelNumber":
+					this.number
+				case "isOpen":
+					true
+				case "hashCode":
+					System.identityHashCode(proxy)
+				case "equals":
+					proxy === args.get(0)
+				case "toString":
+					'''in-process channel «this.number»'''.toString
+				default:
+					null
+			}
+		}
+
+		/**
+		 * Delivers the given message to the consumer, waiting while the
+		 * prefetch limit is reached.
+		 */
+		def void deliver(byte[] body) {
+			val tag = synchronized (this) {
+				while (this.prefetch > 0 && this.delivered - this.settled >= this.prefetch) {
+					this.wait
+				}
+				this.delivered++
+				this.delivered
+			}
+			this.consumer.handleDelivery(
+				"benchmark",
+				new Envelope(tag, false, "benchmark", "notifications.info"),
+				null,
+				body
+			)
+		}
+
+		/**
+		 * Waits until every delivery is settled.
+		 */
+		def synchronized void await() {
+			while (this.settled < this.delivered) {
+				this.wait
+			}
+		}
+	}
+
+	/**
+	 * Derives the changes from the event payloads and counts the commands
+	 * that would be sent to PrIMoR.
+	 * @author Miguel Jimenez (miguel@uvic.ca)
+	 * @date 2018-07-22
+	 * @version $Id$
+	 * @since 0.0.1
+	 */
+	static class CountingHandler implements BatchHandler {
+
+		/**
+		 * The number of applied commands.
+		 */
+		val commands = new AtomicInteger
+
+		override changes(Object event) {
+			val e = event as OpenStackEvent
+			val removal = e.eventType.contains("delete")
+			val name = if (e.payload.has("key_name"))
+					e.payload.get("key_name").asText
+				else
+					e.payload.path("security_group").get("name").asText
+			val type = if (removal)
+					InfrastructureModelOp.REMOVE_RESOURCE
+				else
+					InfrastructureModelOp.ADD_RESOURCE
+			#[new Change("default", name, removal, new Command(type, newHashMap, name))]
+		}
+
+		override apply(String model, List<Command> commands) {
+			this.commands.addAndGet(commands.size)
+		}
+
+		override handle(Object event) {
+			this.apply("default", this.changes(event).map[command])
+		}
+
+		override handledType() {
+			OpenStackEvent
+		}
+
+		/**
+		 * The number of applied commands.
+		 */
+		def int count() {
+			this.commands.get
+		}
+	}
+}
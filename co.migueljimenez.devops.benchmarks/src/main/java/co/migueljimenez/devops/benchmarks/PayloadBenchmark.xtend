@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.benchmarks
+
+import co.migueljimenez.devops.infrastructure.model.ContainerFormat
+import co.migueljimenez.devops.infrastructure.model.DiskFormat
+import co.migueljimenez.devops.infrastructure.model.InfrastructureModelElements
+import co.migueljimenez.devops.infrastructure.model.PayloadCodec
+import co.migueljimenez.devops.infrastructure.model.SerializationParser
+import de.xn__ho_hia.storage_unit.StorageUnits
+import java.util.concurrent.TimeUnit
+import org.eclipse.emf.common.util.EList
+import org.eclipse.emf.ecore.EObject
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+
+/**
+ * Measures the cost of serializing and deserializing the resource sent in a
+ * single ADD_RESOURCE command, either as XMI or as a typed payload.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-23
+ * @version $Id$
+ * @since 0.0.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+class PayloadBenchmark {
+
+	/**
+	 * The type of resource sent in the command.
+	 */
+	@Param(#["credential", "image", "security-group"])
+	public String resource
+
+	/**
+	 * The XMI parser.
+	 */
+	var SerializationParser parser
+
+	/**
+	 * The typed payload codec.
+	 */
+	var PayloadCodec codec
+
+	/**
+	 * The resource.
+	 */
+	var EObject eObject
+
+	/**
+	 * The resource serialized as XMI.
+	 */
+	var String xml
+
+	/**
+	 * The resource serialized as a typed payload.
+	 */
+	var byte[] payload
+
+	/**
+	 * Creates the resource and serializes it once in each format.
+	 */
+	@Setup
+	def void setup() {
+		val i = new InfrastructureModelElements
+		val project = i.infrastructure
+		this.eObject = switch (this.resource) {
+			case "credential":
+				i.credential("keypair", "ssh-rsa AAAAB3NzaC1yc2EAAAADAQABAAABAQ user@host", project)
+			case "image":
+				i.image(
+					"image-id",
+					"ubuntu-16.04",
+					ContainerFormat.BARE,
+					DiskFormat.QCOW2,
+					"https://cloud-images.ubuntu.com/xenial/current/xenial.img",
+					StorageUnits.gigabyte(10L),
+					StorageUnits.megabyte(512L),
+					project
+				)
+			default: {
+				val group = i.securityGroup("group-id", "web", "Web servers", project)
+				#[22, 80, 443, 8080, 8443].forEach [ port |
+					i.securityRule('''rule-«port»''', port, port, "0.0.0.0/0", "tcp", group)
+				]
+				group
+			}
+		}
+		this.parser = new SerializationParser
+		this.codec = new PayloadCodec
+		this.xml = this.parser.asXml(this.eObject)
+		this.payload = this.codec.encode(this.eObject)
+		println('''«this.resource»: «this.xml.length» XMI characters, «this.payload.length» payload bytes''')
+	}
+
+	@Benchmark
+	def String xmiEncode() {
+		this.parser.asXml(this.eObject)
+	}
+
+	@Benchmark
+	def EList<EObject> xmiDecode() {
+		this.parser.asEObjects(this.xml)
+	}
+
+	@Benchmark
+	def byte[] payloadEncode() {
+		this.codec.encode(this.eObject)
+	}
+
+	@Benchmark
+	def EObject payloadDecode() {
+		this.codec.decode(this.payload)
+	}
+}
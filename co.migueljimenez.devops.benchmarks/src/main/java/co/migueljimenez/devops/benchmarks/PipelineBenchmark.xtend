@@ -0,0 +1,148 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.benchmarks
+
+import co.migueljimenez.devops.hcl.model.Specification
+import co.migueljimenez.devops.infrastructure.model.SerializationParser
+import co.migueljimenez.devops.infrastructure.model.VirtualInfrastructure
+import co.migueljimenez.devops.transformation.Hcl2Infrastructure
+import co.migueljimenez.devops.transformation.Hcl2Text
+import co.migueljimenez.devops.transformation.Infrastructure2Hcl
+import co.migueljimenez.devops.transformation.Text2Hcl
+import co.migueljimenez.terraform.parsing.TerraformParser
+import co.migueljimenez.terraform.terraform.Template
+import java.util.concurrent.TimeUnit
+import org.eclipse.emf.common.util.EList
+import org.eclipse.emf.ecore.EObject
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+
+/**
+ * Measures each stage of the round-trip pipeline in isolation, using
+ * synthetic templates of increasing size. The input of each stage is
+ * computed once, during the trial setup.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-05
+ * @version $Id$
+ * @since 0.0.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+class PipelineBenchmark {
+
+	/**
+	 * The approximate number of resources in the template.
+	 */
+	@Param(#["1000", "10000", "50000", "100000"])
+	public int resources
+
+	/**
+	 * The Terraform template.
+	 */
+	var String source
+
+	/**
+	 * The text-to-HCL translator, with the template already parsed.
+	 */
+	var Text2Hcl text2Hcl
+
+	/**
+	 * The HCL model of the template.
+	 */
+	var Specification specification
+
+	/**
+	 * The infrastructure model of the template.
+	 */
+	var VirtualInfrastructure model
+
+	/**
+	 * The HCL model translated back from the infrastructure model.
+	 */
+	var Specification inverseSpecification
+
+	/**
+	 * The infrastructure model serialized as XMI.
+	 */
+	var String xml
+
+	/**
+	 * Computes the input of each stage.
+	 */
+	@Setup
+	def void setup() {
+		this.source = TemplateGenerator.scaled(this.resources).template
+		this.text2Hcl = new Text2Hcl(this.source)
+		this.specification = this.text2Hcl.model
+		this.model = new Hcl2Infrastructure().model(this.specification)
+		this.inverseSpecification = new Infrastructure2Hcl().specification(this.model)
+		this.xml = new SerializationParser().asXml(this.model)
+	}
+
+	@Benchmark
+	def Template parse() {
+		new TerraformParser().parse(this.source)
+	}
+
+	@Benchmark
+	def Specification text2Hcl() {
+		this.text2Hcl.model
+	}
+
+	@Benchmark
+	def VirtualInfrastructure hcl2Infrastructure() {
+		new Hcl2Infrastructure().model(this.specification)
+	}
+
+	@Benchmark
+	def Specification infrastructure2Hcl() {
+		new Infrastructure2Hcl().specification(this.model)
+	}
+
+	@Benchmark
+	def String hcl2Text() {
+		new Hcl2Text().source(this.inverseSpecification)
+	}
+
+	@Benchmark
+	def String asXml() {
+		new SerializationParser().asXml(this.model)
+	}
+
+	@Benchmark
+	def EList<EObject> asEObjects() {
+		new SerializationParser().asEObjects(this.xml)
+	}
+}
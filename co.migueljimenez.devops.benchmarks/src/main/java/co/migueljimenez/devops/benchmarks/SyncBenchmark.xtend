@@ -0,0 +1,166 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.benchmarks
+
+import co.migueljimenez.devops.mart.infrastructure.Infrastructure
+import co.migueljimenez.devops.mart.infrastructure.InfrastructureMart
+import co.migueljimenez.devops.transformation.Hcl2Infrastructure
+import co.migueljimenez.devops.transformation.Text2Hcl
+import com.rigiresearch.lcastane.framework.impl.FileSpecification
+import java.io.File
+import java.nio.file.Files
+import java.util.concurrent.TimeUnit
+import org.eclipse.jgit.api.Git
+import org.eclipse.jgit.util.FileUtils
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import org.openjdk.jmh.annotations.Warmup
+
+/**
+ * Measures the synchronization performed by the infrastructure MART after a
+ * single change, in both directions, until {@link InfrastructureMart#synced()}
+ * completes. The specification is committed and pushed to a local bare
+ * repository, thus the git operations are measured without a remote
+ * repository on Github.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-05
+ * @version $Id$
+ * @since 0.0.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+class SyncBenchmark {
+
+	/**
+	 * The approximate number of resources in the template.
+	 */
+	@Param(#["1000", "10000", "100000"])
+	public int resources
+
+	/**
+	 * The Terraform template.
+	 */
+	var String source
+
+	/**
+	 * The Terraform template after changing one resource.
+	 */
+	var String modified
+
+	/**
+	 * The directory containing the local and remote repositories.
+	 */
+	var File directory
+
+	/**
+	 * The MART under measurement.
+	 */
+	var InfrastructureMart mart
+
+	/**
+	 * Whether the next update uses the modified template.
+	 */
+	var boolean toggle
+
+	/**
+	 * Creates the repositories, the specification file and the MART, and
+	 * waits for the initial synchronization.
+	 */
+	@Setup
+	def void setup() {
+		this.source = TemplateGenerator.scaled(this.resources).template
+		this.modified = this.source.replaceFirst("vcpus = 1", "vcpus = 2")
+		this.directory = Files.createTempDirectory("benchmark").toFile
+		val remote = new File(this.directory, "remote.git")
+		Git.init.setBare(true).setDirectory(remote).call.close
+		val local = new File(this.directory, "local")
+		val git = Git.cloneRepository
+			.setURI(remote.toURI.toString)
+			.setDirectory(local)
+			.call
+		val file = new File(local, "main.tf")
+		try {
+			new FileSpecification(file).update(this.source)
+			git.add.addFilepattern(file.name).call
+			git.commit.setMessage("Initial template").call
+			git.push.call
+		} finally {
+			git.close
+		}
+		val model = new Hcl2Infrastructure().model(new Text2Hcl(this.source).model)
+		this.mart = new InfrastructureMart(
+			new FileSpecification(file),
+			new Infrastructure(model)
+		)
+		this.mart.resume.join
+	}
+
+	/**
+	 * Waits for the pending synchronizations, stops the MART and deletes the
+	 * repositories.
+	 */
+	@TearDown
+	def void tearDown() {
+		this.mart.synced.join
+		this.mart.shutdown
+		FileUtils.delete(this.directory, FileUtils.RECURSIVE)
+	}
+
+	/**
+	 * Changes one element of the model and waits until the specification is
+	 * updated.
+	 */
+	@Benchmark
+	def void artefactToSpecification() {
+		val artefact = this.mart.artefact
+		synchronized (artefact.origin) {
+			val flavor = artefact.origin.model.flavors.get(0)
+			flavor.vcpus = if (flavor.vcpus == 1) 2 else 1
+		}
+		this.mart.update(artefact, <String, Object>newHashMap)
+		this.mart.synced.join
+	}
+
+	/**
+	 * Changes one resource of the specification and waits until the model is
+	 * updated.
+	 */
+	@Benchmark
+	def void specificationToArtefact() {
+		this.toggle = !this.toggle
+		this.mart.specification.update(if (this.toggle) this.modified else this.source)
+		this.mart.synced.join
+	}
+}
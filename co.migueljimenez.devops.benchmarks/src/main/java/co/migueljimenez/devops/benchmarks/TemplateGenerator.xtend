@@ -0,0 +1,191 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.benchmarks
+
+import org.eclipse.xtend.lib.annotations.Data
+
+/**
+ * Generates synthetic Terraform templates of arbitrary size. Each template
+ * contains a key pair, a flavor, an image, a network and a subnet, plus the
+ * configured number of security groups (with rules), instances, volumes and
+ * volume attachments. Instances reference the shared resources and one of
+ * the security groups; each volume is attached to one of the instances.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-05
+ * @version $Id$
+ * @since 0.0.1
+ */
+@Data
+class TemplateGenerator {
+
+	/**
+	 * The number of resources that are always generated.
+	 */
+	static val SHARED_RESOURCES = 5
+
+	/**
+	 * The number of instances.
+	 */
+	int instances
+
+	/**
+	 * The number of security groups.
+	 */
+	int securityGroups
+
+	/**
+	 * The number of rules per security group.
+	 */
+	int rules
+
+	/**
+	 * The number of volumes (each one with its attachment).
+	 */
+	int volumes
+
+	/**
+	 * Creates a generator whose templates contain approximately the given
+	 * number of resources: one security group (with three rules) for every
+	 * fifty resources, one volume for every five resources and instances for
+	 * the rest.
+	 * @param resources The total number of resources
+	 * @return A new generator
+	 */
+	def static TemplateGenerator scaled(int resources) {
+		val securityGroups = Math.max(1, resources / 50)
+		val volumes = resources / 5
+		val instances = Math.max(
+			1,
+			resources - SHARED_RESOURCES - securityGroups - 2 * volumes
+		)
+		new TemplateGenerator(instances, securityGroups, 3, volumes)
+	}
+
+	/**
+	 * The number of resources in the generated templates.
+	 */
+	def int resources() {
+		SHARED_RESOURCES + this.securityGroups + this.instances + 2 * this.volumes
+	}
+
+	/**
+	 * Generates a Terraform template.
+	 */
+	def String template() {
+		val builder = new StringBuilder
+		builder.append(this.shared)
+		for (g : 0 ..< this.securityGroups) {
+			builder.append(g.securityGroup)
+		}
+		for (i : 0 ..< this.instances) {
+			builder.append(i.instance)
+		}
+		for (v : 0 ..< this.volumes) {
+			builder.append(v.volume)
+		}
+		// Remove the trailing line break
+		builder.setLength(builder.length - 1)
+		builder.toString
+	}
+
+	/**
+	 * Resources referenced by the generated instances, volumes and subnets.
+	 */
+	def private shared() '''
+		resource "openstack_compute_keypair_v2" "keypair" {
+			name = "keypair"
+			public_key = "public-key"
+		}
+		resource "openstack_compute_flavor_v2" "flavor" {
+			name = "flavor"
+			ram = 1024
+			vcpus = 1
+			disk = 20
+		}
+		resource "openstack_images_image_v2" "image" {
+			name = "image"
+			container_format = "bare"
+			disk_format = "qcow2"
+			image_source_url = "https://image"
+			min_disk_gb = 1
+			min_ram_mb = 512
+		}
+		resource "openstack_networking_network_v2" "network" {
+			name = "network"
+		}
+		resource "openstack_networking_subnet_v2" "subnet" {
+			name = "subnet"
+			network_id = "${openstack_networking_network_v2.network.id}"
+			cidr = "192.168.0.0/16"
+			ip_version = 4
+		}
+	'''
+
+	/**
+	 * Generates a security group with the configured number of rules.
+	 */
+	def private securityGroup(int index) '''
+		resource "openstack_compute_secgroup_v2" "secgroup_«index»" {
+			«FOR r : 0 ..< this.rules»
+				rule {
+					from_port = «1000 + r»
+					to_port = «1000 + r»
+					ip_protocol = "tcp"
+					cidr = "0.0.0.0/0"
+				}
+			«ENDFOR»
+			name = "secgroup_«index»"
+			description = "security group «index»"
+		}
+	'''
+
+	/**
+	 * Generates an instance.
+	 */
+	def private instance(int index) '''
+		resource "openstack_compute_instance_v2" "instance_«index»" {
+			name = "instance_«index»"
+			flavor_id = "${openstack_compute_flavor_v2.flavor.id}"
+			key_pair = "${openstack_compute_keypair_v2.keypair.name}"
+			security_groups = ["${openstack_compute_secgroup_v2.secgroup_«index % this.securityGroups».name}"]
+			network {
+				name = "${openstack_networking_network_v2.network.name}"
+			}
+		}
+	'''
+
+	/**
+	 * Generates a volume and its attachment.
+	 */
+	def private volume(int index) '''
+		resource "openstack_blockstorage_volume_v2" "volume_«index»" {
+			name = "volume_«index»"
+			description = "volume «index»"
+			image_id = "${openstack_images_image_v2.image.id}"
+			size = 10
+		}
+		resource "openstack_compute_volume_attach_v2" "instance_«index % this.instances»_volume_«index»" {
+			compute_id = "${openstack_compute_instance_v2.instance_«index % this.instances».id}"
+			volume_id = "${openstack_blockstorage_volume_v2.volume_«index».id}"
+		}
+	'''
+}
@@ -24,6 +24,7 @@ package co.migueljimenez.devops.ci
 import co.migueljimenez.devops.mart.infrastructure.InfrastructureMart
 import co.migueljimenez.devops.mart.infrastructure.terraform.TerraformSpecification
 import co.migueljimenez.devops.mart.infrastructure.validation.ConstrainedRam
+import com.rigiresearch.lcastane.framework.MART
 import com.rigiresearch.lcastane.framework.validation.ValidationException
 import com.rigiresearch.lcastane.primor.ManagerService
 import com.rigiresearch.lcastane.primor.RemoteService
@@ -31,7 +32,14 @@ import de.xn__ho_hia.storage_unit.StorageUnits
 import java.io.File
 import java.rmi.registry.LocateRegistry
 import java.rmi.registry.Registry
+import java.util.List
 import java.util.Map
+import java.util.TreeMap
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.function.Function
 import org.apache.commons.configuration2.Configuration
 import org.apache.commons.configuration2.builder.fluent.Configurations
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder
@@ -39,6 +47,11 @@ import org.eclipse.jgit.transport.URIish
 
 /**
  * The main execution entry.
+ * <p>
+ * Templates are instantiated and validated concurrently on a pool of
+ * workers (see ci.properties). Errors are collected per template and
+ * reported in path order, so the report and the exit code do not depend on
+ * the order in which workers finish.
  * @author Miguel Jimenez (miguel@uvic.ca)
  * @date 2018-05-31
  * @version $Id$
@@ -52,10 +65,21 @@ class Application {
 	val File localRepository
 
 	/**
-	 * The MART instances associated with the Terraform templates.
+	 * The MART instances associated with the Terraform templates, sorted by
+	 * path.
 	 */
 	val Map<File, InfrastructureMart> marts
 
+	/**
+	 * The errors found per template, sorted by path.
+	 */
+	val Map<File, String> errors
+
+	/**
+	 * The workers instantiating and validating the MARTs.
+	 */
+	val ExecutorService workers
+
 	/**
 	 * The (remote) RMI registry.
 	 */
@@ -77,7 +101,12 @@ class Application {
 	 */
 	new(File repository) {
 		this.localRepository = repository
-		this.marts = newHashMap
+		this.marts = new TreeMap
+		this.errors = new TreeMap
+		val workers = new Configurations().properties("ci.properties").getInt("workers", 0)
+		this.workers = Executors.newFixedThreadPool(
+			if (workers > 0) workers else Runtime.runtime.availableProcessors
+		)
 		this.primorConfig = new Configurations().properties("primor.properties")
 		this.registry = LocateRegistry.getRegistry(
 			this.primorConfig.getString("manager-host"),
@@ -85,45 +114,92 @@ class Application {
 		)
 		this.models =
 			this.registry.lookup(RemoteService.MANAGER.toString) as ManagerService
-		this.instantiateMarts(this.localRepository)
+		this.instantiateMarts(this.templates(this.localRepository))
 	}
 
 	/**
-	 * Looks for Terraform templates in the given directory, recursively, and
-	 * instantiates a MART per each of them.
+	 * Looks for Terraform templates in the given directory, recursively.
 	 */
-	def private void instantiateMarts(File directory) {
+	def private List<File> templates(File directory) {
+		val templates = <File>newArrayList
 		directory.listFiles.forEach [ f |
 			if (f.directory) {
-				this.instantiateMarts(f)
+				templates.addAll(this.templates(f))
 			} else if (f.name.endsWith(".tf")) {
-				this.marts.put(
+				templates.add(f)
+			}
+		]
+		templates
+	}
+
+	/**
+	 * Instantiates a MART per template. Each instantiation parses the
+	 * template and initializes Terraform, so they run concurrently.
+	 */
+	def private void instantiateMarts(List<File> templates) {
+		this.runAll(templates) [ f |
+			new InfrastructureMart(
+				new TerraformSpecification(f),
+				new ConstrainedRam(StorageUnits.gigabyte(1L))
+			)
+		].forEach[f, mart|this.marts.put(f, mart)]
+	}
+
+	/**
+	 * Validates the MARTs concurrently.
+	 * @return Whether all of the templates are valid
+	 */
+	def boolean validate() {
+		this.runAll(this.marts.keySet.toList) [ f |
+			this.marts.get(f).validate()
+			f
+		]
+		this.errors.empty
+	}
+
+	/**
+	 * Applies a task to each template on the workers and waits for all of
+	 * them to finish. Failed tasks are recorded as errors of the
+	 * corresponding template.
+	 * @return The results of the successful tasks
+	 */
+	def private <T> Map<File, T> runAll(List<File> templates, Function<File, T> task) {
+		val futures = templates.toInvertedMap [ f |
+			CompletableFuture.supplyAsync([|task.apply(f)], this.workers)
+		]
+		val results = new TreeMap<File, T>
+		futures.forEach [ f, future |
+			try {
+				results.put(f, future.join)
+			} catch (CompletionException e) {
+				val cause = e.cause
+				this.errors.put(
 					f,
-					new InfrastructureMart(
-						new TerraformSpecification(f),
-						new ConstrainedRam(StorageUnits.gigabyte(1L))
-					)
+					switch (cause) {
+						ValidationException: cause.message
+						default: '''«cause.class.simpleName»: «cause.message»'''
+					}
 				)
 			}
 		]
+		results
 	}
 
 	/**
-	 * Validates the MART.
+	 * Prints the errors found, in path order.
+	 * @return The exit code (0 if there are no errors, 1 otherwise)
 	 */
-	def validate() {
-		this.marts.values.forEach[ mart |
-			try {
-				mart.validate()
-			} catch (ValidationException e) {
-				System.err.println(e.message)
-				System.exit(1)
-			}	
+	def int report() {
+		this.errors.forEach [ f, message |
+			System.err.println('''«this.localRepository.toURI.relativize(f.toURI).path»: «message»''')
 		]
+		if (!this.errors.empty)
+			System.err.println('''«this.errors.size» template(s) failed''')
+		if (this.errors.empty) 0 else 1
 	}
 
 	/**
-	 * Registers the MARTs on PrIMoR.
+	 * Registers the MARTs on PrIMoR, in a single call.
 	 * If a model has been already registered, it is deployed without cloning
 	 * the associated repository.
 	 */
@@ -139,25 +215,38 @@ class Application {
 				new URIish('''https://«r.host»/«r.rawPath»''')
 			else
 				r
+		val exported = <String, MART<?, ?>>newLinkedHashMap
 		this.marts.entrySet.forEach [ entry |
 			// A relative file path so it works on a remote machine
 			val f = new File(
 				this.localRepository.toURI.relativize(entry.key.toURI).getPath
 			)
 			entry.value.specification.origin.origin.file(f)
-			val key = '''«uri»/«f.toString»'''
-			if (!this.models.modelRegistered(key))
-				this.models.register(key, entry.value.export, uri)
-			else
-				this.models.update(key, entry.value.export)
+			exported.put('''«uri»/«f.toString»''', entry.value.export)
 		]
+		this.models.deployAll(exported, uri)
+	}
+
+	/**
+	 * Stops the workers.
+	 */
+	def shutdown() {
+		this.workers.shutdown
 	}
 
 	def static void main(String[] args) {
 		if (args.length != 1)
 			throw new IllegalArgumentException("A Terraform repository path is expected")
 		val app = new Application(new File(args.get(0)))
-		app.validate
-		app.deploy
+		var code = 1
+		try {
+			app.validate
+			code = app.report
+			if (code == 0)
+				app.deploy
+		} finally {
+			app.shutdown
+		}
+		System.exit(code)
 	}
 }
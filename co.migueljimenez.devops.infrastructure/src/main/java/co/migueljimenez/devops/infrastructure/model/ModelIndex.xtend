@@ -0,0 +1,187 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.infrastructure.model
+
+import java.util.Collections
+import java.util.List
+import java.util.Map
+import org.eclipse.emf.common.notify.Notification
+import org.eclipse.emf.ecore.EAttribute
+import org.eclipse.emf.ecore.EClass
+import org.eclipse.emf.ecore.EObject
+import org.eclipse.emf.ecore.util.EContentAdapter
+
+/**
+ * Index of the elements of a {@link VirtualInfrastructure}, keyed by class
+ * and name, and by class and id. The index is attached to the model as a
+ * content adapter, so it is updated as elements are added, removed or
+ * renamed. The index is not thread-safe; it is meant to be used by whoever
+ * holds the model's lock.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-25
+ * @version $Id$
+ * @since 0.0.1
+ */
+class ModelIndex extends EContentAdapter {
+
+	/**
+	 * The name of the attribute identifying an element by name.
+	 */
+	static val NAME = "name"
+
+	/**
+	 * The name of the attribute identifying an element by id.
+	 */
+	static val ID = "id"
+
+	/**
+	 * The elements, keyed by class and name, in the order they were added.
+	 */
+	val Map<Pair<EClass, Object>, List<EObject>> names = newHashMap
+
+	/**
+	 * The elements, keyed by class and id, in the order they were added.
+	 */
+	val Map<Pair<EClass, Object>, List<EObject>> ids = newHashMap
+
+	/**
+	 * Returns the index attached to the given model, attaching a new one if
+	 * necessary.
+	 * @param model The model
+	 * @return The model's index
+	 */
+	def static ModelIndex of(VirtualInfrastructure model) {
+		var index = model.eAdapters.filter(ModelIndex).head
+		if (index === null) {
+			index = new ModelIndex
+			model.eAdapters.add(index)
+		}
+		index
+	}
+
+	/**
+	 * Finds an element by class and name.
+	 * @param eClass The element's class
+	 * @param name The element's name
+	 * @return The first element added with that name, or {@code null}
+	 */
+	def <T extends EObject> T named(EClass eClass, String name) {
+		this.names.get(eClass -> name)?.head as T
+	}
+
+	/**
+	 * Finds all of the elements of a class with a given name.
+	 * @param eClass The elements' class
+	 * @param name The elements' name
+	 * @return A possibly empty list
+	 */
+	def List<EObject> allNamed(EClass eClass, String name) {
+		Collections.unmodifiableList(this.names.get(eClass -> name) ?: #[])
+	}
+
+	/**
+	 * Finds an element by class and id.
+	 * @param eClass The element's class
+	 * @param id The element's id
+	 * @return The first element added with that id, or {@code null}
+	 */
+	def <T extends EObject> T identified(EClass eClass, String id) {
+		this.ids.get(eClass -> id)?.head as T
+	}
+
+	/**
+	 * Indexes elements as they are added to the model (including the
+	 * contents of the model when the index is attached).
+	 */
+	override protected setTarget(EObject target) {
+		super.setTarget(target)
+		this.put(this.names, target, NAME)
+		this.put(this.ids, target, ID)
+	}
+
+	/**
+	 * Removes elements from the index as they are removed from the model.
+	 */
+	override protected unsetTarget(EObject target) {
+		super.unsetTarget(target)
+		this.remove(this.names, target, NAME, target.value(NAME))
+		this.remove(this.ids, target, ID, target.value(ID))
+	}
+
+	/**
+	 * Updates the index when an element is renamed.
+	 */
+	override notifyChanged(Notification notification) {
+		super.notifyChanged(notification)
+		val feature = notification.feature
+		val notifier = notification.notifier
+		if (notification.eventType == Notification.SET && feature instanceof EAttribute &&
+			notifier instanceof EObject) {
+			val attribute = feature as EAttribute
+			val element = notifier as EObject
+			val map = switch (attribute.name) {
+				case NAME: this.names
+				case ID: this.ids
+			}
+			if (map !== null && element.eClass.getEStructuralFeature(attribute.name) === attribute) {
+				this.remove(map, element, attribute.name, notification.oldValue)
+				this.put(map, element, attribute.name)
+			}
+		}
+	}
+
+	/**
+	 * Adds the given element to the given map, if it has the given attribute.
+	 */
+	def private void put(Map<Pair<EClass, Object>, List<EObject>> map,
+		EObject element, String attribute) {
+		val value = element.value(attribute)
+		if (value !== null)
+			map.computeIfAbsent(element.eClass -> value)[newArrayList].add(element)
+	}
+
+	/**
+	 * Removes the given element from the given map, assuming it was indexed
+	 * with the given value.
+	 */
+	def private void remove(Map<Pair<EClass, Object>, List<EObject>> map,
+		EObject element, String attribute, Object value) {
+		if (value === null)
+			return;
+		val key = element.eClass -> value
+		val elements = map.get(key)
+		if (elements !== null) {
+			elements.removeIf[e|e === element]
+			if (elements.empty)
+				map.remove(key)
+		}
+	}
+
+	/**
+	 * The value of the given attribute, or {@code null} if the element does
+	 * not have such attribute.
+	 */
+	def private Object value(EObject element, String attribute) {
+		val feature = element.eClass.getEStructuralFeature(attribute)
+		if (feature instanceof EAttribute) element.eGet(feature) else null
+	}
+}
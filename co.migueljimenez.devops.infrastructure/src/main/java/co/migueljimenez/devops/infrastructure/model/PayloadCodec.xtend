@@ -0,0 +1,271 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.infrastructure.model
+
+import de.xn__ho_hia.storage_unit.Exabyte
+import de.xn__ho_hia.storage_unit.Exbibyte
+import de.xn__ho_hia.storage_unit.Gibibyte
+import de.xn__ho_hia.storage_unit.Gigabyte
+import de.xn__ho_hia.storage_unit.Kibibyte
+import de.xn__ho_hia.storage_unit.Kilobyte
+import de.xn__ho_hia.storage_unit.Mebibyte
+import de.xn__ho_hia.storage_unit.Megabyte
+import de.xn__ho_hia.storage_unit.Pebibyte
+import de.xn__ho_hia.storage_unit.Petabyte
+import de.xn__ho_hia.storage_unit.StorageUnit
+import de.xn__ho_hia.storage_unit.Tebibyte
+import de.xn__ho_hia.storage_unit.Terabyte
+import de.xn__ho_hia.storage_unit.Yobibyte
+import de.xn__ho_hia.storage_unit.Yottabyte
+import de.xn__ho_hia.storage_unit.Zebibyte
+import de.xn__ho_hia.storage_unit.Zettabyte
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.util.List
+import org.eclipse.emf.ecore.EObject
+import org.eclipse.emf.ecore.EcorePackage
+
+/**
+ * Compact binary codec for the resources sent in commands (i.e.,
+ * {@link Credential}, {@link Image} and {@link SecurityGroup}, including its
+ * rules). Unlike {@link SerializationParser}, neither a resource nor an XML
+ * document is created; the attributes are written in a fixed order, preceded
+ * by a version and a type tag. Storage quantities are written as a unit tag
+ * and a number of bytes, without Java serialization.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-23
+ * @version $Id$
+ * @since 0.0.1
+ */
+class PayloadCodec {
+
+	/**
+	 * The version of the payload format.
+	 */
+	static val VERSION = 1
+
+	/**
+	 * Type tag of a {@link Credential}.
+	 */
+	static val CREDENTIAL = 1
+
+	/**
+	 * Type tag of an {@link Image}.
+	 */
+	static val IMAGE = 2
+
+	/**
+	 * Type tag of a {@link SecurityGroup}.
+	 */
+	static val SECURITY_GROUP = 3
+
+	/**
+	 * The supported storage units. The tag of a unit is its position plus
+	 * one, whereas zero denotes a missing quantity.
+	 */
+	static val List<Class<?>> UNITS = #[
+		Kilobyte, Megabyte, Gigabyte, Terabyte, Petabyte, Exabyte, Zettabyte,
+		Yottabyte, Kibibyte, Mebibyte, Gibibyte, Tebibyte, Pebibyte, Exbibyte,
+		Zebibyte, Yobibyte
+	]
+
+	/**
+	 * Default constructor.
+	 */
+	new() {
+		EcorePackage.eINSTANCE.eClass()
+		ModelPackage.eINSTANCE.eClass()
+	}
+
+	/**
+	 * Whether the given bytes start with a supported payload header.
+	 * @param bytes The bytes to check
+	 */
+	def boolean accepts(byte[] bytes) {
+		bytes.length > 1 && bytes.get(0) == VERSION && bytes.get(1) >= CREDENTIAL &&
+			bytes.get(1) <= SECURITY_GROUP
+	}
+
+	/**
+	 * Serializes the given resource. The resource's container is ignored.
+	 * @param eObject A {@link Credential}, {@link Image} or {@link SecurityGroup}
+	 * @return The payload
+	 */
+	def byte[] encode(EObject eObject) {
+		val bytes = new ByteArrayOutputStream
+		bytes.write(VERSION)
+		switch (eObject) {
+			Credential: bytes.write(CREDENTIAL)
+			Image: bytes.write(IMAGE)
+			SecurityGroup: bytes.write(SECURITY_GROUP)
+			default: throw new IllegalArgumentException('''Unsupported resource «eObject»''')
+		}
+		val output = new DataOutputStream(bytes)
+		switch (eObject) {
+			Credential: {
+				output.writeString(eObject.name)
+				output.writeString(eObject.publicKey)
+			}
+			Image: {
+				output.writeString(eObject.id)
+				output.writeString(eObject.name)
+				output.writeInt(eObject.containerFormat.value)
+				output.writeInt(eObject.diskFormat.value)
+				output.writeString(eObject.imageSourceUrl)
+				output.writeQuantity(eObject.minDisk)
+				output.writeQuantity(eObject.minRam)
+			}
+			SecurityGroup: {
+				output.writeString(eObject.id)
+				output.writeString(eObject.name)
+				output.writeString(eObject.description)
+				output.writeInt(eObject.rules.size)
+				eObject.rules.forEach [ rule |
+					output.writeString(rule.id)
+					output.writeInt(rule.from)
+					output.writeInt(rule.to)
+					output.writeString(rule.protocol)
+					output.writeString(rule.cidr)
+				]
+			}
+		}
+		output.close
+		bytes.toByteArray
+	}
+
+	/**
+	 * Loads the resource serialized in the given payload. The resource is not
+	 * contained in any infrastructure.
+	 * @param bytes The payload
+	 * @return A {@link Credential}, {@link Image} or {@link SecurityGroup}
+	 */
+	def EObject decode(byte[] bytes) {
+		if (!this.accepts(bytes))
+			throw new IllegalArgumentException("Unsupported payload")
+		val input = new DataInputStream(new ByteArrayInputStream(bytes, 2, bytes.length - 2))
+		val factory = ModelFactory.eINSTANCE
+		try {
+			switch (bytes.get(1) as int) {
+				case CREDENTIAL: {
+					val credential = factory.createCredential
+					credential.name = input.readString
+					credential.publicKey = input.readString
+					credential
+				}
+				case IMAGE: {
+					val image = factory.createImage
+					image.id = input.readString
+					image.name = input.readString
+					image.containerFormat = ContainerFormat.get(input.readInt)
+					image.diskFormat = DiskFormat.get(input.readInt)
+					image.imageSourceUrl = input.readString
+					image.minDisk = input.readQuantity
+					image.minRam = input.readQuantity
+					image
+				}
+				default: {
+					val group = factory.createSecurityGroup
+					group.id = input.readString
+					group.name = input.readString
+					group.description = input.readString
+					val rules = input.readInt
+					for (var i = 0; i < rules; i++) {
+						val rule = factory.createSecurityRule
+						rule.id = input.readString
+						rule.from = input.readInt
+						rule.to = input.readInt
+						rule.protocol = input.readString
+						rule.cidr = input.readString
+						group.rules.add(rule)
+					}
+					group
+				}
+			}
+		} finally {
+			input.close
+		}
+	}
+
+	/**
+	 * Writes a nullable string.
+	 */
+	def private void writeString(DataOutputStream output, String value) {
+		output.writeBoolean(value !== null)
+		if (value !== null)
+			output.writeUTF(value)
+	}
+
+	/**
+	 * Reads a nullable string.
+	 */
+	def private String readString(DataInputStream input) {
+		if (input.readBoolean) input.readUTF else null
+	}
+
+	/**
+	 * Writes a nullable storage quantity as its unit tag and its number of
+	 * bytes.
+	 */
+	def private void writeQuantity(DataOutputStream output, StorageUnit<?> value) {
+		if (value === null) {
+			output.writeByte(0)
+			return
+		}
+		val index = UNITS.indexOf(value.class)
+		if (index < 0)
+			throw new IllegalArgumentException('''Unsupported storage unit «value.class»''')
+		output.writeByte(index + 1)
+		output.writeLong(value.longValue)
+	}
+
+	/**
+	 * Reads a nullable storage quantity, in the unit it was written.
+	 */
+	def private StorageUnit<?> readQuantity(DataInputStream input) {
+		val tag = input.readByte as int
+		if (tag == 0)
+			return null
+		if (tag < 0 || tag > UNITS.size)
+			throw new IllegalArgumentException('''Unsupported storage unit tag «tag»''')
+		val bytes = input.readLong
+		switch (UNITS.get(tag - 1)) {
+			case Kilobyte: Kilobyte.valueOf(bytes)
+			case Megabyte: Megabyte.valueOf(bytes)
+			case Gigabyte: Gigabyte.valueOf(bytes)
+			case Terabyte: Terabyte.valueOf(bytes)
+			case Petabyte: Petabyte.valueOf(bytes)
+			case Exabyte: Exabyte.valueOf(bytes)
+			case Zettabyte: Zettabyte.valueOf(bytes)
+			case Yottabyte: Yottabyte.valueOf(bytes)
+			case Kibibyte: Kibibyte.valueOf(bytes)
+			case Mebibyte: Mebibyte.valueOf(bytes)
+			case Gibibyte: Gibibyte.valueOf(bytes)
+			case Tebibyte: Tebibyte.valueOf(bytes)
+			case Pebibyte: Pebibyte.valueOf(bytes)
+			case Exbibyte: Exbibyte.valueOf(bytes)
+			case Zebibyte: Zebibyte.valueOf(bytes)
+			default: Yobibyte.valueOf(bytes)
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.infrastructure.model
+
+import org.eclipse.emf.ecore.util.EcoreUtil
+import org.junit.Assert
+import org.junit.Test
+
+/**
+ * Tests {@link ModelIndex}.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-25
+ * @version $Id$
+ * @since 0.0.1
+ */
+class ModelIndexTest {
+
+	/**
+	 * A helper to instantiate elements from the Infrastructure model.
+	 */
+	val i = new InfrastructureModelElements
+
+	@Test
+	def void existingElements() {
+		val project = this.i.infrastructure
+		val credential = this.i.credential("keypair", "...", project)
+		val network = this.i.network("network-id", "network-1", project)
+		val subnet = this.i.subnet("subnet-1", "10.10.10.0/24", 4, network)
+		val index = ModelIndex.of(project)
+		Assert.assertSame(index, ModelIndex.of(project))
+		Assert.assertSame(credential, index.named(ModelPackage.Literals.CREDENTIAL, "keypair"))
+		Assert.assertSame(network, index.identified(ModelPackage.Literals.NETWORK, "network-id"))
+		Assert.assertSame(subnet, index.named(ModelPackage.Literals.SUBNET, "subnet-1"))
+		Assert.assertNull(index.named(ModelPackage.Literals.IMAGE, "keypair"))
+	}
+
+	@Test
+	def void addedAndRemovedElements() {
+		val project = this.i.infrastructure
+		val index = ModelIndex.of(project)
+		val group = this.i.securityGroup("group-id", "web", "Web servers", project)
+		Assert.assertSame(group, index.named(ModelPackage.Literals.SECURITY_GROUP, "web"))
+		Assert.assertSame(group, index.identified(ModelPackage.Literals.SECURITY_GROUP, "group-id"))
+		EcoreUtil.remove(group)
+		Assert.assertNull(index.named(ModelPackage.Literals.SECURITY_GROUP, "web"))
+		Assert.assertNull(index.identified(ModelPackage.Literals.SECURITY_GROUP, "group-id"))
+	}
+
+	@Test
+	def void renamedElements() {
+		val project = this.i.infrastructure
+		val index = ModelIndex.of(project)
+		val credential = this.i.credential("keypair", "...", project)
+		credential.name = "other"
+		Assert.assertNull(index.named(ModelPackage.Literals.CREDENTIAL, "keypair"))
+		Assert.assertSame(credential, index.named(ModelPackage.Literals.CREDENTIAL, "other"))
+	}
+}
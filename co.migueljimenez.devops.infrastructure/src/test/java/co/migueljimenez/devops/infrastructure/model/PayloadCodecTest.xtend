@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.infrastructure.model
+
+import de.xn__ho_hia.storage_unit.Gibibyte
+import de.xn__ho_hia.storage_unit.Megabyte
+import de.xn__ho_hia.storage_unit.StorageUnits
+import org.junit.Assert
+import org.junit.Test
+
+/**
+ * Tests {@link PayloadCodec}.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-23
+ * @version $Id$
+ * @since 0.0.1
+ */
+class PayloadCodecTest {
+
+	/**
+	 * The codec instance being tested.
+	 */
+	val PayloadCodec codec
+
+	/**
+	 * A helper to instantiate elements from the Infrastructure model.
+	 */
+	val InfrastructureModelElements i
+
+	/**
+	 * Default constructor.
+	 */
+	new() {
+		this.codec = new PayloadCodec
+		this.i = new InfrastructureModelElements
+	}
+
+	@Test
+	def void credential() {
+		val credential = this.codec.decode(
+			this.codec.encode(this.i.credential("keypair", "...", this.i.infrastructure))
+		) as Credential
+		Assert.assertEquals("keypair", credential.name)
+		Assert.assertEquals("...", credential.publicKey)
+		Assert.assertNull(credential.project)
+	}
+
+	@Test
+	def void image() {
+		val image = this.codec.decode(
+			this.codec.encode(
+				this.i.image(
+					"image-id",
+					"centos",
+					ContainerFormat.BARE,
+					DiskFormat.QCOW2,
+					null,
+					StorageUnits.gibibyte(1L),
+					StorageUnits.megabyte(512L),
+					this.i.infrastructure
+				)
+			)
+		) as Image
+		Assert.assertEquals("image-id", image.id)
+		Assert.assertEquals("centos", image.name)
+		Assert.assertEquals(ContainerFormat.BARE, image.containerFormat)
+		Assert.assertEquals(DiskFormat.QCOW2, image.diskFormat)
+		Assert.assertNull(image.imageSourceUrl)
+		Assert.assertEquals(StorageUnits.gibibyte(1L).longValue, image.minDisk.longValue)
+		Assert.assertEquals(StorageUnits.megabyte(512L).longValue, image.minRam.longValue)
+		Assert.assertEquals(Gibibyte, image.minDisk.class)
+		Assert.assertEquals(Megabyte, image.minRam.class)
+	}
+
+	@Test
+	def void imageWithoutQuantities() {
+		val image = this.codec.decode(
+			this.codec.encode(
+				this.i.image(
+					"image-id",
+					"cirros",
+					ContainerFormat.BARE,
+					DiskFormat.RAW,
+					"http://example.org/cirros.img",
+					null,
+					null,
+					this.i.infrastructure
+				)
+			)
+		) as Image
+		Assert.assertEquals("http://example.org/cirros.img", image.imageSourceUrl)
+		Assert.assertNull(image.minDisk)
+		Assert.assertNull(image.minRam)
+	}
+
+	@Test
+	def void securityGroup() {
+		val group = this.i.securityGroup("group-id", "web", "Web servers", this.i.infrastructure)
+		this.i.securityRule("rule-1", 80, 80, "0.0.0.0/0", "tcp", group)
+		this.i.securityRule("rule-2", 8000, 8080, null, "udp", group)
+		val decoded = this.codec.decode(this.codec.encode(group)) as SecurityGroup
+		Assert.assertEquals("group-id", decoded.id)
+		Assert.assertEquals("web", decoded.name)
+		Assert.assertEquals("Web servers", decoded.description)
+		Assert.assertEquals(2, decoded.rules.size)
+		val rule = decoded.rules.get(1)
+		Assert.assertEquals("rule-2", rule.id)
+		Assert.assertEquals(8000, rule.from)
+		Assert.assertEquals(8080, rule.to)
+		Assert.assertNull(rule.cidr)
+		Assert.assertEquals("udp", rule.protocol)
+		Assert.assertSame(decoded, rule.parent)
+	}
+
+	@Test(expected = IllegalArgumentException)
+	def void unsupportedPayload() {
+		this.codec.decode("<xml/>".bytes)
+	}
+}
@@ -45,16 +45,16 @@ class Application {
 	val EventListener[] listeners
 
 	/**
-	 * The event handlers.
+	 * The pipeline handling the events.
 	 */
-	val EventHandler[] handlers
+	val Pipeline pipeline
 
 	/**
 	 * Default constructor.
 	 */
 	new(EventListener[] listeners, EventHandler[] handlers) {
 		this.listeners = listeners
-		this.handlers = handlers
+		this.pipeline = new Pipeline(handlers)
 	}
 
 	/**
@@ -62,12 +62,9 @@ class Application {
 	 */
 	def start() {
 		this.logger.info("Starting listeners")
+		this.pipeline.start
 		this.listeners.forEach [ l |
-			l.listen [ e |
-				this.handlers
-					.filter[h|h.handledType.isAssignableFrom(e.class)]
-					.forEach[h|h.handle(e)]
-			]
+			l.listen[d|this.pipeline.submit(d)]
 		]
 	}
 
@@ -76,6 +73,8 @@ class Application {
 	 */
 	def stop() {
 		this.logger.info("Stopping listeners")
+		// Apply (and acknowledge) the queued events before closing the listeners
+		this.pipeline.stop
 		this.listeners.forEach[l|l.stop]
 	}
 
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.listener
+
+import com.rigiresearch.lcastane.framework.Command
+import org.eclipse.xtend.lib.annotations.Data
+
+/**
+ * A change to a model, derived from an event.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-20
+ * @version $Id$
+ * @since 0.0.1
+ */
+@Data
+class Change {
+
+	/**
+	 * The identifier of the changed model.
+	 */
+	String model
+
+	/**
+	 * Identifies the changed resource within the model (e.g., its type and
+	 * name). Changes to the same resource have the same key.
+	 */
+	String key
+
+	/**
+	 * Whether the change removes the resource from the model. Otherwise it
+	 * adds the resource.
+	 */
+	boolean removal
+
+	/**
+	 * The command realizing this change.
+	 */
+	Command command
+}
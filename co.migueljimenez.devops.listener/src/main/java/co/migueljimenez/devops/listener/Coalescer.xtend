@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.listener
+
+import java.util.List
+import java.util.Map
+
+/**
+ * Merges the changes to the same resource within a sequence of changes.
+ * Adding a resource and then removing it cancels both changes out, and so
+ * does adding it again; removing a resource and then adding it is left
+ * untouched.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-20
+ * @version $Id$
+ * @since 0.0.1
+ */
+class Coalescer {
+
+	/**
+	 * Merges the changes of the given sequence. Changes to different models
+	 * never cancel each other out.
+	 * @param changes The changes, in order
+	 * @return The remaining changes, in order
+	 */
+	def List<Change> coalesce(List<Change> changes) {
+		val Change[] result = newArrayOfSize(changes.size)
+		// The position of the pending addition of each resource
+		val Map<String, Integer> additions = newHashMap
+		changes.forEach [ change, i |
+			val key = change.model + "/" + change.key
+			val addition = additions.get(key)
+			if (addition === null) {
+				result.set(i, change)
+				if (!change.removal)
+					additions.put(key, i)
+			} else if (change.removal) {
+				result.set(addition, null)
+				additions.remove(key)
+			}
+			// Otherwise it is a duplicated addition
+		]
+		result.filterNull.toList
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.listener
+
+import org.eclipse.xtend.lib.annotations.Accessors
+import org.eclipse.xtext.xbase.lib.Procedures.Procedure1
+
+/**
+ * An event received by an {@link EventListener}, along with the means to
+ * settle it with its source once it has been handled.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-20
+ * @version $Id$
+ * @since 0.0.1
+ */
+class Delivery {
+
+	/**
+	 * The received event.
+	 */
+	@Accessors(PUBLIC_GETTER)
+	val Object event
+
+	/**
+	 * Settles the event with its source. The argument is how the event was
+	 * handled.
+	 */
+	val Procedure1<Outcome> settlement
+
+	/**
+	 * Default constructor.
+	 * @param event The received event
+	 * @param settlement Settles the event with its source
+	 */
+	new(Object event, Procedure1<Outcome> settlement) {
+		this.event = event
+		this.settlement = settlement
+	}
+
+	/**
+	 * Acknowledges the event, that is, its source can forget it.
+	 */
+	def void ack() {
+		this.settlement.apply(Outcome.ACK)
+	}
+
+	/**
+	 * Rejects the event, that is, it was not (and will not be) handled.
+	 */
+	def void reject() {
+		this.settlement.apply(Outcome.REJECT)
+	}
+
+	/**
+	 * Returns the event to its source, that is, it could not be handled yet
+	 * (e.g., due to a transient error) and should be delivered again.
+	 */
+	def void requeue() {
+		this.settlement.apply(Outcome.REQUEUE)
+	}
+
+	/**
+	 * How an event was handled.
+	 * @author Miguel Jimenez (miguel@uvic.ca)
+	 * @date 2018-07-26
+	 * @version $Id$
+	 * @since 0.0.1
+	 */
+	enum Outcome {
+		ACK,
+		REJECT,
+		REQUEUE
+	}
+}
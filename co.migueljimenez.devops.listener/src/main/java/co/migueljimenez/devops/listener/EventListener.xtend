@@ -33,9 +33,10 @@ import org.eclipse.xtext.xbase.lib.Procedures.Procedure1
 interface EventListener {
 
 	/**
-	 * Starts listening for events.
+	 * Starts listening for events. Each event is delivered along with the
+	 * means to acknowledge it, which may happen on another thread.
 	 */
-	def void listen(Procedure1<Object> handler) throws Exception
+	def void listen(Procedure1<Delivery> handler) throws Exception
 
 	/**
 	 * Closes any open connection or communication resource.
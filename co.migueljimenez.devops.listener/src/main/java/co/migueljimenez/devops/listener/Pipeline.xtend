@@ -0,0 +1,337 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.listener
+
+import com.rigiresearch.lcastane.primor.ModelNotFoundException
+import java.rmi.RemoteException
+import java.util.List
+import java.util.Map
+import java.util.concurrent.BlockingQueue
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.FutureTask
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
+import org.apache.commons.configuration2.Configuration
+import org.apache.commons.configuration2.builder.fluent.Configurations
+import org.eclipse.xtend.lib.annotations.Data
+import org.slf4j.LoggerFactory
+
+/**
+ * Handles events in stages: the events are queued (up to a configurable
+ * capacity), their changes are derived concurrently by a pool of workers,
+ * and then they are dispatched in order, in windows of a configurable size
+ * and duration. The changes within a window are coalesced and applied in a
+ * single batch per model, after which the corresponding events are
+ * acknowledged (see pipeline.properties). Events whose changes could not be
+ * applied due to a transient error (e.g., PrIMoR is restarting) are
+ * requeued, whereas the others are rejected.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-20
+ * @version $Id$
+ * @since 0.0.1
+ */
+class Pipeline {
+
+	/**
+	 * The logger.
+	 */
+	val logger = LoggerFactory.getLogger(Pipeline)
+
+	/**
+	 * How long the dispatcher waits for new events when the window is empty,
+	 * in milliseconds.
+	 */
+	static val POLL_TIMEOUT = 250L
+
+	/**
+	 * The event handlers.
+	 */
+	val List<EventHandler> handlers
+
+	/**
+	 * The events waiting to be dispatched, in order of arrival. Their changes
+	 * may still be being derived.
+	 */
+	val BlockingQueue<Future<Entry>> pending
+
+	/**
+	 * The workers deriving the changes from the events.
+	 */
+	val ExecutorService workers
+
+	/**
+	 * The thread dispatching the changes.
+	 */
+	val Thread dispatcher
+
+	/**
+	 * The maximum number of events per window.
+	 */
+	val int windowSize
+
+	/**
+	 * The maximum time an event waits in a window, in milliseconds.
+	 */
+	val long windowTime
+
+	/**
+	 * Merges the changes within a window.
+	 */
+	val Coalescer coalescer
+
+	/**
+	 * Whether this pipeline accepts new events.
+	 */
+	volatile boolean running
+
+	/**
+	 * Default constructor.
+	 * @param handlers The event handlers
+	 * @param capacity The maximum number of events waiting to be dispatched
+	 * @param workers The number of workers deriving the changes. Zero means
+	 *  as many as available processors
+	 * @param windowSize The maximum number of events per window
+	 * @param windowTime The maximum time an event waits in a window, in
+	 *  milliseconds
+	 */
+	new(List<EventHandler> handlers, int capacity, int workers, int windowSize,
+		long windowTime) {
+		this.handlers = handlers
+		this.pending = new LinkedBlockingQueue<Future<Entry>>(capacity)
+		this.workers = Executors.newFixedThreadPool(
+			if (workers > 0) workers else Runtime.runtime.availableProcessors
+		)
+		this.windowSize = windowSize
+		this.windowTime = windowTime
+		this.coalescer = new Coalescer
+		this.dispatcher = new Thread([this.dispatch], "event-dispatcher")
+	}
+
+	/**
+	 * Secondary constructor. The settings are read from pipeline.properties.
+	 * @param handlers The event handlers
+	 */
+	new(List<EventHandler> handlers) {
+		this(handlers, new Configurations().properties("pipeline.properties"))
+	}
+
+	/**
+	 * Reads the settings from the given configuration.
+	 */
+	private new(List<EventHandler> handlers, Configuration config) {
+		this(
+			handlers,
+			config.getInt("capacity"),
+			config.getInt("workers", 0),
+			config.getInt("window-size"),
+			config.getLong("window-time")
+		)
+	}
+
+	/**
+	 * Starts dispatching events.
+	 */
+	def void start() {
+		this.running = true
+		this.dispatcher.start
+	}
+
+	/**
+	 * Queues the given delivery. This method blocks while the queue is full,
+	 * thus slowing down the listeners.
+	 * @param delivery The delivery
+	 */
+	def void submit(Delivery delivery) throws InterruptedException {
+		if (!this.running)
+			throw new IllegalStateException("The pipeline is not running")
+		val task = new FutureTask<Entry>[this.changes(delivery)]
+		// Queue it first so that the dispatcher sees the events in order
+		this.pending.put(task)
+		this.workers.execute(task)
+	}
+
+	/**
+	 * The number of events waiting to be dispatched.
+	 */
+	def int depth() {
+		this.pending.size
+	}
+
+	/**
+	 * Stops accepting events, dispatches the queued ones and releases the
+	 * workers.
+	 */
+	def void stop() throws InterruptedException {
+		this.running = false
+		this.dispatcher.join
+		this.workers.shutdown
+	}
+
+	/**
+	 * Derives the changes corresponding to the given delivery. Handlers that
+	 * do not support batches handle the event right away.
+	 */
+	def private Entry changes(Delivery delivery) {
+		val event = delivery.event
+		try {
+			val changes = this.handlers
+				.filter[h|h.handledType.isAssignableFrom(event.class)]
+				.map [ h |
+					switch (h) {
+						BatchHandler: h.changes(event).map[c|h -> c]
+						default: {
+							h.handle(event)
+							<Pair<BatchHandler, Change>>emptyList
+						}
+					}
+				]
+				.flatten
+				.toList
+			new Entry(delivery, changes, false)
+		} catch (Throwable e) {
+			this.logger.error('''Could not handle event «event»''', e)
+			new Entry(delivery, #[], true)
+		}
+	}
+
+	/**
+	 * Dispatches the queued events until the pipeline is stopped and there
+	 * are no more events left. A window that cannot be dispatched is logged
+	 * and dropped, so that the next ones are still dispatched.
+	 */
+	def private void dispatch() {
+		val window = <Entry>newArrayList
+		var deadline = 0L
+		while (this.running || !this.pending.empty || !window.empty) {
+			val timeout = if (window.empty)
+					POLL_TIMEOUT
+				else
+					Math.max(0, deadline - System.currentTimeMillis)
+			val task = this.pending.poll(timeout, TimeUnit.MILLISECONDS)
+			if (task !== null) {
+				if (window.empty)
+					deadline = System.currentTimeMillis + this.windowTime
+				window.add(task.get)
+			}
+			val full = window.size >= this.windowSize
+			val expired = System.currentTimeMillis >= deadline
+			val draining = !this.running && this.pending.empty
+			if (!window.empty && (full || expired || draining)) {
+				try {
+					this.flush(window)
+				} catch (Throwable e) {
+					this.logger.error('''Could not dispatch «window.size» events''', e)
+				} finally {
+					window.clear
+				}
+			}
+		}
+	}
+
+	/**
+	 * Applies the changes of the given window, grouped by handler and model,
+	 * and settles the corresponding events.
+	 */
+	def private void flush(List<Entry> window) {
+		val groups = window
+			.filter[!failed]
+			.map[changes]
+			.flatten
+			.groupBy[key -> value.model]
+		val Map<Pair<BatchHandler, String>, Boolean> failures = newHashMap
+		var commands = 0
+		for (group : groups.entrySet) {
+			val changes = this.coalescer.coalesce(group.value.map[value])
+			commands += changes.size
+			try {
+				if (!changes.empty)
+					group.key.key.apply(group.key.value, changes.map[command])
+			} catch (Exception e) {
+				val retryable = this.retryable(e)
+				failures.put(group.key, retryable)
+				val action = if (retryable) "requeued" else "rejected"
+				this.logger.error(
+					'''Could not apply «changes.size» commands to model "«group.key.value»", the events will be «action»''',
+					e
+				)
+			}
+		}
+		window.forEach [ entry |
+			val outcomes = entry.changes.map[c|failures.get(c.key -> c.value.model)]
+			try {
+				if (entry.failed || outcomes.exists[it == Boolean.FALSE])
+					entry.delivery.reject
+				else if (outcomes.exists[it == Boolean.TRUE])
+					entry.delivery.requeue
+				else
+					entry.delivery.ack
+			} catch (Exception e) {
+				this.logger.error('''Could not settle event «entry.delivery.event»''', e)
+			}
+		]
+		this.logger.info(
+			'''Dispatched «window.size» events as «commands» commands («this.depth» events queued)'''
+		)
+	}
+
+	/**
+	 * Whether the given error is transient, that is, applying the same
+	 * changes later may succeed. Validation errors, among others, are not.
+	 */
+	def private boolean retryable(Exception e) {
+		switch (e) {
+			RemoteException,
+			ModelNotFoundException:
+				true
+			default:
+				false
+		}
+	}
+
+	/**
+	 * An event along with its changes.
+	 * @author Miguel Jimenez (miguel@uvic.ca)
+	 * @date 2018-07-20
+	 * @version $Id$
+	 * @since 0.0.1
+	 */
+	@Data
+	static class Entry {
+
+		/**
+		 * The event's delivery.
+		 */
+		Delivery delivery
+
+		/**
+		 * The changes derived from the event, along with their handler.
+		 */
+		List<Pair<BatchHandler, Change>> changes
+
+		/**
+		 * Whether the changes could not be derived.
+		 */
+		boolean failed
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.listener.openstack
+
+import com.rabbitmq.client.Channel
+
+/**
+ * Acknowledges the deliveries of a channel in batches, that is, using a
+ * single acknowledgement for several consecutive deliveries. Deliveries are
+ * expected to be settled in the order they were received.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-22
+ * @version $Id$
+ * @since 0.0.1
+ */
+class Acknowledger {
+
+	/**
+	 * The channel from which the deliveries were received.
+	 */
+	val Channel channel
+
+	/**
+	 * The number of deliveries acknowledged at once.
+	 */
+	val int batch
+
+	/**
+	 * The tag of the last delivery that was acknowledged but not yet sent.
+	 */
+	var long tag
+
+	/**
+	 * The number of deliveries acknowledged but not yet sent.
+	 */
+	var int pending
+
+	/**
+	 * Default constructor.
+	 * @param channel The channel from which the deliveries were received
+	 * @param batch The number of deliveries acknowledged at once
+	 */
+	new(Channel channel, int batch) {
+		this.channel = channel
+		this.batch = batch
+	}
+
+	/**
+	 * Acknowledges the given delivery, along with the pending ones if the
+	 * batch is complete.
+	 * @param tag The delivery tag
+	 */
+	def synchronized void ack(long tag) {
+		this.tag = tag
+		this.pending++
+		if (this.pending >= this.batch)
+			this.flush
+	}
+
+	/**
+	 * Rejects the given delivery, without requeueing it, after sending the
+	 * pending acknowledgements.
+	 * @param tag The delivery tag
+	 */
+	def synchronized void reject(long tag) {
+		this.flush
+		this.channel.basicReject(tag, false)
+	}
+
+	/**
+	 * Rejects the given delivery, requeueing it, after sending the pending
+	 * acknowledgements.
+	 * @param tag The delivery tag
+	 */
+	def synchronized void requeue(long tag) {
+		this.flush
+		this.channel.basicNack(tag, false, true)
+	}
+
+	/**
+	 * Sends the pending acknowledgements, if any.
+	 */
+	def synchronized void flush() {
+		if (this.pending > 0 && this.channel.open) {
+			this.channel.basicAck(this.tag, true)
+			this.pending = 0
+		}
+	}
+}
@@ -22,14 +22,16 @@
 package co.migueljimenez.devops.listener.openstack
 
 import co.migueljimenez.devops.infrastructure.model.InfrastructureModelElements
-import co.migueljimenez.devops.infrastructure.model.SerializationParser
-import co.migueljimenez.devops.listener.EventHandler
+import co.migueljimenez.devops.infrastructure.model.PayloadCodec
+import co.migueljimenez.devops.listener.BatchHandler
+import co.migueljimenez.devops.listener.Change
 import co.migueljimenez.devops.mart.infrastructure.operations.InfrastructureModelOp
 import com.rigiresearch.lcastane.framework.Command
 import com.rigiresearch.lcastane.primor.ManagerService
 import com.rigiresearch.lcastane.primor.RemoteService
 import java.rmi.registry.LocateRegistry
 import java.rmi.registry.Registry
+import java.util.List
 import java.util.Map
 import org.apache.commons.configuration2.Configuration
 import org.apache.commons.configuration2.builder.fluent.Configurations
@@ -48,12 +50,14 @@ import org.openstack4j.model.network.SecurityGroup
 
 /**
  * An OpenStack event handler that executes {@link Command}s on PrIMoR.
+ * Looking up the created resources is kept apart from executing the commands
+ * so that both can happen in different stages (see {@link BatchHandler}).
  * @author Miguel Jimenez (miguel@uvic.ca)
  * @date 2018-05-31
  * @version $Id$
  * @since 0.0.1
  */
-class OpenStackHandler implements EventHandler {
+class OpenStackHandler implements BatchHandler {
 
 	/**
 	 * The logger.
@@ -91,9 +95,9 @@ class OpenStackHandler implements EventHandler {
 	val InfrastructureModelElements i
 
 	/**
-	 * A parser to serialize Ecore objects.
+	 * A codec to serialize the resources sent in commands.
 	 */
-	val SerializationParser serializationParser
+	val PayloadCodec payloadCodec
 
 	/**
 	 * Default constructor.
@@ -110,7 +114,7 @@ class OpenStackHandler implements EventHandler {
 		this.models =
 			this.registry.lookup(RemoteService.MANAGER.toString) as ManagerService
 		this.i = new InfrastructureModelElements
-		this.serializationParser = new SerializationParser
+		this.payloadCodec = new PayloadCodec
 	}
 
 	/**
@@ -156,15 +160,25 @@ class OpenStackHandler implements EventHandler {
 	}
 
 	override handle(Object event) {
+		this.changes(event)
+			.groupBy[model]
+			.forEach[model, changes|this.apply(model, changes.map[command])]
+	}
+
+	override changes(Object event) {
 		val e = event as OpenStackEvent
 		if (!e.user.isNullOrEmpty && e.user.equals(this.ignoredUser)) {
 			this.logger.info('''Event "«e.eventType»" was ignored because its author («this.ignoredUser») is being ignored''')
-			return;
+			return #[]
 		}
 		// FIXME Dig into this Glance issue
 		if (e.user.isNullOrEmpty)
 			e.user = "unknown"
-		this.handle(e, this.client.token)
+		this.changes(e, this.client.token)
+	}
+
+	override apply(String model, List<Command> commands) {
+		this.models.executeAll(model, commands)
 	}
 
 	override handledType() {
@@ -172,22 +186,23 @@ class OpenStackHandler implements EventHandler {
 	}
 
 	/**
-	 * Handles an OpenStack event.
+	 * Derives the changes corresponding to an OpenStack event.
 	 */
-	def protected void handle(OpenStackEvent event, Token token) {
+	def protected List<Change> changes(OpenStackEvent event, Token token) {
 		val modelId = this.primorConfig.getString("model-id")
 		if (!this.models.modelRegistered(modelId)) {
 			this.logger.info(
 				'''The event was not further handled because the model "«modelId»" hasn't been registered yet'''
 			)
-			return
+			return #[]
 		}
+		// The client is bound to the current thread
 		val client = OSFactory.clientFromToken(token)
 		val Map<String, Object> context = #{
 			"author" -> event.user,
 			"email" -> '''«event.user»@OpenStack'''
 		}
-		switch (event.eventType) {
+		val change = switch (event.eventType) {
 			// Nova
 			case "keypair.create.end":
 				this.newKeypair(client, modelId, context, event)
@@ -205,22 +220,28 @@ class OpenStackHandler implements EventHandler {
 				this.newImage(client, modelId, context, event)
 			case "image.delete":
 				this.deleteImage(modelId, context, event)
-			default:
+			default: {
 				println('''Unknown OpenStack event: «event.eventType»''')
+				null
+			}
 		}
+		if (change === null) #[] else #[change]
 	}
 
 	/**
 	 * Requests deleting an existing keypair from the infrastructure model.
 	 */
-	def private void deleteKeypair(String modelId, Map<String, Object> context,
+	def private deleteKeypair(String modelId, Map<String, Object> context,
 		OpenStackEvent event) {
-		this.models.execute(
+		val name = event.payload.get("key_name").asText
+		new Change(
 			modelId,
+			this.key(Credential, name),
+			true,
 			new Command(
 				InfrastructureModelOp.REMOVE_RESOURCE,
 				context,
-				event.payload.get("key_name").asText,
+				name,
 				Credential.canonicalName
 			)
 		)
@@ -229,16 +250,18 @@ class OpenStackHandler implements EventHandler {
 	/**
 	 * Requests adding a new keypair to the infrastructure model.
 	 */
-	def private void newKeypair(OSClientV3 client, String modelId,
+	def private newKeypair(OSClientV3 client, String modelId,
 		Map<String, Object> context, OpenStackEvent event) {
 		val name = event.payload.get("key_name").asText
 		val keypair = client.compute.keypairs.get(name)
-		this.models.execute(
+		new Change(
 			modelId,
+			this.key(Credential, name),
+			false,
 			new Command(
 				InfrastructureModelOp.ADD_RESOURCE,
 				context,
-				this.serializationParser.asXml(
+				this.payloadCodec.encode(
 					this.i.credential(
 						name,
 						keypair.publicKey,
@@ -252,7 +275,7 @@ class OpenStackHandler implements EventHandler {
 	/**
 	 * Requests adding a new security group to the infrastructure model.
 	 */
-	def private void newSecurityGroup(OSClientV3 client, String modelId,
+	def private Change newSecurityGroup(OSClientV3 client, String modelId,
 		Map<String, Object> context, OpenStackEvent event) {
 		val name = event.payload.path("security_group").get("name").asText
 		val groups = client.networking.securitygroup.list(#{"name" -> name})
@@ -261,7 +284,7 @@ class OpenStackHandler implements EventHandler {
 			group = groups.get(0)
 		} else {
 			this.logger.error('''Could not find security group "«name»"''')
-			return
+			return null
 		}
 		val newGroup = this.i.securityGroup(
 			group.id,
@@ -284,27 +307,32 @@ class OpenStackHandler implements EventHandler {
 				)
 			}
 		]
-		this.models.execute(
+		new Change(
 			modelId,
+			this.key(SecurityGroup, group.id),
+			false,
 			new Command(
 				InfrastructureModelOp.ADD_RESOURCE,
 				context,
-				this.serializationParser.asXml(newGroup)
+				this.payloadCodec.encode(newGroup)
 			)
 		)
 	}
 
 	/**
-	 * Requests deleting an existing image from the infrastructure model.
+	 * Requests deleting an existing security group from the infrastructure model.
 	 */
-	def private void deleteSecurityGroup(String modelId, Map<String, Object> context,
+	def private deleteSecurityGroup(String modelId, Map<String, Object> context,
 		OpenStackEvent event) {
-		this.models.execute(
+		val id = event.payload.get("security_group_id").asText
+		new Change(
 			modelId,
+			this.key(SecurityGroup, id),
+			true,
 			new Command(
 				InfrastructureModelOp.REMOVE_RESOURCE,
 				context,
-				event.payload.get("security_group_id").asText,
+				id,
 				co.migueljimenez.devops.infrastructure.model.SecurityGroup.canonicalName
 			)
 		)
@@ -313,14 +341,17 @@ class OpenStackHandler implements EventHandler {
 	/**
 	 * Requests deleting an existing image from the infrastructure model.
 	 */
-	def private void deleteImage(String modelId, Map<String, Object> context,
+	def private deleteImage(String modelId, Map<String, Object> context,
 		OpenStackEvent event) {
-		this.models.execute(
+		val name = event.payload.get("name").asText
+		new Change(
 			modelId,
+			this.key(Image, name),
+			true,
 			new Command(
 				InfrastructureModelOp.REMOVE_RESOURCE,
 				context,
-				event.payload.get("name").asText,
+				name,
 				Image.canonicalName
 			)
 		)
@@ -329,15 +360,17 @@ class OpenStackHandler implements EventHandler {
 	/**
 	 * Requests adding a new image to the infrastructure model.
 	 */
-	def private void newImage(OSClientV3 client, String modelId,
+	def private newImage(OSClientV3 client, String modelId,
 		Map<String, Object> context, OpenStackEvent event) {
 		val image = client.images.get(event.payload.get("id").asText)
-		this.models.execute(
+		new Change(
 			modelId,
+			this.key(Image, event.payload.get("name").asText),
+			false,
 			new Command(
 				InfrastructureModelOp.ADD_RESOURCE,
 				context,
-				this.serializationParser.asXml(
+				this.payloadCodec.encode(
 					this.i.image(
 						event.payload.get("id").asText,
 						event.payload.get("name").asText,
@@ -353,4 +386,11 @@ class OpenStackHandler implements EventHandler {
 			)
 		)
 	}
+
+	/**
+	 * Identifies a resource of the infrastructure model.
+	 */
+	def private key(Class<?> type, String identifier) {
+		'''«type.simpleName»:«identifier»'''.toString
+	}
 }
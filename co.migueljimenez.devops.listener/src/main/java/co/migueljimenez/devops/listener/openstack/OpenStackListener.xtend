@@ -21,8 +21,10 @@
  */
 package co.migueljimenez.devops.listener.openstack
 
+import co.migueljimenez.devops.listener.Delivery
 import co.migueljimenez.devops.listener.EventListener
 import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.databind.ObjectReader
 import com.rabbitmq.client.AMQP
 import com.rabbitmq.client.Channel
 import com.rabbitmq.client.Connection
@@ -30,6 +32,10 @@ import com.rabbitmq.client.ConnectionFactory
 import com.rabbitmq.client.DefaultConsumer
 import com.rabbitmq.client.Envelope
 import java.io.IOException
+import java.util.List
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
 import org.apache.commons.configuration2.Configuration
 import org.apache.commons.configuration2.builder.fluent.Configurations
 import org.eclipse.xtext.xbase.lib.Procedures.Procedure1
@@ -37,6 +43,10 @@ import org.slf4j.LoggerFactory
 
 /**
  * Listens for OpenStack Events.
+ * Events are consumed from several channels, each one with a limited number
+ * of unacknowledged deliveries, and acknowledged in batches (see
+ * rabbitmq.properties). Notice that events consumed from different channels
+ * may be handled out of order.
  * @author Miguel Jimenez (miguel@uvic.ca)
  * @date 2018-05-14
  * @version $Id$
@@ -44,6 +54,16 @@ import org.slf4j.LoggerFactory
  */
 class OpenStackListener implements EventListener {
 
+	/**
+	 * Parses JSON trees. It is thread-safe.
+	 */
+	static val ObjectMapper MAPPER = new ObjectMapper()
+
+	/**
+	 * Reads {@link OpenStackEvent}s. It is thread-safe.
+	 */
+	static val ObjectReader READER = MAPPER.readerFor(OpenStackEvent)
+
 	/**
      * The logger.
      */
@@ -60,9 +80,20 @@ class OpenStackListener implements EventListener {
 	val Connection connection
 
 	/**
-	 * The communication channel with the RabbitMQ server.
+	 * The communication channels with the RabbitMQ server. Each one has its
+	 * own consumer.
 	 */
-	val Channel channel
+	val List<Channel> channels
+
+	/**
+	 * The acknowledgers associated with the channels.
+	 */
+	val List<Acknowledger> acknowledgers
+
+	/**
+	 * Periodically sends the pending acknowledgements.
+	 */
+	val ScheduledExecutorService timer
 
 	/**
 	 * The exchange from which this listener consumes events.
@@ -75,14 +106,51 @@ class OpenStackListener implements EventListener {
 	val String routingKey
 
 	/**
-	 * Default constructor.
+	 * Default constructor. The settings are read from rabbitmq.properties.
 	 */
 	new(String exchange, String routingKey) {
-		this.configuration = new Configurations().properties(
-            "rabbitmq.properties"
-        )
-		this.connection = this.factory().newConnection
-		this.channel = connection.createChannel
+		this(
+			exchange,
+			routingKey,
+			new Configurations().properties("rabbitmq.properties")
+		)
+	}
+
+	/**
+	 * Reads the settings from the given configuration.
+	 */
+	private new(String exchange, String routingKey, Configuration configuration) {
+		this(
+			exchange,
+			routingKey,
+			configuration,
+			OpenStackListener.factory(configuration).newConnection
+		)
+	}
+
+	/**
+	 * Secondary constructor. The channels are created on the given
+	 * connection; the connection settings in the configuration are ignored.
+	 * @param exchange The exchange from which events are consumed
+	 * @param routingKey The routing key to use
+	 * @param configuration The RabbitMQ configuration (see
+	 *  rabbitmq.properties)
+	 * @param connection An open connection
+	 */
+	new(String exchange, String routingKey, Configuration configuration,
+		Connection connection) {
+		this.configuration = configuration
+		this.connection = connection
+		val prefetch = this.configuration.getInt("prefetch", 0)
+		this.channels = (1..Math.max(1, this.configuration.getInt("channels", 1))).map [
+			val channel = this.connection.createChannel
+			channel.basicQos(prefetch)
+			channel
+		].toList
+		this.acknowledgers = this.channels.map [ c |
+			new Acknowledger(c, Math.max(1, this.configuration.getInt("ack-batch", 1)))
+		].toList
+		this.timer = Executors.newSingleThreadScheduledExecutor
 		this.exchange = exchange
 		this.routingKey = routingKey
 	}
@@ -90,50 +158,76 @@ class OpenStackListener implements EventListener {
 	/**
 	 * Instantiates and configures the RabbitMQ connection factory.
 	 */
-	def protected factory() {
+	def protected static factory(Configuration configuration) {
 		val factory = new ConnectionFactory()
-		factory.setUsername(this.configuration.getString("username"))
-		factory.setPassword(this.configuration.getString("password"))
-		factory.setVirtualHost(this.configuration.getString("vhost"))
-		factory.setHost(this.configuration.getString("host"))
-		factory.setPort(this.configuration.getInt("port"))
+		factory.setUsername(configuration.getString("username"))
+		factory.setPassword(configuration.getString("password"))
+		factory.setVirtualHost(configuration.getString("vhost"))
+		factory.setHost(configuration.getString("host"))
+		factory.setPort(configuration.getInt("port"))
 		return factory
 	}
 
-	override listen(Procedure1<Object> handler) {
-		val queue = this.channel.queueDeclare().queue
-		this.channel.queueBind(queue, this.exchange, this.routingKey)
+	/**
+	 * Parses an OpenStack event from the body of a message.
+	 * @param body The message's body
+	 * @return The corresponding event
+	 */
+	def static OpenStackEvent parse(byte[] body) throws IOException {
+		val message = MAPPER.readTree(body)
+		val innerMessage = message.path("oslo.message")
+		if (!innerMessage.isMissingNode) // Nova, Glance
+			READER.readValue(innerMessage.asText)
+		else
+			READER.readValue(message)
+	}
+
+	override listen(Procedure1<Delivery> handler) {
+		// The queue is exclusive to the connection, so every channel can use it
+		val queue = this.channels.head.queueDeclare().queue
+		this.channels.head.queueBind(queue, this.exchange, this.routingKey)
 		this.logger.info('''Connection successful for exchange: "«this.exchange»" using routing key: "«this.routingKey»"''')
-		this.channel.basicConsume(
-			queue,
-			false,
-			"openstack-consumer-" + System.nanoTime,
-			new DefaultConsumer(this.channel) {
-				override handleDelivery(String consumerTag, Envelope envelope,
-					AMQP.BasicProperties properties, byte[] body) throws IOException {
-					val json = new String(body)
-					val mapper = new ObjectMapper()
-					var OpenStackEvent e = null
-					var innerMessage = mapper.readTree(json)
-					if (!innerMessage.path("oslo.message").isMissingNode) { // Nova, Glance
-						innerMessage = innerMessage.path("oslo.message")
-						val parser = mapper.readTree(innerMessage.asText).traverse
-						parser.codec = mapper
-						e = parser.readValueAs(OpenStackEvent)
-					} else {
-						e = mapper.readValue(json, OpenStackEvent)
+		this.channels.forEach [ channel, i |
+			val acknowledger = this.acknowledgers.get(i)
+			channel.basicConsume(
+				queue,
+				false,
+				"openstack-consumer-" + System.nanoTime,
+				new DefaultConsumer(channel) {
+					override handleDelivery(String consumerTag, Envelope envelope,
+						AMQP.BasicProperties properties, byte[] body) throws IOException {
+						val e = OpenStackListener.parse(body)
+						OpenStackListener.this.logger.info('''New event "«e.eventType»"''')
+						val tag = envelope.deliveryTag
+						// Acknowledged once the event's changes have been applied
+						handler.apply(
+							new Delivery(e) [ outcome |
+								switch (outcome) {
+									case ACK: acknowledger.ack(tag)
+									case REJECT: acknowledger.reject(tag)
+									case REQUEUE: acknowledger.requeue(tag)
+								}
+							]
+						)
 					}
-					OpenStackListener.this.logger.info('''New event "«e.eventType»"''')
-					handler.apply(e)
-					channel.basicAck(envelope.getDeliveryTag(), false)
 				}
-			}
+			)
+		]
+		// Incomplete batches are acknowledged after a while
+		val interval = this.configuration.getLong("ack-interval", 1000)
+		this.timer.scheduleWithFixedDelay(
+			[this.acknowledgers.forEach[flush]],
+			interval,
+			interval,
+			TimeUnit.MILLISECONDS
 		)
 	}
 
 	override stop() {
 		this.logger.info("Stopping OpenStack listener")
+		this.timer.shutdown
+		this.acknowledgers.forEach[flush]
+		this.channels.forEach[close]
 		this.connection.close
-		this.channel.close
 	}
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.listener
+
+import co.migueljimenez.devops.mart.infrastructure.operations.InfrastructureModelOp
+import com.rigiresearch.lcastane.framework.Command
+import org.junit.Assert
+import org.junit.Test
+
+/**
+ * Tests {@link Coalescer}.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-20
+ * @version $Id$
+ * @since 0.0.1
+ */
+class CoalescerTest {
+
+	@Test
+	def void additionAndRemoval() {
+		val changes = #[
+			this.change("model", "Credential:a", false),
+			this.change("model", "Credential:b", false),
+			this.change("model", "Credential:a", true),
+			this.change("other", "Credential:b", true)
+		]
+		val result = new Coalescer().coalesce(changes)
+		Assert.assertEquals(#[changes.get(1), changes.get(3)], result)
+	}
+
+	@Test
+	def void removalAndAddition() {
+		val changes = #[
+			this.change("model", "Image:a", true),
+			this.change("model", "Image:a", false),
+			this.change("model", "Image:a", false)
+		]
+		val result = new Coalescer().coalesce(changes)
+		Assert.assertEquals(changes.subList(0, 2), result)
+	}
+
+	@Test
+	def void repeatedAddition() {
+		val changes = #[
+			this.change("model", "Image:a", false),
+			this.change("model", "Image:a", false),
+			this.change("model", "Image:a", true),
+			this.change("model", "Image:a", false)
+		]
+		val result = new Coalescer().coalesce(changes)
+		Assert.assertEquals(#[changes.get(3)], result)
+	}
+
+	def private change(String model, String key, boolean removal) {
+		val type = if (removal)
+				InfrastructureModelOp.REMOVE_RESOURCE
+			else
+				InfrastructureModelOp.ADD_RESOURCE
+		new Change(model, key, removal, new Command(type, newHashMap, key))
+	}
+}
@@ -215,4 +215,25 @@ class OpenStackEventTest {
 		}
 		Assert.assertNotNull(event)
 	}
+
+	@Test
+	def listenerParsing() {
+		val wrapped = '''
+		{
+			"oslo.message": "{\"event_type\": \"image.delete\", \"payload\": {\"name\": \"demo\"}}",
+			"oslo.version": "2.0"
+		}'''
+		val plain = '''
+		{
+			"event_type": "security_group.delete.end",
+			"payload": {
+				"security_group_id": "bb78c754-085b-49f0-850a-bea14a14e6e6"
+			}
+		}'''
+		val e1 = OpenStackListener.parse(wrapped.bytes)
+		val e2 = OpenStackListener.parse(plain.bytes)
+		Assert.assertEquals("image.delete", e1.eventType)
+		Assert.assertEquals("demo", e1.payload.get("name").asText)
+		Assert.assertEquals("security_group.delete.end", e2.eventType)
+	}
 }
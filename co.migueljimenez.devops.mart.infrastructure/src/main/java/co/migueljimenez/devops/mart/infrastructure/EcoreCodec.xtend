@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.mart.infrastructure
+
+import com.rigiresearch.lcastane.framework.EcoreMART.Format
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.util.Collection
+import java.util.List
+import org.eclipse.emf.common.util.URI
+import org.eclipse.emf.ecore.EObject
+import org.eclipse.emf.ecore.resource.Resource
+import org.eclipse.emf.ecore.resource.impl.BinaryResourceImpl
+import org.eclipse.emf.ecore.util.EcoreUtil
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl
+
+/**
+ * Serializes and deserializes Ecore objects in a given {@link Format}. The
+ * corresponding Ecore packages are expected to be initialized already.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-21
+ * @version $Id$
+ * @since 0.0.1
+ */
+class EcoreCodec {
+
+	/**
+	 * The serialization format.
+	 */
+	val Format format
+
+	/**
+	 * Default constructor.
+	 * @param format The serialization format
+	 */
+	new(Format format) {
+		this.format = format
+	}
+
+	/**
+	 * Serializes the given objects. A copy of the objects is added to a new
+	 * resource, thus the objects remain in their own resource.
+	 * @param eObjects The objects to serialize
+	 * @return The serialized objects
+	 */
+	def byte[] encode(Collection<? extends EObject> eObjects) {
+		val resource = this.resource
+		resource.contents.addAll(EcoreUtil.copyAll(eObjects))
+		val stream = new ByteArrayOutputStream
+		resource.save(stream, this.options)
+		stream.toByteArray
+	}
+
+	/**
+	 * Loads the objects serialized in the given bytes.
+	 * @param bytes The serialized objects
+	 * @return The root objects
+	 */
+	def List<EObject> decode(byte[] bytes) {
+		val resource = this.resource
+		resource.load(new ByteArrayInputStream(bytes), this.options)
+		resource.contents
+	}
+
+	/**
+	 * Creates an empty resource for the configured format. Since the bytes
+	 * are not actually persisted to a file, a "dummy" URI is used.
+	 */
+	def private Resource resource() {
+		switch (this.format) {
+			case XMI: new XMIResourceImpl(URI.createURI("artefact.xmi"))
+			default: new BinaryResourceImpl(URI.createURI("artefact.bin"))
+		}
+	}
+
+	/**
+	 * The save and load options for the configured format.
+	 */
+	def private options() {
+		newHashMap(Resource.OPTION_ZIP -> (this.format == Format.COMPRESSED_BINARY))
+	}
+}
@@ -26,9 +26,11 @@ import co.migueljimenez.devops.infrastructure.model.SerializationParser
 import co.migueljimenez.devops.infrastructure.model.VirtualInfrastructure
 import co.migueljimenez.devops.mart.infrastructure.operations.AddResource
 import co.migueljimenez.devops.mart.infrastructure.operations.InfrastructureModelOp
+import co.migueljimenez.devops.mart.infrastructure.operations.rules.PayloadValidation
 import co.migueljimenez.devops.mart.infrastructure.operations.rules.TypesValidation
 import com.rigiresearch.lcastane.framework.Artefact
 import com.rigiresearch.lcastane.framework.Command
+import com.rigiresearch.lcastane.framework.EcoreMART.Format
 import com.rigiresearch.lcastane.framework.Operation
 import com.rigiresearch.lcastane.framework.Operation.OperationType
 import com.rigiresearch.lcastane.framework.Rule
@@ -84,8 +86,8 @@ class Infrastructure implements Artefact {
 			new AddResource(new TerraformPreprocessor)
 				.addRule(
 					Rule.Type.PRE,
-					// Ecore objects serialized as XMI
-					new TypesValidation(String)
+					// Ecore objects serialized as XMI or typed payload
+					new PayloadValidation
 				)
 		)
 		this.operations.put(
@@ -114,6 +116,13 @@ class Infrastructure implements Artefact {
 		this.serializationParser.asXml(this.model)
 	}
 
+	/**
+	 * Serialize the Ecore model decorated by this artefact in the given format.
+	 */
+	def byte[] serialize(Format format) {
+		new EcoreCodec(format).encode(#[this.model])
+	}
+
 	override apply(Command command) throws ValidationException {
 		this.operations
             .get(command.operationType)
@@ -21,17 +21,22 @@
  */
 package co.migueljimenez.devops.mart.infrastructure
 
+import co.migueljimenez.devops.hcl.model.Specification
 import co.migueljimenez.devops.infrastructure.model.VirtualInfrastructure
 import co.migueljimenez.devops.infrastructure.model.impl.ModelPackageImpl
 import co.migueljimenez.devops.mart.infrastructure.terraform.TerraformSpecification
+import co.migueljimenez.devops.mart.infrastructure.validation.ChangeRecorder
 import co.migueljimenez.devops.transformation.Hcl2Infrastructure
-import co.migueljimenez.devops.transformation.Hcl2Text
 import co.migueljimenez.devops.transformation.Infrastructure2Hcl
+import co.migueljimenez.devops.transformation.Infrastructure2Text
 import co.migueljimenez.devops.transformation.Text2Hcl
+import co.migueljimenez.terraform.parsing.ValidationLevel
 import com.rigiresearch.lcastane.framework.EcoreMART
+import com.rigiresearch.lcastane.framework.EcoreMART.Format
 import com.rigiresearch.lcastane.framework.Rule
 import com.rigiresearch.lcastane.framework.impl.AbstractMART
 import com.rigiresearch.lcastane.framework.impl.FileSpecification
+import com.rigiresearch.lcastane.framework.impl.Fingerprints
 import com.rigiresearch.lcastane.framework.impl.GithubSpecification
 import org.slf4j.LoggerFactory
 
@@ -60,9 +65,33 @@ class InfrastructureMart extends AbstractMART<GithubSpecification, Infrastructur
 	val Infrastructure2Hcl hclParser
 
 	/**
-	 * HCL to text parser.
+	 * Infrastructure to text parser. It keeps the text of each model element
+	 * so that only the changed elements are translated on each update.
 	 */
-	val Hcl2Text textParser
+	var Infrastructure2Text textParser
+
+	/**
+	 * The HCL specification the artefact was last synchronized with, or
+	 * {@code null} if it must be computed from the artefact.
+	 */
+	var Specification baseline
+
+	/**
+	 * The number of modifications of the artefact's model (see
+	 * {@link Infrastructure2Text#getModifications()}) when it was last
+	 * synchronized with the specification, or -1 if unknown.
+	 */
+	var long synchronizedModifications = -1
+
+	/**
+	 * The format in which the artefact is exported.
+	 */
+	var Format format = Format.BINARY
+
+	/**
+	 * Records the model elements changed since the last validation.
+	 */
+	val ChangeRecorder changes = new ChangeRecorder
 
 	/**
      * Primary constructor.
@@ -76,7 +105,6 @@ class InfrastructureMart extends AbstractMART<GithubSpecification, Infrastructur
 		super(new GithubSpecification(template, true), infrastructure, validations)
 		this.infrastructureParser = new Hcl2Infrastructure
 		this.hclParser = new Infrastructure2Hcl
-		this.textParser = new Hcl2Text
 		this.configureSync()
 	}
 
@@ -90,7 +118,7 @@ class InfrastructureMart extends AbstractMART<GithubSpecification, Infrastructur
 		this.logger.info(
 			"Triggering synthetic update to synchronize the artefact and the specification"
 		)
-		this.update(this.specification, <String, Object>newHashMap)
+		this.propagate(this.specification, <String, Object>newHashMap).join
 	}
 
 	/**
@@ -104,13 +132,13 @@ class InfrastructureMart extends AbstractMART<GithubSpecification, Infrastructur
 		this.logger.info(
 			"Triggering synthetic update to synchronize the local specification file"
 		)
-		this.update(
+		this.propagate(
 			this.artefact,
 			<String, Object>newHashMap(
 				"author" -> "Infrastructure-MART",
 				"email" -> "Infrastructure-MART@PrIMoR"
 			)
-		)
+		).join
 	}
 
 	/**
@@ -120,11 +148,44 @@ class InfrastructureMart extends AbstractMART<GithubSpecification, Infrastructur
 		this(template as FileSpecification, infrastructure)
 	}
 
+	/**
+	 * Sets the format in which the artefact is exported.
+	 * @param format The serialization format
+	 * @return This MART
+	 */
+	def format(Format format) {
+		this.format = format
+		this
+	}
+
+	/**
+	 * Only the model elements changed since the last validation are validated
+	 * again.
+	 */
+	override protected changed() {
+		synchronized (this.artefact.origin) {
+			this.changes.drain(this.artefact.origin.model)
+		}
+	}
+
+	/**
+	 * The specification file is taken as synchronized with the artefact.
+	 */
+	override protected void assumeSpecificationSynchronized() {
+		this.specificationSynchronized(
+			Fingerprints.text(this.specification.origin.origin.contentsView)
+		)
+	}
+
 	override export() {
 		this.specification.origin.origin.mart = null
+		val serializedArtefact = synchronized (this.artefact.origin) {
+			this.artefact.origin.serialize(this.format)
+		}
 		new EcoreMART.Default(
 			this.specification.origin.origin,
-			this.artefact.origin.serialize,
+			serializedArtefact,
+			this.format,
 			ModelPackageImpl.canonicalName,
 			VirtualInfrastructure.canonicalName,
 			Infrastructure.canonicalName,
@@ -134,22 +195,83 @@ class InfrastructureMart extends AbstractMART<GithubSpecification, Infrastructur
 
 	/**
 	 * Sets the procedures to update both artefact and specification in case
-	 * any of them changes.
+	 * any of them changes. The procedures run in the background, thus the
+	 * model is only read and written while holding the artefact's monitor.
+	 * Propagations that would not change anything (i.e., the model was not
+	 * modified and the text's fingerprint is the same as in the last
+	 * synchronization) are skipped, avoiding the file, git and Terraform
+	 * updates. The model's modifications are counted as they happen, thus it
+	 * is not serialized to find out whether it changed. The synchronization
+	 * state is recorded only once the propagation succeeds.
 	 */
 	def private void configureSync() {
 		// Use the non-observable elements to avoid infinite update loop
 		super.updateSpecification = [ context |
-			this.specification.origin.update(
-				this.textParser.source(
-					this.hclParser.specification(this.artefact.origin.model)
-				),
-				context
+			val snapshot = synchronized (this.artefact.origin) {
+				val translator = this.translator
+				if (translator.modifications == this.synchronizedModifications) {
+					this.skip("the artefact did not change")
+					return
+				}
+				translator.modifications -> translator.source
+			}
+			val modifications = snapshot.key
+			val source = snapshot.value
+			val file = this.specification.origin.origin.file
+			val specificationFingerprint = Fingerprints.text(source)
+			if (!this.specificationChanged(specificationFingerprint)
+				&& !TerraformSpecification.hasPendingCommands(file)) {
+				this.synchronizedModifications = modifications
+				this.skip("the specification did not change")
+				return
+			}
+			this.baseline = null
+			this.specification.origin.update(source, context)
+			this.specificationSynchronized(specificationFingerprint)
+			this.synchronizedModifications = modifications
+			this.logger.info(
+				'''Specification synchronized: «this.textParser.translated» elements translated'''
 			)
 		]
 		super.updateArtefact = [ context |
-			this.artefact.origin.model = this.infrastructureParser.model(
-				new Text2Hcl(this.specification.contents).model
-			)
+			// The cached contents are read only if the file changed
+			val contents = this.specification.origin.origin.contentsView
+			val specificationFingerprint = Fingerprints.text(contents)
+			if (!this.specificationChanged(specificationFingerprint)) {
+				this.skip("the specification did not change")
+				return
+			}
+			// Only the resources that changed since the last synchronization
+			// are translated again. References are resolved (and checked)
+			// during the translation, so the parser skips that validation
+			val current = new Text2Hcl(contents, ValidationLevel.CHEAP).model
+			val report = synchronized (this.artefact.origin) {
+				val model = this.artefact.origin.model
+				val previous = if (this.baseline !== null)
+						this.baseline
+					else
+						this.hclParser.specification(model)
+				val r = this.infrastructureParser.update(model, previous, current)
+				this.synchronizedModifications = this.translator.modifications
+				r
+			}
+			this.specificationSynchronized(specificationFingerprint)
+			this.baseline = current
+			this.logger.info('''Artefact synchronized: «report»''')
 		]
 	}
+
+	/**
+	 * Returns the text translator of the artefact's model, creating it if the
+	 * model was replaced. The artefact's monitor is supposed to be held.
+	 */
+	def private Infrastructure2Text translator() {
+		val model = this.artefact.origin.model
+		if (this.textParser === null || this.textParser.model !== model) {
+			this.textParser?.dispose
+			this.textParser = new Infrastructure2Text(model)
+			this.synchronizedModifications = -1
+		}
+		this.textParser
+	}
 }
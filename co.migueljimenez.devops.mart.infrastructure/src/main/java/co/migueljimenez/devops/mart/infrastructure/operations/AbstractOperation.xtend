@@ -25,6 +25,7 @@ import co.migueljimenez.devops.mart.infrastructure.Infrastructure
 import co.migueljimenez.devops.mart.infrastructure.InfrastructureMart
 import com.rigiresearch.lcastane.framework.Operation
 import com.rigiresearch.lcastane.framework.Rule
+import com.rigiresearch.lcastane.framework.validation.RuleEngine
 import com.rigiresearch.lcastane.framework.validation.ValidationException
 import java.util.List
 import java.util.Map
@@ -43,6 +44,11 @@ abstract class AbstractOperation implements Operation<Infrastructure> {
      */
     val Map<Rule.Type, List<Rule<Infrastructure>>> rules
 
+	/**
+	 * Evaluates this operation's validation rules, per type.
+	 */
+	val Map<Rule.Type, RuleEngine<Infrastructure>> engines
+
 	/**
 	 * This operation's type.
 	 */
@@ -51,6 +57,7 @@ abstract class AbstractOperation implements Operation<Infrastructure> {
 	new(OperationType operationType) {
 		this.operationType = operationType
 		this.rules = newHashMap
+		this.engines = newHashMap
 	}
 
 	/**
@@ -60,14 +67,15 @@ abstract class AbstractOperation implements Operation<Infrastructure> {
 		if (!this.rules.containsKey(type))
 			this.rules.put(type, newArrayList)
 		this.rules.get(type).add(rule)
+		this.engines.put(type, new RuleEngine<Infrastructure>(this.rules.get(type)))
 		return this
 	}
 
 	override apply(Infrastructure artefact, Object... operands)
 		throws ValidationException {
-		runRules(this.rules.get(Rule.Type.PRE), artefact, operands)
+		runRules(this.engines.get(Rule.Type.PRE), artefact, operands)
         this.applyOp(artefact, operands)
-        runRules(this.rules.get(Rule.Type.POST), artefact, operands)
+        runRules(this.engines.get(Rule.Type.POST), artefact, operands)
 	}
 
 	override type() {
@@ -84,19 +92,19 @@ abstract class AbstractOperation implements Operation<Infrastructure> {
 		Object... arguments) throws ValidationException
 
 	/**
-	 * Executes the specified set of rules.
-	 * @param rules The list of rules to run
+	 * Executes the specified set of rules, stopping at the first failing one.
+	 * @param rules The rules to run
 	 * @param artefact The artefact
 	 * @param arguments This operation's arguments
      * @throws ValidationException If there is at least one failing rule
 	 */
-	def private void runRules(List<Rule<Infrastructure>> rules,
+	def private void runRules(RuleEngine<Infrastructure> rules,
 		Infrastructure artefact, Object... arguments)
 			throws ValidationException {
-		if (rules === null || rules.empty)
+		if (rules === null)
 			return;
-		val filtered = rules.filter[rule|!rule.apply(artefact, arguments)]
-            if (!filtered.empty)
-                throw new ValidationException(artefact, this, filtered.get(0))
+		val failure = rules.evaluate(artefact, arguments)
+		if (failure.present)
+			throw new ValidationException(artefact, this, failure.get)
     }
 }
@@ -23,6 +23,9 @@ package co.migueljimenez.devops.mart.infrastructure.operations
 
 import co.migueljimenez.devops.infrastructure.model.Credential
 import co.migueljimenez.devops.infrastructure.model.Image
+import co.migueljimenez.devops.infrastructure.model.ModelIndex
+import co.migueljimenez.devops.infrastructure.model.ModelPackage
+import co.migueljimenez.devops.infrastructure.model.PayloadCodec
 import co.migueljimenez.devops.infrastructure.model.SecurityGroup
 import co.migueljimenez.devops.infrastructure.model.SerializationParser
 import co.migueljimenez.devops.mart.infrastructure.Infrastructure
@@ -31,6 +34,7 @@ import com.rigiresearch.lcastane.framework.impl.FileSpecification
 import com.rigiresearch.lcastane.framework.impl.GithubSpecification
 import com.rigiresearch.lcastane.framework.impl.ObservableSpecification
 import com.rigiresearch.lcastane.framework.validation.ValidationException
+import org.eclipse.emf.ecore.EClass
 import org.eclipse.emf.ecore.EObject
 import org.slf4j.LoggerFactory
 
@@ -53,6 +57,11 @@ class AddResource extends AbstractOperation {
 	 */
 	val SerializationParser serializationParser
 
+	/**
+	 * A codec to deserialize typed payloads.
+	 */
+	val PayloadCodec payloadCodec
+
 	/**
 	 * Notation-specific preprocessor.
 	 */
@@ -64,6 +73,7 @@ class AddResource extends AbstractOperation {
 	new(SpecificationPreprocessor preprocessor) {
 		super(InfrastructureModelOp.ADD_RESOURCE)
 		this.serializationParser = new SerializationParser
+		this.payloadCodec = new PayloadCodec
 		this.preprocessor = preprocessor
 	}
 
@@ -76,11 +86,13 @@ class AddResource extends AbstractOperation {
 
 	override protected applyOp(Infrastructure infrastructure,
 		Object... arguments) throws ValidationException {
-		// arguments: Ecore model XML
-		val xml = arguments.get(0) as String
-		val objects = this.serializationParser.asEObjects(xml)
-		// FIXME assume there's only one object while I fix the ConcurrentModificationException
-		val o = objects.get(0)
+		// arguments: typed payload or Ecore model XML
+		val argument = arguments.get(0)
+		val o = if (argument instanceof byte[])
+				this.payloadCodec.decode(argument as byte[])
+			else
+				// FIXME assume there's only one object while I fix the ConcurrentModificationException
+				this.serializationParser.asEObjects(argument as String).get(0)
 		switch (o) {
 			Credential:
 				infrastructure.add(o)
@@ -97,7 +109,7 @@ class AddResource extends AbstractOperation {
 	 * Add a {@link Credential} to the given project.
 	 */
 	def private add(Infrastructure infrastructure, Credential eObject) {
-		if (infrastructure.model.credentials.exists[c|c.name.equals(eObject.name)]) {
+		if (infrastructure.exists(ModelPackage.Literals.CREDENTIAL, eObject.name)) {
 			this.logger.error('''Credential "«eObject.name»" not added because it already exists''')
 			return
 		}
@@ -111,7 +123,7 @@ class AddResource extends AbstractOperation {
 	 * Adds a {@link SecurityGroup} to the given project.
 	 */
 	def private add(Infrastructure infrastructure, SecurityGroup eObject) {
-		if (infrastructure.model.securityGroups.exists[s|eObject.name.equals(s.name)]) {
+		if (infrastructure.exists(ModelPackage.Literals.SECURITY_GROUP, eObject.name)) {
 			this.logger.error('''Security Group "«eObject.name»" not added because it already exists''')
 			return
 		}
@@ -125,7 +137,7 @@ class AddResource extends AbstractOperation {
 	 * Adds an {@link Image} to the given project.
 	 */
 	def private add(Infrastructure infrastructure, Image eObject) {
-		if (infrastructure.model.images.exists[i|eObject.name.equals(i.name)]) {
+		if (infrastructure.exists(ModelPackage.Literals.IMAGE, eObject.name)) {
 			this.logger.error('''Image "«eObject.name»" not added because it already exists''')
 			return
 		}
@@ -135,6 +147,14 @@ class AddResource extends AbstractOperation {
 		eObject.project = infrastructure.model
 	}
 
+	/**
+	 * Whether the given project contains an element of the given class and
+	 * name.
+	 */
+	def private exists(Infrastructure infrastructure, EClass eClass, String name) {
+		ModelIndex.of(infrastructure.model).named(eClass, name) !== null
+	}
+
 	def private Specification getFileSpec(Specification spec) {
 		switch (spec) {
 			ObservableSpecification<?>: {
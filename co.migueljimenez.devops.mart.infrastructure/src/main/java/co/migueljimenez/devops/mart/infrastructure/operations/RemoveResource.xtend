@@ -31,6 +31,8 @@ import com.rigiresearch.lcastane.framework.impl.FileSpecification
 import co.migueljimenez.devops.mart.infrastructure.terraform.TerraformSpecification
 import co.migueljimenez.devops.infrastructure.model.Credential
 import co.migueljimenez.devops.infrastructure.model.Image
+import co.migueljimenez.devops.infrastructure.model.ModelIndex
+import co.migueljimenez.devops.infrastructure.model.ModelPackage
 import org.eclipse.emf.ecore.EObject
 import co.migueljimenez.devops.infrastructure.model.SecurityGroup
 import org.slf4j.LoggerFactory
@@ -61,6 +63,7 @@ class RemoveResource extends AbstractOperation {
 		// Arguments: the element's name, the element's type
 		val name = arguments.get(0) as String
 		val type = arguments.get(1) as String
+		val index = ModelIndex.of(infrastructure.model)
 		var EObject eObject = null
 		val commands = newArrayList
 		// FIXME move this terraform-specific code somewhere else
@@ -68,18 +71,18 @@ class RemoveResource extends AbstractOperation {
 			case Credential.canonicalName: {
 				// Credentials may be associated with instances, however, OpenStack
 				// won't remove the credential if such link exists.
-				eObject = infrastructure.model.credentials.findFirst[c|name.equals(c.name)]
+				eObject = index.named(ModelPackage.Literals.CREDENTIAL, name)
 				commands.add('''terraform state rm openstack_compute_keypair_v2.«name»''')
 				commands.add('''rm -f .keys/«name».pem''')
 			}
 			case Image.canonicalName: {
-				eObject = infrastructure.model.images.findFirst[i|name.equals(i.name)]
+				eObject = index.named(ModelPackage.Literals.IMAGE, name)
 				commands.add('''terraform state rm openstack_images_image_v2.«name»''')
 			}
 			case SecurityGroup.canonicalName: {
 				// We have to use the id to find the group, as the name is not available anymore
 				// i.e., name is actually the id
-				eObject = infrastructure.model.securityGroups.findFirst[s|name.equals(s.id)]
+				eObject = index.identified(ModelPackage.Literals.SECURITY_GROUP, name)
 				if (eObject !== null)
 					commands.add('''terraform state rm openstack_compute_secgroup_v2.«(eObject as SecurityGroup).name»''')
 			}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.mart.infrastructure.terraform
+
+import com.rigiresearch.lcastane.framework.impl.LatencyTimer
+import java.io.BufferedReader
+import java.io.File
+import java.io.InputStream
+import java.io.InputStreamReader
+import java.nio.charset.StandardCharsets
+import java.util.List
+import java.util.Map
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import org.eclipse.xtend.lib.annotations.Data
+import org.slf4j.LoggerFactory
+
+/**
+ * Executes external commands. Commands submitted for the same working
+ * directory run one at a time, in submission order, whereas commands for
+ * different directories run in parallel. The standard and error outputs are
+ * read while the process runs, so that a process never blocks on a full
+ * pipe, and processes exceeding the timeout are killed.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-25
+ * @version $Id$
+ * @since 0.0.1
+ */
+class ProcessExecutor {
+
+	/**
+	 * The logger.
+	 */
+	val logger = LoggerFactory.getLogger(ProcessExecutor)
+
+	/**
+	 * The threads waiting for the processes.
+	 */
+	val ExecutorService workers
+
+	/**
+	 * The threads reading the output of the processes.
+	 */
+	val ExecutorService streams
+
+	/**
+	 * The maximum duration of a command, in milliseconds.
+	 */
+	val long timeout
+
+	/**
+	 * The last task submitted for each working directory.
+	 */
+	val Map<File, CompletableFuture<List<Execution>>> tails
+
+	/**
+	 * The duration of each kind of command (e.g., "terraform fmt").
+	 */
+	val Map<String, LatencyTimer> timers
+
+	/**
+	 * Default constructor.
+	 * @param workers The maximum number of commands running in parallel
+	 * @param timeout The maximum duration of a command, in milliseconds
+	 */
+	new(int workers, long timeout) {
+		this.workers = Executors.newFixedThreadPool(workers, this.factory("process-worker"))
+		this.streams = Executors.newCachedThreadPool(this.factory("process-stream"))
+		this.timeout = timeout
+		this.tails = new ConcurrentHashMap
+		this.timers = new ConcurrentHashMap
+	}
+
+	/**
+	 * Schedules the given commands. They run in order, after the commands
+	 * previously submitted for the same directory, regardless of whether
+	 * those succeeded.
+	 * @param directory The working directory
+	 * @param environment The environment variables, as "name=value"
+	 * @param commands The commands to execute
+	 * @return A future completed once the commands have been executed
+	 */
+	def CompletableFuture<List<Execution>> submit(File directory,
+		List<String> environment, List<String> commands) {
+		this.tails.compute(directory) [ d, tail |
+			val previous = if (tail === null)
+					CompletableFuture.<List<Execution>>completedFuture(null)
+				else
+					tail.exceptionally[null]
+			previous.thenApplyAsync([
+				commands.map[c|this.run(directory, environment, c)].toList
+			], this.workers)
+		]
+	}
+
+	/**
+	 * The duration of the given kind of command.
+	 * @param command The command, or its first two words (e.g., "terraform fmt")
+	 * @return A timer, or {@code null} if no such command has been executed
+	 */
+	def LatencyTimer timer(String command) {
+		this.timers.get(this.kind(command))
+	}
+
+	/**
+	 * Executes a command and waits for it to finish.
+	 */
+	def private Execution run(File directory, List<String> environment,
+		String command) {
+		val begin = System.nanoTime
+		val process = Runtime.runtime.exec(command, environment, directory)
+		process.outputStream.close
+		val output = CompletableFuture.supplyAsync([this.read(process.inputStream)], this.streams)
+		val error = CompletableFuture.supplyAsync([this.read(process.errorStream)], this.streams)
+		val finished = process.waitFor(this.timeout, TimeUnit.MILLISECONDS)
+		if (!finished)
+			process.destroyForcibly.waitFor
+		val timer = this.timers.computeIfAbsent(this.kind(command))[new LatencyTimer]
+		val execution = new Execution(
+			command,
+			if (finished) process.exitValue else -1,
+			output.join,
+			error.join,
+			!finished,
+			timer.record(begin)
+		)
+		this.logger.info(
+			'''Executed "«command»" in «execution.duration / 1000000» ms (dir: «directory», «this.kind(command)»: «timer»)'''
+		)
+		execution
+	}
+
+	/**
+	 * Reads the given stream until it is closed, decoding it as UTF-8
+	 * regardless of the platform's default charset.
+	 */
+	def private String read(InputStream stream) {
+		val builder = new StringBuilder
+		val reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))
+		try {
+			var line = reader.readLine
+			while (line !== null) {
+				builder.append(line).append(System.lineSeparator)
+				line = reader.readLine
+			}
+		} finally {
+			reader.close
+		}
+		builder.toString
+	}
+
+	/**
+	 * The kind of the given command, that is, its first two words.
+	 */
+	def private String kind(String command) {
+		command.trim.split("\\s+").take(2).join(" ")
+	}
+
+	/**
+	 * Creates daemon threads with the given name prefix.
+	 */
+	def private ThreadFactory factory(String name) {
+		val count = new AtomicInteger
+		return [ Runnable runnable |
+			val thread = new Thread(runnable, '''«name»-«count.incrementAndGet»'''.toString)
+			thread.daemon = true
+			thread
+		]
+	}
+
+	/**
+	 * The result of a command.
+	 * @author Miguel Jimenez (miguel@uvic.ca)
+	 * @date 2018-07-25
+	 * @version $Id$
+	 * @since 0.0.1
+	 */
+	@Data
+	static class Execution {
+
+		/**
+		 * The executed command.
+		 */
+		String command
+
+		/**
+		 * The exit value, or -1 if the command timed out.
+		 */
+		int exitValue
+
+		/**
+		 * The standard output.
+		 */
+		String output
+
+		/**
+		 * The error output.
+		 */
+		String error
+
+		/**
+		 * Whether the command was killed because it exceeded the timeout.
+		 */
+		boolean timedOut
+
+		/**
+		 * The duration of the command, in nanoseconds.
+		 */
+		long duration
+
+		/**
+		 * Whether the command finished successfully.
+		 */
+		def boolean succeeded() {
+			!this.timedOut && this.exitValue == 0
+		}
+	}
+}
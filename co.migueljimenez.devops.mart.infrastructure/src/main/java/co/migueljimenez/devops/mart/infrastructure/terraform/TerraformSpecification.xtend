@@ -23,10 +23,9 @@ package co.migueljimenez.devops.mart.infrastructure.terraform
 
 import com.rigiresearch.lcastane.framework.impl.FileSpecification
 import java.io.File
-import java.io.InputStream
 import java.util.List
 import java.util.Map
-import java.util.Scanner
+import java.util.concurrent.ConcurrentHashMap
 import org.apache.commons.configuration2.builder.fluent.Configurations
 import org.slf4j.LoggerFactory
 
@@ -48,12 +47,18 @@ class TerraformSpecification extends FileSpecification {
 	/**
 	 * Pending commands per model (specification file).
 	 */
-	val static Map<File, List<String>> COMMANDS = newHashMap
+	val static Map<File, List<String>> COMMANDS = new ConcurrentHashMap
+
+	/**
+	 * Executes Terraform commands. Commands on the same working directory run
+	 * one at a time, whereas different directories are processed in parallel.
+	 */
+	val static ProcessExecutor EXECUTOR = TerraformSpecification.executor
 
 	/**
 	 * The environment variables to execute Terraform commands.
 	 */
-	val List<String> environment = newArrayList
+	val static List<String> ENVIRONMENT = TerraformSpecification.environment
 
 	/**
 	 * Default constructor.
@@ -75,12 +80,8 @@ class TerraformSpecification extends FileSpecification {
 	}
 
 	def private initialise() {
-		if (!COMMANDS.containsKey(this.file)) {
-			COMMANDS.put(this.file, newArrayList)
-			val osConf = new Configurations().properties("openstack.properties")
-			osConf.keys.forEach[k|this.environment.add('''«k»=«osConf.getString(k)»''')]
-			this.environment.addAll(System.getenv.entrySet.map[e|'''«e.key»=«e.value»'''])
-			this.execute("terraform init -input=false")
+		if (COMMANDS.putIfAbsent(this.file, <String>newArrayList) === null) {
+			this.execute(#["terraform init -input=false"])
 		}
 	}
 
@@ -91,39 +92,67 @@ class TerraformSpecification extends FileSpecification {
 	override void update(String contents, Map<String, Object> data) {
 		super.update(contents, data)
 		this.initialise
-		this.execute("terraform fmt -write=true")
 		val commands = TerraformSpecification.COMMANDS.get(this.file)
-		synchronized(commands) {
-			commands.forEach[c|this.execute(c)]
+		val pending = synchronized (commands) {
+			val copy = newArrayList(commands)
 			commands.clear
+			copy
 		}
+		this.execute((#["terraform fmt -write=true"] + pending).toList)
 	}
 
-	def private execute(String terraformCommand) {
-		val process = Runtime.runtime.exec(
-			terraformCommand,
-			this.environment,
-			this.file.parentFile
-		)
-		process.waitFor
-		this.logger.info('''Executed "«terraformCommand»" (dir: «this.file.parentFile»)''')
-		if (process.exitValue != 0)
-			this.logger.error(
-				'''Exit value is «process.exitValue». Error output is: «process.errorStream.convertToString»'''
-			)
+	/**
+	 * Executes the given commands on the specification's directory and waits
+	 * for them to finish.
+	 */
+	def private execute(List<String> terraformCommands) {
+		val directory = this.file.absoluteFile.parentFile
+		EXECUTOR.submit(directory, ENVIRONMENT, terraformCommands).join.forEach [ e |
+			if (e.timedOut)
+				this.logger.error('''"«e.command»" timed out (dir: «directory»)''')
+			else if (e.exitValue != 0)
+				this.logger.error(
+					'''"«e.command»" exit value is «e.exitValue». Error output is: «e.error»'''
+				)
+		]
+	}
+
+	/**
+	 * Whether there are commands waiting for the given specification file to
+	 * be updated.
+	 */
+	def static hasPendingCommands(File specificationFile) {
+		val commands = COMMANDS.get(specificationFile)
+		if (commands === null)
+			return false
+		synchronized (commands) {
+			!commands.empty
+		}
 	}
 
 	def static deferCommand(File specificationFile, String command) {
-		if (!COMMANDS.containsKey(specificationFile))
-			COMMANDS.put(specificationFile, newArrayList)
-		COMMANDS.get(specificationFile).add(command)
+		val commands = COMMANDS.computeIfAbsent(specificationFile, [f|<String>newArrayList])
+		synchronized (commands) {
+			commands.add(command)
+		}
+	}
+
+	/**
+	 * Creates the executor according to the Terraform configuration.
+	 */
+	def private static executor() {
+		val config = new Configurations().properties("terraform.properties")
+		new ProcessExecutor(config.getInt("workers"), config.getLong("timeout"))
 	}
 
-	def String convertToString(InputStream is) {
-	    val s = new Scanner(is).useDelimiter("\\A")
-	    if (s.hasNext())
-	    	s.next
-	    else
-	    	""
+	/**
+	 * The OpenStack configuration and the current environment variables.
+	 */
+	def private static environment() {
+		val osConf = new Configurations().properties("openstack.properties")
+		val environment = <String>newArrayList
+		osConf.keys.forEach[k|environment.add('''«k»=«osConf.getString(k)»''')]
+		environment.addAll(System.getenv.entrySet.map[e|'''«e.key»=«e.value»'''.toString])
+		environment
 	}
 }
@@ -50,7 +50,8 @@ class AnyOf implements Rule<Infrastructure> {
 	}
 
 	override apply(Infrastructure artefact, Object... arguments) {
-		this.rules.map[r|r.apply(artefact, arguments)].findFirst[b|b]
+		// Stops at the first successful alternative
+		this.rules.exists[r|r.apply(artefact, arguments)]
 	}
 
 	override errorMessage() '''None of the alternative rules was successful'''
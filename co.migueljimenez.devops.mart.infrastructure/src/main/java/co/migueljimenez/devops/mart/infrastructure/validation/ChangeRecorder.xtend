@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.mart.infrastructure.validation
+
+import co.migueljimenez.devops.infrastructure.model.VirtualInfrastructure
+import java.util.Collection
+import java.util.Collections
+import java.util.IdentityHashMap
+import java.util.Set
+import org.eclipse.emf.common.notify.Notification
+import org.eclipse.emf.ecore.EObject
+import org.eclipse.emf.ecore.util.EContentAdapter
+
+/**
+ * Records the elements of a {@link VirtualInfrastructure} that change
+ * between validations: the notifiers of changes and the elements added to
+ * the model. It is attached to the model as a content adapter.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-26
+ * @version $Id$
+ * @since 0.0.1
+ */
+class ChangeRecorder extends EContentAdapter {
+
+	/**
+	 * The changed elements since the last time they were drained.
+	 */
+	val Set<Object> changed = Collections.newSetFromMap(new IdentityHashMap)
+
+	/**
+	 * The model being recorded.
+	 */
+	var VirtualInfrastructure model
+
+	/**
+	 * Returns the elements that changed since the last call, and starts
+	 * recording the given model if it is not being recorded already.
+	 * @param model The model
+	 * @return The changed elements, or {@code null} if the model was not
+	 *  being recorded
+	 */
+	def synchronized Collection<Object> drain(VirtualInfrastructure model) {
+		if (this.model !== model) {
+			this.model?.eAdapters?.remove(this)
+			this.model = model
+			model.eAdapters.add(this)
+			this.changed.clear
+			return null
+		}
+		val copy = newArrayList(this.changed)
+		this.changed.clear
+		copy
+	}
+
+	override notifyChanged(Notification notification) {
+		super.notifyChanged(notification)
+		if (notification.touch || notification.eventType == Notification.REMOVING_ADAPTER)
+			return;
+		synchronized (this) {
+			this.changed.add(notification.notifier)
+			switch (notification.eventType) {
+				case Notification.ADD,
+				case Notification.SET: {
+					val value = notification.newValue
+					if (value instanceof EObject)
+						this.changed.add(value)
+				}
+				case Notification.ADD_MANY: {
+					val values = notification.newValue
+					if (values instanceof Collection<?>)
+						this.changed.addAll(values.filter(EObject).toList)
+				}
+			}
+		}
+	}
+}
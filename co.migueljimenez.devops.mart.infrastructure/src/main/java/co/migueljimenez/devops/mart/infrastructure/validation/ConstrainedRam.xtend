@@ -21,8 +21,10 @@
  */
 package co.migueljimenez.devops.mart.infrastructure.validation
 
+import co.migueljimenez.devops.infrastructure.model.Flavor
+import co.migueljimenez.devops.infrastructure.model.Instance
 import co.migueljimenez.devops.mart.infrastructure.Infrastructure
-import com.rigiresearch.lcastane.framework.Rule
+import com.rigiresearch.lcastane.framework.validation.ElementRule
 import de.xn__ho_hia.storage_unit.StorageUnit
 
 /**
@@ -32,7 +34,7 @@ import de.xn__ho_hia.storage_unit.StorageUnit
  * @version $Id$
  * @since 0.0.1
  */
-class ConstrainedRam implements Rule<Infrastructure> {
+class ConstrainedRam implements ElementRule<Infrastructure, Instance> {
 
 	/**
 	 * The maximum allowed RAM.
@@ -52,12 +54,30 @@ class ConstrainedRam implements Rule<Infrastructure> {
 		this.errorMessage = new String()
 	}
 
-	override apply(Infrastructure artefact, Object... arguments) {
-		if (artefact.model.instances === null || artefact.model.instances.empty)
+	override elementType() {
+		Instance
+	}
+
+	override Iterable<? extends Instance> elements(Infrastructure artefact) {
+		artefact.model.instances ?: #[]
+	}
+
+	override applyTo(Infrastructure artefact, Instance instance, Object... arguments) {
+		if (instance.flavor.ram.compareTo(this.maxRam) <= 0)
 			return true
-		artefact.model.instances
-			.map[i|i.flavor.ram.compareTo(this.maxRam) <= 0]
-			.reduce[b1, b2| b1 && b2]
+		this.errorMessage = '''Instance «instance.name» exceeds the allowed RAM («this.maxRam»)'''
+		false
+	}
+
+	/**
+	 * Instances are affected by changes to themselves and to their flavor.
+	 */
+	override Iterable<? extends Instance> affected(Infrastructure artefact, Object changed) {
+		switch (changed) {
+			Instance: #[changed]
+			Flavor: this.elements(artefact).filter[i|i.flavor === changed]
+			default: #[]
+		}
 	}
 
 	override errorMessage() '''«this.errorMessage»'''
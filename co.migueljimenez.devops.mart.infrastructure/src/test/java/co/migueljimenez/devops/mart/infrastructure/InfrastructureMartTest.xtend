@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.mart.infrastructure
+
+import co.migueljimenez.devops.infrastructure.model.InfrastructureModelElements
+import co.migueljimenez.devops.transformation.Infrastructure2Text
+import com.rigiresearch.lcastane.framework.impl.FileSpecification
+import de.xn__ho_hia.storage_unit.StorageUnits
+import java.io.File
+import org.junit.Assert
+import org.junit.Test
+
+/**
+ * Tests {@link InfrastructureMart}.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-26
+ * @version $Id$
+ * @since 0.0.1
+ */
+class InfrastructureMartTest {
+
+	/**
+	 * A helper to instantiate elements from the Infrastructure model.
+	 */
+	val i = new InfrastructureModelElements
+
+	@Test
+	def void noOpSyncsAreSkipped() {
+		val project = this.i.infrastructure
+		this.i.flavor("id", "small", 1, StorageUnits.gigabyte(10),
+			StorageUnits.megabyte(512), project)
+		val translator = new Infrastructure2Text(project)
+		val source = translator.source
+		translator.dispose
+		val file = File.createTempFile("template", ".tf")
+		file.deleteOnExit
+		val specification = new FileSpecification(file)
+		specification.update(source)
+		val mart = new InfrastructureMart(specification, new Infrastructure(project), #[])
+		try {
+			// The artefact translates to the same text
+			mart.resume.join
+			Assert.assertEquals(1L, mart.skippedSyncs)
+			// The artefact did not change
+			mart.propagate(mart.artefact, newHashMap).join
+			Assert.assertEquals(2L, mart.skippedSyncs)
+			// The specification changed its line separators only
+			specification.update(source.replace("\n", "\r\n"))
+			mart.propagate(mart.specification, newHashMap).join
+			Assert.assertEquals(3L, mart.skippedSyncs)
+		} finally {
+			mart.shutdown
+		}
+	}
+}
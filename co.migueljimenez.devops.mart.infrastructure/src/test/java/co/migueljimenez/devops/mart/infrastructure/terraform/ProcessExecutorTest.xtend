@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.mart.infrastructure.terraform
+
+import java.io.File
+import java.nio.file.Files
+import java.util.Collections
+import org.junit.Assert
+import org.junit.Test
+
+/**
+ * Tests {@link ProcessExecutor}. The commands are expected to be available
+ * on a Unix-like system.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-26
+ * @version $Id$
+ * @since 0.0.1
+ */
+class ProcessExecutorTest {
+
+	@Test
+	def void sameDirectoryInOrder() {
+		val executor = new ProcessExecutor(2, 10000)
+		val directory = this.directory
+		val finished = Collections.synchronizedList(newArrayList)
+		val first = executor.submit(directory, #[], #["sleep 0.5"])
+			.thenRun[finished.add("first")]
+		val second = executor.submit(directory, #[], #["true"])
+			.thenRun[finished.add("second")]
+		second.join
+		first.join
+		Assert.assertEquals(#["first", "second"], finished)
+	}
+
+	@Test
+	def void differentDirectoriesInParallel() {
+		val executor = new ProcessExecutor(2, 10000)
+		val begin = System.currentTimeMillis
+		val a = executor.submit(this.directory, #[], #["sleep 1"])
+		val b = executor.submit(this.directory, #[], #["sleep 1"])
+		Assert.assertTrue(a.join.head.succeeded)
+		Assert.assertTrue(b.join.head.succeeded)
+		Assert.assertTrue(System.currentTimeMillis - begin < 1800)
+	}
+
+	@Test
+	def void timeout() {
+		val executor = new ProcessExecutor(1, 200)
+		val directory = this.directory
+		val begin = System.currentTimeMillis
+		val execution = executor.submit(directory, #[], #["sleep 10"]).join.head
+		Assert.assertTrue(execution.timedOut)
+		Assert.assertFalse(execution.succeeded)
+		Assert.assertEquals(-1, execution.exitValue)
+		Assert.assertTrue(System.currentTimeMillis - begin < 5000)
+		// The directory is still usable
+		val next = executor.submit(directory, #[], #["true"])
+		Assert.assertTrue(next.join.head.succeeded)
+	}
+
+	@Test
+	def void largeOutput() {
+		// Larger than the pipe's buffer, so it must be read while running
+		val executor = new ProcessExecutor(1, 10000)
+		val execution = executor.submit(this.directory, #[], #["seq 1 200000"]).join.head
+		Assert.assertTrue(execution.succeeded)
+		val lines = execution.output.split(System.lineSeparator)
+		Assert.assertEquals(200000, lines.length)
+		Assert.assertEquals("200000", lines.last)
+	}
+
+	@Test
+	def void utf8Output() {
+		val executor = new ProcessExecutor(1, 10000)
+		val execution = executor.submit(this.directory, #[], #["printf \\303\\251"]).join.head
+		Assert.assertEquals("é" + System.lineSeparator, execution.output)
+	}
+
+	/**
+	 * Creates a temporary working directory.
+	 */
+	def private File directory() {
+		val directory = Files.createTempDirectory("process-executor").toFile
+		directory.deleteOnExit
+		directory
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.mart.infrastructure.validation
+
+import co.migueljimenez.devops.infrastructure.model.InfrastructureModelElements
+import de.xn__ho_hia.storage_unit.StorageUnits
+import org.eclipse.emf.ecore.util.EcoreUtil
+import org.junit.Assert
+import org.junit.Test
+
+/**
+ * Tests {@link ChangeRecorder}.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-26
+ * @version $Id$
+ * @since 0.0.1
+ */
+class ChangeRecorderTest {
+
+	/**
+	 * A helper to instantiate elements from the Infrastructure model.
+	 */
+	val i = new InfrastructureModelElements
+
+	@Test
+	def void firstDrainStartsRecording() {
+		val project = this.i.infrastructure
+		this.i.credential("keypair", "...", project)
+		val recorder = new ChangeRecorder
+		Assert.assertNull(recorder.drain(project))
+		Assert.assertTrue(recorder.drain(project).empty)
+	}
+
+	@Test
+	def void addedAndModifiedElements() {
+		val project = this.i.infrastructure
+		val recorder = new ChangeRecorder
+		recorder.drain(project)
+		val flavor = this.i.flavor("id", "small", 1, StorageUnits.gigabyte(10),
+			StorageUnits.megabyte(512), project)
+		val added = recorder.drain(project)
+		Assert.assertTrue(added.contains(flavor))
+		Assert.assertTrue(added.contains(project))
+		// The elements are drained only once
+		Assert.assertTrue(recorder.drain(project).empty)
+		flavor.ram = StorageUnits.megabyte(1024)
+		Assert.assertEquals(#[flavor], recorder.drain(project))
+	}
+
+	@Test
+	def void touchesAreIgnored() {
+		val project = this.i.infrastructure
+		val credential = this.i.credential("keypair", "...", project)
+		val recorder = new ChangeRecorder
+		recorder.drain(project)
+		credential.name = credential.name
+		Assert.assertTrue(recorder.drain(project).empty)
+		EcoreUtil.remove(credential)
+		Assert.assertEquals(#[project], recorder.drain(project))
+	}
+
+	@Test
+	def void replacedModel() {
+		val project = this.i.infrastructure
+		val credential = this.i.credential("keypair", "...", project)
+		val recorder = new ChangeRecorder
+		recorder.drain(project)
+		credential.name = "other"
+		val replacement = this.i.infrastructure
+		// The changes of the previous model are discarded
+		Assert.assertNull(recorder.drain(replacement))
+		credential.name = "another"
+		Assert.assertTrue(recorder.drain(replacement).empty)
+		Assert.assertTrue(project.eAdapters.empty)
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.mart.infrastructure.validation
+
+import co.migueljimenez.devops.infrastructure.model.InfrastructureModelElements
+import co.migueljimenez.devops.mart.infrastructure.Infrastructure
+import com.rigiresearch.lcastane.framework.validation.RuleEngine
+import de.xn__ho_hia.storage_unit.StorageUnits
+import org.junit.Assert
+import org.junit.Test
+
+/**
+ * Tests {@link ConstrainedRam}, incrementally evaluated by a
+ * {@link RuleEngine}.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-26
+ * @version $Id$
+ * @since 0.0.1
+ */
+class ConstrainedRamTest {
+
+	/**
+	 * A helper to instantiate elements from the Infrastructure model.
+	 */
+	val i = new InfrastructureModelElements
+
+	@Test
+	def void wholeArtefact() {
+		val project = this.i.infrastructure
+		val small = this.i.flavor("1", "small", 1, StorageUnits.gigabyte(10),
+			StorageUnits.megabyte(512), project)
+		val large = this.i.flavor("2", "large", 4, StorageUnits.gigabyte(40),
+			StorageUnits.gigabyte(8), project)
+		val instance = this.i.instance("3", "server", null, small, #[], #[], #[], project)
+		val rule = new ConstrainedRam(StorageUnits.gigabyte(2))
+		val artefact = new Infrastructure(project)
+		Assert.assertTrue(rule.apply(artefact))
+		instance.flavor = large
+		Assert.assertFalse(rule.apply(artefact))
+		Assert.assertTrue(rule.errorMessage.contains("server"))
+	}
+
+	@Test
+	def void affectedInstances() {
+		val project = this.i.infrastructure
+		val small = this.i.flavor("1", "small", 1, StorageUnits.gigabyte(10),
+			StorageUnits.megabyte(512), project)
+		val large = this.i.flavor("2", "large", 4, StorageUnits.gigabyte(40),
+			StorageUnits.gigabyte(8), project)
+		val a = this.i.instance("3", "a", null, small, #[], #[], #[], project)
+		val b = this.i.instance("4", "b", null, small, #[], #[], #[], project)
+		this.i.instance("5", "c", null, large, #[], #[], #[], project)
+		val rule = new ConstrainedRam(StorageUnits.gigabyte(2))
+		val artefact = new Infrastructure(project)
+		Assert.assertEquals(#[a], rule.affected(artefact, a).toList)
+		Assert.assertEquals(#[a, b], rule.affected(artefact, small).toList)
+		Assert.assertTrue(rule.affected(artefact, project).empty)
+	}
+
+	@Test
+	def void flavorChangeRechecksInstances() {
+		val project = this.i.infrastructure
+		val small = this.i.flavor("1", "small", 1, StorageUnits.gigabyte(10),
+			StorageUnits.megabyte(512), project)
+		this.i.instance("2", "server", null, small, #[], #[], #[], project)
+		val artefact = new Infrastructure(project)
+		val engine = new RuleEngine<Infrastructure>(#[new ConstrainedRam(StorageUnits.gigabyte(2))])
+		val recorder = new ChangeRecorder
+		Assert.assertFalse(engine.reevaluate(artefact, recorder.drain(project)).present)
+		small.ram = StorageUnits.gigabyte(4)
+		val changed = recorder.drain(project)
+		Assert.assertEquals(#[small], changed)
+		Assert.assertTrue(engine.reevaluate(artefact, changed).present)
+		// After a failure, the whole artefact is evaluated again
+		small.ram = StorageUnits.gigabyte(1)
+		recorder.drain(project)
+		Assert.assertFalse(engine.reevaluate(artefact, #[]).present)
+	}
+
+	@Test
+	def void unrelatedChangesAreNotChecked() {
+		val project = this.i.infrastructure
+		val large = this.i.flavor("1", "large", 4, StorageUnits.gigabyte(40),
+			StorageUnits.gigabyte(8), project)
+		val artefact = new Infrastructure(project)
+		val engine = new RuleEngine<Infrastructure>(#[new ConstrainedRam(StorageUnits.gigabyte(2))])
+		val recorder = new ChangeRecorder
+		Assert.assertFalse(engine.reevaluate(artefact, recorder.drain(project)).present)
+		this.i.instance("2", "server", null, large, #[], #[], #[], project)
+		val credential = this.i.credential("keypair", "...", project)
+		// Only the changes involving instances are checked
+		Assert.assertFalse(engine.reevaluate(artefact, #[credential]).present)
+		Assert.assertTrue(engine.reevaluate(artefact, recorder.drain(project)).present)
+		Assert.assertTrue(recorder.drain(project).empty)
+	}
+}
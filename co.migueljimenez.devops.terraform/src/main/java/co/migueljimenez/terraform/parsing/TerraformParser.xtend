@@ -26,6 +26,11 @@ import co.migueljimenez.terraform.terraform.Template
 import co.migueljimenez.terraform.terraform.TerraformFactory
 import com.google.inject.Injector
 import java.io.ByteArrayInputStream
+import java.nio.CharBuffer
+import java.nio.charset.StandardCharsets
+import java.util.List
+import java.util.concurrent.atomic.AtomicLong
+import java.util.stream.Collectors
 import org.eclipse.emf.common.util.URI
 import org.eclipse.xtext.diagnostics.Severity
 import org.eclipse.xtext.resource.XtextResource
@@ -36,6 +41,10 @@ import org.eclipse.xtext.validation.IResourceValidator
 
 /**
  * Parses Terraform-compliant code into the grammar model.
+ * <p>
+ * Each thread uses its own resource set and validator, so a parser can be
+ * shared among threads. The temporary resource created for each
+ * specification is removed from the resource set once it has been parsed.
  * @author Miguel Jimenez (miguel@uvic.ca)
  * @date 2018-05-14
  * @version $Id$
@@ -43,9 +52,16 @@ import org.eclipse.xtext.validation.IResourceValidator
  */
 class TerraformParser {
 
-	static var Injector INJECTOR = new TerraformStandaloneSetup().createInjectorAndDoEMFRegistration
-	static var XtextResourceSet RESOURCE_SET = TerraformParser.initialize
-	static var IResourceValidator VALIDATOR = TerraformParser.INJECTOR.getInstance(IResourceValidator)
+	static val Injector INJECTOR = new TerraformStandaloneSetup().createInjectorAndDoEMFRegistration
+	static val ThreadLocal<XtextResourceSet> RESOURCE_SET = ThreadLocal.withInitial[TerraformParser.initialize]
+	static val ThreadLocal<IResourceValidator> VALIDATOR = ThreadLocal.withInitial [
+		TerraformParser.INJECTOR.getInstance(IResourceValidator)
+	]
+
+	/**
+	 * Counter to name the temporal resources.
+	 */
+	static val COUNTER = new AtomicLong
 
 	/**
 	 * Initializes the Xtext result set.
@@ -60,30 +76,76 @@ class TerraformParser {
 	 * Parses a Terraform specification and returns the AST using the grammar
 	 * elements.
 	 */
-	def parse(String specification) {
-		val resource = this.temporalResource
-		resource.load(new ByteArrayInputStream(specification.bytes), newHashMap)
-		val issues = TerraformParser.VALIDATOR.validate(resource, CheckMode.ALL, CancelIndicator.NullImpl)
-		val errors = issues.filter[i|i.severity.equals(Severity.ERROR)]
-		if (!errors.empty) {
-			issues.forEach[i|System.err.println(i)]
-			throw new Exception("The specification couldn't be parsed")
+	def parse(CharSequence specification) {
+		this.parse(specification, ValidationLevel.FULL)
+	}
+
+	/**
+	 * Parses a Terraform specification and returns the AST using the grammar
+	 * elements, performing the given level of validation. The specification
+	 * is encoded in UTF-8 without copying it into a string first.
+	 */
+	def Template parse(CharSequence specification, ValidationLevel level) {
+		val resourceSet = TerraformParser.RESOURCE_SET.get
+		val resource = resourceSet.temporalResource
+		try {
+			val bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(specification))
+			resource.load(
+				new ByteArrayInputStream(
+					bytes.array,
+					bytes.arrayOffset + bytes.position,
+					bytes.remaining
+				),
+				newHashMap(XtextResource.OPTION_ENCODING -> StandardCharsets.UTF_8.name)
+			)
+			val errors = switch (level) {
+				case SYNTAX:
+					resource.errors.map[e|'''«e.line»:«e.column» «e.message»'''.toString]
+				case CHEAP:
+					resource.validate(CheckMode.FAST_ONLY)
+				default:
+					resource.validate(CheckMode.ALL)
+			}
+			if (!errors.empty) {
+				errors.forEach[e|System.err.println(e)]
+				throw new Exception("The specification couldn't be parsed")
+			}
+			if (!resource.contents.empty)
+				return resource.contents.get(0) as Template
+			return TerraformFactory.eINSTANCE.createTemplate
+		} finally {
+			// The AST remains in the (detached) resource
+			resourceSet.resources.remove(resource)
 		}
-		if (!resource.contents.empty)
-			return resource.contents.get(0) as Template
-		return TerraformFactory.eINSTANCE.createTemplate
+	}
+
+	/**
+	 * Validates the given resource and returns the errors found.
+	 */
+	def private validate(XtextResource resource, CheckMode mode) {
+		TerraformParser.VALIDATOR.get
+			.validate(resource, mode, CancelIndicator.NullImpl)
+			.filter[i|i.severity.equals(Severity.ERROR)]
+			.map[i|i.toString]
+			.toList
+	}
+
+	/**
+	 * Parses several Terraform specifications in parallel.
+	 * @param specifications The specifications to parse
+	 * @return The ASTs, in the same order as the specifications
+	 */
+	def List<Template> parseAll(List<String> specifications) {
+		specifications.parallelStream
+			.map[s|this.parse(s)]
+			.collect(Collectors.toList)
 	}
 
 	/**
 	 * Creates a temporal Xtext resource.
 	 */
-	def private temporalResource() {
-		val uri = URI.createURI('''temp-«Math.abs(Math.random())».tf''')
-		var resource = TerraformParser.RESOURCE_SET.resources
-			.findFirst[r|r.URI.toFileString.equals(uri.toFileString)]
-		if (resource === null)
-			resource = TerraformParser.RESOURCE_SET.createResource(uri)
-		resource.unload
-		return resource
+	def private temporalResource(XtextResourceSet resourceSet) {
+		val uri = URI.createURI('''temp-«TerraformParser.COUNTER.incrementAndGet».tf''')
+		resourceSet.createResource(uri) as XtextResource
 	}
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.terraform.parsing;
+
+/**
+ * The amount of validation performed when parsing a Terraform specification.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-06
+ * @version $Id$
+ * @since 0.0.1
+ */
+public enum ValidationLevel {
+	/**
+	 * Only syntax errors are reported.
+	 */
+	SYNTAX,
+
+	/**
+	 * Syntax errors and the results of the fast checks (e.g., unknown
+	 * declarations and functions) are reported.
+	 */
+	CHEAP,
+
+	/**
+	 * Every check is performed, including resource reference resolution.
+	 */
+	FULL
+}
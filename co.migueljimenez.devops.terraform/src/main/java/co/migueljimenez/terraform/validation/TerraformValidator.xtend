@@ -26,8 +26,13 @@ import co.migueljimenez.terraform.terraform.FunctionCall
 import co.migueljimenez.terraform.terraform.ResourceReference
 import co.migueljimenez.terraform.terraform.Template
 import co.migueljimenez.terraform.terraform.TerraformPackage
+import com.google.inject.Inject
+import java.util.Map
+import java.util.Set
 import org.eclipse.xtext.EcoreUtil2
+import org.eclipse.xtext.util.IResourceScopeCache
 import org.eclipse.xtext.validation.Check
+import org.eclipse.xtext.validation.CheckType
 
 /**
  * This class contains custom validation rules.
@@ -50,6 +55,11 @@ class TerraformValidator extends AbstractTerraformValidator {
 	 */
 	static val resources = #["variable", "output", "provider", "resource"]
 
+	/**
+	 * Cache key of the templates' symbol tables.
+	 */
+	static val SYMBOLS = TerraformValidator.canonicalName + ".symbols"
+
 	/**
 	 * List of supported functions
 	 * From: https://gist.github.com/davewongillies/251277c068bea5466d1583aafc4096ea
@@ -66,6 +76,12 @@ class TerraformValidator extends AbstractTerraformValidator {
 		"upper", "urlencode", "uuid", "values", "zipmap"
 	]
 
+	/**
+	 * Cache of values computed per resource.
+	 */
+	@Inject
+	IResourceScopeCache cache
+
 	@Check
 	def checkDeclaration(Declaration declaration) {
 		if (!TerraformValidator.resources.contains(declaration.resource)) {
@@ -89,38 +105,24 @@ class TerraformValidator extends AbstractTerraformValidator {
 		}
 	}
 
-	@Check
+	/**
+	 * Resolving references is the most expensive check, so it is only
+	 * performed on full validation.
+	 */
+	@Check(CheckType.NORMAL)
 	def checkResourceRef(ResourceReference resourceRef) {
 		val template = EcoreUtil2.getRootContainer(resourceRef) as Template
-		var resources = newLinkedHashMap()
-		for (declaration : template.declarations) {
-			if (declaration.resource.equals("resource")) {
-				// key is resource type
-				if (!resources.containsKey(declaration.type.value))
-					resources.put(declaration.type.value, newArrayList)
-				resources
-					.get(declaration.type.value)
-					.add(declaration.name.value -> declaration.value.elements.map[p|p.key])
-			} else {
-				// key is resource
-				val resource = if (declaration.resource.equals("variable")) "var" else declaration.resource
-				if (!resources.containsKey(resource))
-					resources.put(resource, newArrayList)
-				resources
-					.get(resource)
-					.add(declaration.name.value -> declaration.value.elements.map[p|p.key])
-			}
-		}
+		val resources = template.symbols
 		val type = resourceRef.references.get(0)
 		val name = resourceRef.references.get(1)
 		if (resources.containsKey(type)) {
-			if (resources.get(type).map[p|p.key].contains(name)) {
+			val attributes = resources.get(type).get(name)
+			if (attributes !== null) {
 				if (resourceRef.references.size > 2) {
 					val attr = resourceRef.references.get(2)
-					val resource = resources.get(type).findFirst[p|p.key.equals(name)]
-					if (!resource.value.contains(attr))
+					if (!attributes.contains(attr))
 						warning(
-							'''Attribute «attr» could not be checked in resource «resource.key»''',
+							'''Attribute «attr» could not be checked in resource «name»''',
 							TerraformPackage.Literals.RESOURCE_REFERENCE__REFERENCES,
 							IMPLICIT_ATTRIBUTE_REFERENCE
 						)
@@ -141,6 +143,35 @@ class TerraformValidator extends AbstractTerraformValidator {
 		}
 	}
 
+	/**
+	 * Computes the declarations of a template (resource type or kind ->
+	 * declaration name -> attribute names). The result is cached until the
+	 * template's resource changes, so that it is shared by all of the checks.
+	 */
+	def protected Map<String, Map<String, Set<String>>> symbols(Template template) {
+		this.cache.get(TerraformValidator.SYMBOLS, template.eResource, [
+			val resources = <String, Map<String, Set<String>>>newHashMap
+			for (declaration : template.declarations) {
+				val key = if (declaration.resource.equals("resource")) {
+						// key is resource type
+						declaration.type.value
+					} else if (declaration.resource.equals("variable")) {
+						"var"
+					} else {
+						// key is resource
+						declaration.resource
+					}
+				resources
+					.computeIfAbsent(key, [k|<String, Set<String>>newHashMap])
+					.putIfAbsent(
+						declaration.name.value,
+						declaration.value.elements.map[p|p.key].toSet
+					)
+			}
+			resources
+		])
+	}
+
 	@Check
 	def checkOutputRef(ResourceReference resourceReference) {
 		if (resourceReference.references.get(0).equals("output")) {
@@ -22,6 +22,9 @@
 package co.migueljimenez.terraform.tests
 
 import co.migueljimenez.terraform.parsing.TerraformParser
+import co.migueljimenez.terraform.parsing.ValidationLevel
+import co.migueljimenez.terraform.terraform.TextLiteral
+import java.nio.CharBuffer
 import org.junit.Assert
 import org.junit.Test
 
@@ -40,4 +43,55 @@ class TerraformParserTest {
 		Assert.assertNotNull(template)
 		Assert.assertEquals(0, template.declarations.size)
 	}
+
+	@Test
+	def parallelParsing() {
+		val specifications = (1..64).map [ i |
+			'''
+			variable "variable_«i»" {
+				default = «i»
+			}'''.toString
+		].toList
+		val templates = new TerraformParser().parseAll(specifications)
+		Assert.assertEquals(specifications.size, templates.size)
+		templates.forEach [ template, i |
+			Assert.assertEquals(1, template.declarations.size)
+			Assert.assertEquals('''variable_«i + 1»'''.toString, template.declarations.get(0).name.value)
+			// The temporal resource is no longer part of the resource set
+			Assert.assertNull(template.eResource.resourceSet)
+		]
+	}
+
+	@Test
+	def validationLevels() {
+		val source = '''
+		resource "openstack_compute_instance_v2" "basic" {
+			key_pair = "${openstack_compute_keypair_v2.unknown.name}"
+		}'''.toString
+		val parser = new TerraformParser
+		Assert.assertEquals(1, parser.parse(source, ValidationLevel.SYNTAX).declarations.size)
+		Assert.assertEquals(1, parser.parse(source, ValidationLevel.CHEAP).declarations.size)
+		try {
+			parser.parse(source, ValidationLevel.FULL)
+			Assert.fail("The unknown reference should have been reported")
+		} catch (Exception e) {
+			// Expected
+		}
+	}
+
+	@Test
+	def charSequenceSource() {
+		val source = CharBuffer.wrap('''
+		variable "image" {
+			default = "Ubuntu 16.04 — LTS"
+		}''')
+		val template = new TerraformParser().parse(source, ValidationLevel.SYNTAX)
+		val literal = template.declarations.get(0).value.elements.get(0).value as TextLiteral
+		Assert.assertEquals("Ubuntu 16.04 — LTS", literal.value)
+	}
+
+	@Test(expected = Exception)
+	def syntaxError() {
+		new TerraformParser().parse('resource "a" "b" {', ValidationLevel.SYNTAX)
+	}
 }
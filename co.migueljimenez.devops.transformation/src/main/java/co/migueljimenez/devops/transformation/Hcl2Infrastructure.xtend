@@ -41,9 +41,12 @@ import co.migueljimenez.devops.infrastructure.model.Flavor
 import co.migueljimenez.devops.infrastructure.model.Image
 import co.migueljimenez.devops.infrastructure.model.InfrastructureModelElements
 import co.migueljimenez.devops.infrastructure.model.Instance
+import co.migueljimenez.devops.infrastructure.model.ModelIndex
+import co.migueljimenez.devops.infrastructure.model.ModelPackage
 import co.migueljimenez.devops.infrastructure.model.Network
 import co.migueljimenez.devops.infrastructure.model.SecurityGroup
 import co.migueljimenez.devops.infrastructure.model.Subnet
+import co.migueljimenez.devops.infrastructure.model.UnknownResource
 import co.migueljimenez.devops.infrastructure.model.VirtualInfrastructure
 import co.migueljimenez.devops.infrastructure.model.Volume
 import co.migueljimenez.devops.transformation.dtos.FkDictionary
@@ -53,6 +56,11 @@ import co.migueljimenez.devops.transformation.dtos.FkResourceReference
 import co.migueljimenez.devops.transformation.dtos.FkTextExpression
 import com.google.common.base.Function
 import java.math.BigInteger
+import java.util.Objects
+import org.eclipse.emf.common.util.EList
+import org.eclipse.emf.ecore.EClass
+import org.eclipse.emf.ecore.EObject
+import org.eclipse.emf.ecore.util.EcoreUtil
 
 import static de.xn__ho_hia.storage_unit.StorageUnits.gigabyte
 import static de.xn__ho_hia.storage_unit.StorageUnits.megabyte
@@ -85,27 +93,220 @@ class Hcl2Infrastructure {
 	 */
 	def VirtualInfrastructure model(Specification specification) {
 		val model = this.i.infrastructure
-		val removed = newArrayList
+		val index = new ResourceIndex(specification.resources, true)
 		specification.resources.forEach [ resource |
-			if (!removed.contains(resource)) {
-				switch (resource) {
-					Input:
-						resource.createGenericResource(model)
-					Output:
-						resource.createGenericResource(model)
-					Resource:
-						this.processResource(resource, specification, model, removed)
-				}
+			if (!index.isConsumed(resource)) {
+				this.translate(resource, model, index)
 			}
 		]
 		model
 	}
 
+	/**
+	 * Updates a model previously translated from the {@code previous}
+	 * specification so that it reflects the {@code current} one. Resources
+	 * are matched by type and name, and only those that were added, removed
+	 * or changed are translated again; the rest of the model elements are
+	 * left untouched. The model contents are translated from scratch when
+	 * there is no previous specification, when resources cannot be matched
+	 * unambiguously, or when most of them changed.
+	 * @param model The model to update in place
+	 * @param previous The specification from which the model was translated
+	 * @param current The new specification
+	 * @return A report of the performed work
+	 */
+	def SyncReport update(VirtualInfrastructure model, Specification previous,
+		Specification current) {
+		val total = current.resources.size
+		if (previous === null) {
+			model.replaceContents(this.model(current))
+			return new SyncReport(total, total, 0, 0, true)
+		}
+		val before = previous.resources.byKey
+		val after = current.resources.byKey
+		val removed = before.keySet.filter[k|!after.containsKey(k)].toList
+		val added = after.keySet.filter[k|!before.containsKey(k)].toSet
+		val changed = after.keySet.filter [ k |
+			before.containsKey(k) && !EcoreUtil.equals(before.get(k), after.get(k))
+		].toSet
+		val ambiguous = before.size < previous.resources.size
+			|| after.size < total
+		if (ambiguous || (removed.size + added.size + changed.size) * 2 > total) {
+			model.replaceContents(this.model(current))
+			return new SyncReport(total, added.size, removed.size, changed.size, true)
+		}
+		// Volume attachments do not have a model element of their own
+		removed.map[k|before.get(k)].forEach[r|model.remove(r)]
+		changed.map[k|before.get(k)].filter[r|r.attachment].forEach[r|model.remove(r)]
+		val index = new ResourceIndex(current.resources, false)
+		current.resources
+			.filter[r|changed.contains(r.key) && !r.attachment]
+			.forEach [ r |
+				if (!index.isConsumed(r)) {
+					this.replace(r, model, index)
+				}
+			]
+		current.resources
+			.filter[r|added.contains(r.key) || changed.contains(r.key) && r.attachment]
+			.forEach [ r |
+				if (!index.isConsumed(r)) {
+					this.translate(r, model, index)
+				}
+			]
+		new SyncReport(total, added.size, removed.size, changed.size, false)
+	}
+
+	/**
+	 * Translates a resource from the specification and stores the resulting
+	 * element in the given model.
+	 */
+	def private EObject translate(Resource resource, VirtualInfrastructure project,
+		ResourceIndex index) {
+		val element = switch (resource) {
+			Input:
+				resource.createGenericResource(project)
+			Output:
+				resource.createGenericResource(project)
+			Resource:
+				this.processResource(resource, project, index)
+		}
+		index.register(resource, element)
+		element
+	}
+
+	/**
+	 * Translates a changed resource and replaces the element previously
+	 * translated from it, preserving its position and incoming references.
+	 */
+	def private void replace(Resource resource, VirtualInfrastructure project,
+		ResourceIndex index) {
+		val old = project.element(resource)
+		val fresh = this.translate(resource, project, index)
+		if (old === null || fresh === null) {
+			return
+		}
+		EcoreUtil.UsageCrossReferencer.find(old, project).forEach [ setting |
+			EcoreUtil.replace(setting, old, fresh)
+		]
+		if (old instanceof Instance) {
+			(fresh as Instance).volumes.addAll((old as Instance).volumes)
+		}
+		if (old.eContainer === fresh.eContainer
+			&& old.eContainingFeature === fresh.eContainingFeature) {
+			val siblings = old.eContainer.eGet(old.eContainingFeature) as EList<EObject>
+			siblings.move(siblings.indexOf(old), fresh)
+		}
+		EcoreUtil.remove(old)
+	}
+
+	/**
+	 * Removes the element translated from the given resource. In the case of
+	 * volume attachments, the volume is detached from the instance.
+	 */
+	def private void remove(VirtualInfrastructure project, Resource resource) {
+		if (resource.attachment) {
+			val instanceName = resource.attr("compute_id").referencedResource.value
+			val volumeName = resource.attr("volume_id").referencedResource.value
+			val instance = ModelIndex.of(project)
+				.<Instance>named(ModelPackage.Literals.INSTANCE, instanceName)
+			if (instance !== null) {
+				instance.volumes.removeIf[e|e.name.equals(volumeName)]
+			}
+			return
+		}
+		val element = project.element(resource)
+		if (element !== null) {
+			EcoreUtil.delete(element, true)
+		}
+	}
+
+	/**
+	 * Finds the model element translated from the given resource. Elements
+	 * are looked up in the model's index.
+	 */
+	def protected EObject element(VirtualInfrastructure project, Resource resource) {
+		val index = ModelIndex.of(project)
+		val name = resource.name
+		val unknown = ModelPackage.Literals.UNKNOWN_RESOURCE
+		switch (resource) {
+			Input:
+				index.allNamed(unknown, name).findFirst [ r |
+					"variable".equals((r as UnknownResource<?, ?>).resourceType)
+				]
+			Output:
+				index.allNamed(unknown, name).findFirst [ r |
+					"output".equals((r as UnknownResource<?, ?>).resourceType)
+				]
+			default:
+				switch (resource.type) {
+					case "openstack_compute_keypair_v2":
+						index.named(ModelPackage.Literals.CREDENTIAL, name)
+					case "openstack_compute_flavor_v2":
+						index.named(ModelPackage.Literals.FLAVOR, name)
+					case "openstack_images_image_v2":
+						index.named(ModelPackage.Literals.IMAGE, name)
+					case "openstack_blockstorage_volume_v2":
+						index.named(ModelPackage.Literals.VOLUME, name)
+					case "openstack_compute_secgroup_v2":
+						index.named(ModelPackage.Literals.SECURITY_GROUP, name)
+					case "openstack_networking_network_v2":
+						index.named(ModelPackage.Literals.NETWORK, name)
+					case "openstack_networking_subnet_v2":
+						index.named(ModelPackage.Literals.SUBNET, name)
+					case "openstack_compute_instance_v2":
+						index.named(ModelPackage.Literals.INSTANCE, name)
+					case "openstack_compute_volume_attach_v2":
+						null
+					default:
+						index.allNamed(unknown, name).findFirst [ e |
+							val r = e as UnknownResource<?, ?>
+							Objects.equals(resource.resourceType, r.resourceType)
+								&& Objects.equals(resource.type, r.type)
+						]
+				}
+		}
+	}
+
+	/**
+	 * Replaces the contents of a model with those of another one, keeping
+	 * the root element (and therefore references to it) stable.
+	 */
+	def private void replaceContents(VirtualInfrastructure model,
+		VirtualInfrastructure source) {
+		model.eClass.EAllContainments.forEach [ feature |
+			val target = model.eGet(feature) as EList<EObject>
+			target.clear
+			target.addAll(newArrayList(source.eGet(feature) as EList<EObject>))
+		]
+	}
+
+	/**
+	 * Indexes the given resources by their type and name.
+	 */
+	def private byKey(java.util.List<Resource> resources) {
+		val index = <String, Resource>newLinkedHashMap
+		resources.forEach[r|index.put(r.key, r)]
+		index
+	}
+
+	/**
+	 * Computes a key identifying a resource within a specification.
+	 */
+	def private String key(Resource resource)
+		'''«resource.eClass.name»:«resource.resourceType»:«resource.type»:«resource.name»'''
+
+	/**
+	 * Whether the given resource is a volume attachment.
+	 */
+	def private attachment(Resource resource) {
+		"openstack_compute_volume_attach_v2".equals(resource.type)
+	}
+
 	/**
 	 * Instantiates and stores the given resource.
 	 */
-	def private void processResource(Resource resource, Specification specification,
-		VirtualInfrastructure project, java.util.List<Resource> removedResources) {
+	def private EObject processResource(Resource resource, VirtualInfrastructure project,
+		ResourceIndex index) {
 		switch (resource.type) {
 			case "openstack_compute_keypair_v2":
 				resource.createCredential(project)
@@ -114,39 +315,37 @@ class Hcl2Infrastructure {
 			case "openstack_images_image_v2":
 				resource.createImage(project)
 			case "openstack_blockstorage_volume_v2":
-				this.processVolume(resource, specification, project, removedResources)
+				this.processVolume(resource, project, index)
 			case "openstack_compute_secgroup_v2":
 				resource.createSecurityGroup(project)
 			case "openstack_networking_network_v2":
 				resource.createNetwork(project)
 			case "openstack_networking_subnet_v2": {
-				val network = specification.resources.getOrCreate(
+				val network = index.getOrCreate(
 					resource.attr("network_id"),
-					project.networks,
-					removedResources,
-					[r|r.createNetwork(project)],
-					[r|r.name]
+					project,
+					ModelPackage.Literals.NETWORK,
+					[r|r.createNetwork(project)]
 				)
 				resource.createSubnet(network)
 			}
 			case "openstack_compute_instance_v2":
-				this.processInstance(resource, specification, project, removedResources)
+				this.processInstance(resource, project, index)
 			case "openstack_compute_volume_attach_v2": {
-				val instance = specification.resources.getOrCreate(
+				val instance = index.getOrCreate(
 					resource.attr("compute_id"),
-					project.instances,
-					removedResources,
-					[r|this.processInstance(r, specification, project, removedResources)],
-					[r|r.name]
+					project,
+					ModelPackage.Literals.INSTANCE,
+					[r|this.processInstance(r, project, index)]
 				)
-				val volume = specification.resources.getOrCreate(
+				val volume = index.getOrCreate(
 					resource.attr("volume_id"),
-					project.volumes,
-					removedResources,
-					[r|this.processVolume(r, specification, project, removedResources)],
-					[r|r.name]
+					project,
+					ModelPackage.Literals.VOLUME,
+					[r|this.processVolume(r, project, index)]
 				)
 				instance.volumes.add(volume)
+				null
 			}
 			default:
 				resource.createGenericResource(project)
@@ -156,14 +355,13 @@ class Hcl2Infrastructure {
 	/**
 	 * Given a resource, instantiates and stores the corresponding Volume element.
 	 */
-	def processVolume(Resource resource, Specification specification,
-		VirtualInfrastructure project, java.util.List<Resource> removedResources) {
-		val image = specification.resources.getOrCreate(
+	def processVolume(Resource resource, VirtualInfrastructure project,
+		ResourceIndex index) {
+		val image = index.getOrCreate(
 			resource.attr("image_id"),
-			project.images,
-			removedResources,
-			[r|r.createImage(project)],
-			[r|r.name]
+			project,
+			ModelPackage.Literals.IMAGE,
+			[r|r.createImage(project)]
 		)
 		resource.createVolume(image, project)
 	}
@@ -171,31 +369,28 @@ class Hcl2Infrastructure {
 	/**
 	 * Given a resource, instantiates and stores the corresponding Instance element.
 	 */
-	def processInstance(Resource resource, Specification specification,
-		VirtualInfrastructure project, java.util.List<Resource> removedResources) {
-		val credential = specification.resources.getOrCreate(
+	def processInstance(Resource resource, VirtualInfrastructure project,
+		ResourceIndex index) {
+		val credential = index.getOrCreate(
 			resource.attr("key_pair"),
-			project.credentials,
-			removedResources,
-			[r|r.createCredential(project)],
-			[r|r.name]
+			project,
+			ModelPackage.Literals.CREDENTIAL,
+			[r|r.createCredential(project)]
 		)
-		val flavor = specification.resources.getOrCreate(
+		val flavor = index.getOrCreate(
 			resource.attr("flavor_id"),
-			project.flavors,
-			removedResources,
-			[r|r.createFlavor(project)],
-			[r|r.name]
+			project,
+			ModelPackage.Literals.FLAVOR,
+			[r|r.createFlavor(project)]
 		)
 		val _networks = resource.attrs("network").map [ value |
 			switch (value) {
 				FkDictionary<String, Object>: {
-					specification.resources.getOrCreate(
+					index.getOrCreate(
 						value.get("name"),
-						project.networks,
-						removedResources,
-						[r|r.createNetwork(project)],
-						[r|r.name]
+						project,
+						ModelPackage.Literals.NETWORK,
+						[r|r.createNetwork(project)]
 					)
 				}
 			}
@@ -203,12 +398,11 @@ class Hcl2Infrastructure {
 		val groupsAttr = resource.attr("security_groups")
 		val groups = if(groupsAttr !== null) groupsAttr as java.util.List<Object> else #[]
 		val _securityGroups = groups.map [ reference |
-			specification.resources.getOrCreate(
+			index.getOrCreate(
 				reference,
-				project.securityGroups,
-				removedResources,
-				[r|r.createSecurityGroup(project)],
-				[r|r.name]
+				project,
+				ModelPackage.Literals.SECURITY_GROUP,
+				[r|r.createSecurityGroup(project)]
 			)
 		]
 		resource.createInstance(
@@ -237,18 +431,15 @@ class Hcl2Infrastructure {
 	}
 
 	/**
-	 * Searches a referenced resource (value) in a given list of resources.
+	 * Gets the type and name of the resource referenced by a value.
 	 */
-	def protected findByRef(java.util.List<Resource> resources, Object reference) {
+	def protected Pair<String, String> referencedResource(Object reference) {
 		switch (reference) {
 			FkTextExpression: {
 				val expression = reference.expression
 				switch (expression) {
-					FkResourceReference: {
-						val type = expression.segments.get(0)
-						val name = expression.segments.get(1)
-						resources.findFirst[r|r.type.equals(type) && r.name.equals(name)]
-					}
+					FkResourceReference:
+						expression.segments.get(0) -> expression.segments.get(1)
 					default:
 						throw new UnsupportedOperationException(
 							'''Unexpected function call "«reference»"'''
@@ -263,19 +454,35 @@ class Hcl2Infrastructure {
 	}
 
 	/**
-	 * Finds a referenced resource or creates a new instance if it hasn't been processed yet.
+	 * Finds a referenced resource or creates a new instance if it hasn't been
+	 * processed yet. In incremental mode, elements translated before the index
+	 * was created are looked up in the model's index; those elements are not
+	 * registered, as their resources may still need to be translated again.
 	 */
-	def protected <T> getOrCreate(java.util.List<Resource> specResources,
-		Object reference, java.util.List<T> virtualresources,
-			java.util.List<Resource> removedResources,
-				Function<Resource, T> factory, Function<T, Object> name) {
-		val resource = specResources.findByRef(reference)
-		var virtualResource = virtualresources.findFirst[i|name.apply(i).equals(resource.name)]
-		if (virtualResource === null) {
-			virtualResource = factory.apply(resource)
-			removedResources.add(resource)
+	def protected <T extends EObject> getOrCreate(ResourceIndex index,
+		Object reference, VirtualInfrastructure project, EClass eClass,
+			Function<Resource, T> factory) {
+		val referenced = reference.referencedResource
+		val resource = index.resource(referenced.key, referenced.value)
+		if (resource === null) {
+			throw new IllegalArgumentException(
+				'''Resource "«referenced.key».«referenced.value»" does not exist'''
+			)
+		}
+		val T registered = index.element(resource)
+		if (registered !== null) {
+			return registered
 		}
-		virtualResource
+		if (!index.complete) {
+			// The element may have been translated before this index was created
+			val T existing = ModelIndex.of(project).named(eClass, resource.name)
+			if (existing !== null) {
+				return existing
+			}
+		}
+		val T created = factory.apply(resource)
+		index.register(resource, created)
+		created
 	}
 
 	/**
@@ -454,8 +661,8 @@ class Hcl2Infrastructure {
 	def protected createGenericResource(Resource resource,
 		VirtualInfrastructure project) {
 		this.i.<String, Object>unknownResource(
-			"resource",
-			null,
+			resource.resourceType,
+			resource.type,
 			resource.name,
 			resource.attributes.elements.map[ p |
 				this.i.entry(p.key, p.value.unwrap)
@@ -26,7 +26,6 @@ import co.migueljimenez.devops.hcl.model.Dictionary
 import co.migueljimenez.devops.hcl.model.FunctionCall
 import co.migueljimenez.devops.hcl.model.Input
 import co.migueljimenez.devops.hcl.model.List
-import co.migueljimenez.devops.hcl.model.ModelPackage
 import co.migueljimenez.devops.hcl.model.Number
 import co.migueljimenez.devops.hcl.model.Output
 import co.migueljimenez.devops.hcl.model.Resource
@@ -35,13 +34,15 @@ import co.migueljimenez.devops.hcl.model.Specification
 import co.migueljimenez.devops.hcl.model.Text
 import co.migueljimenez.devops.hcl.model.TextExpression
 import co.migueljimenez.devops.hcl.model.Value
-import java.util.PriorityQueue
-import java.util.Queue
-import org.eclipse.emf.ecore.EObject
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
 
 /**
  * Translates an HCL model instance (a {@link Specification}) to a Terraform
- * template.
+ * template. The text is written in a single pass over the model, thus large
+ * specifications can be written to a file without keeping the whole text in
+ * memory.
  * @author Miguel Jimenez (miguel@uvic.ca)
  * @date 2018-05-03
  * @version $Id$
@@ -53,160 +54,206 @@ class Hcl2Text {
 	 * Returns a text representation of the given model instance.
 	 */
 	def source(Specification model) {
-		return model.asText(new PriorityQueue)
+		val builder = new StringBuilder
+		model.write(builder)
+		return builder.toString
 	}
 
 	/**
-	 * Translates an {@link EObject} from the HCL model to a {@link String}.
+	 * Writes a text representation of the given model instance to a file.
 	 * TODO sort/format the specification before printing it
 	 */
-	def protected String asText(EObject object, Queue<String> context) {
-		context.add(object.eClass.class.canonicalName)
-		val text = switch (object) {
-			Bool:
-				object.asText(context)
-			Dictionary<Value>:
-				object.asText(context)
-			FunctionCall:
-				object.asText(context)
-			Input:
-				object.asText(context)
-			Output:
-				object.asText(context)
-			List:
-				object.asText(context)
-			Number:
-				object.asText(context)
-			ResourceReference:
-				object.asText(context)
-			Specification:
-				object.asText(context)
-			Text:
-				object.asText(context)
-			TextExpression:
-				object.asText(context)
-			// It's at the end to prevent inputs and outputs from being
-			// processed as simple resources
-			Resource: {
-				val type = if (object.type !== null) '''"«object.type»" '''
-				'''«object.resourceType» «type»"«object.name»" «object.attributes.asText(context)»'''
-			}
+	def void write(Specification model, Path file) {
+		val writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)
+		try {
+			model.write(writer)
+		} finally {
+			writer.close
 		}
-		context.remove
-		return text
 	}
 
 	/**
-	 * Translates a {@link Bool} from the HCL model to a {@link String}.
+	 * Writes a text representation of the given model instance.
 	 */
-	def protected String asText(Bool object, Queue<String> context) {
-		object.value.toString
+	def void write(Specification model, Appendable out) {
+		model.write(new HclWriter(out))
 	}
 
 	/**
-	 * Translates a {@link Dictionary} from the HCL model to a {@link String}.
+	 * Writes a {@link Specification} from the HCL model.
 	 */
-	def protected String asText(Dictionary<Value> object, Queue<String> context) {
-		val className = ModelPackage.eINSTANCE.dictionary.class.canonicalName
-		val elements = object.elements
-			.filter [ e |
-				val text = e.value.asText(context)
-				!text.empty && !text.equals('""') && !text.equals('[]')
-			]
-			.map [ e |
-				val eq = if(!(e.value instanceof Dictionary<?> && context.peek.equals(className))) "= "
-				val text = e.value.asText(context)
-				'''«e.key» «eq»«text»'''
-			]
-		'''
-		«IF object.name !== null»
-			"«object.name»" «ENDIF»{
-			«FOR e : elements»
-				«e»
-			«ENDFOR»
-		}'''
+	def protected void write(Specification object, HclWriter out) {
+		var first = true
+		for (r : object.resources) {
+			if (!first)
+				out.newLine
+			first = false
+			r.write(out)
+		}
 	}
 
 	/**
-	 * Translates a {@link FunctionCall} from the HCL model to a {@link String}.
+	 * Writes a {@link Resource} from the HCL model.
 	 */
-	def protected String asText(FunctionCall object, Queue<String> context) {
-		'''«object.name»(«FOR e : object.arguments SEPARATOR ', '»«e.asText(context)»«ENDFOR»)'''
+	def protected void write(Resource object, HclWriter out) {
+		switch (object) {
+			Input:
+				object.write(out)
+			Output:
+				object.write(out)
+			default: {
+				out.append(object.resourceType).append(" ")
+				if (object.type !== null)
+					out.append('"').append(object.type).append('" ')
+				out.append('"').append(object.name).append('" ')
+				object.attributes.write(out)
+			}
+		}
 	}
 
 	/**
-	 * Translates an {@link Input} from the HCL model to a {@link String}.
+	 * Writes an {@link Input} from the HCL model.
 	 */
-	def protected String asText(Input object, Queue<String> context) {
+	def protected void write(Input object, HclWriter out) {
 		// Ignore extra attributes
-		'''
-		variable "«object.name»" {
-			default = «object.^default.asText(context)»
-			«IF object.description !== null»
-				description = «object.description»
-			«ENDIF»
-			«IF object.type !== null»
-				type = «object.type»
-			«ENDIF»
-		}'''
+		out.append('variable "').append(object.name).append('" {').push
+		out.newLine.append("default = ")
+		object.^default.write(out)
+		if (object.description !== null)
+			out.newLine.append("description = ").append(object.description)
+		if (object.type !== null)
+			out.newLine.append("type = ").append(object.type)
+		out.pop.newLine.append("}")
 	}
 
 	/**
-	 * Translates an {@link Output} from the HCL model to a {@link String}.
+	 * Writes an {@link Output} from the HCL model.
 	 */
-	def protected String asText(Output object, Queue<String> context) {
+	def protected void write(Output object, HclWriter out) {
 		// Ignore extra attributes
-		'''
-		output "«object.name»" {
-			«IF object.description !== null»
-				description = «object.description»
-			«ENDIF»
-			sensitive = «object.sensitive»
-			value = «object.value.asText(context)»
-		}'''
+		out.append('output "').append(object.name).append('" {').push
+		if (object.description !== null)
+			out.newLine.append("description = ").append(object.description)
+		out.newLine.append("sensitive = ").append(String.valueOf(object.sensitive))
+		out.newLine.append("value = ")
+		object.value.write(out)
+		out.pop.newLine.append("}")
 	}
 
 	/**
-	 * Translates a {@link List} from the HCL model to a {@link String}.
+	 * Writes a {@link Value} from the HCL model. Plain values and references
+	 * are written as empty text.
 	 */
-	def protected String asText(List object, Queue<String> context) {
-		'''[«FOR v : object.elements SEPARATOR ", "»«v.asText(context)»«ENDFOR»]'''
+	def protected void write(Value object, HclWriter out) {
+		switch (object) {
+			Bool:
+				out.append(String.valueOf(object.value))
+			Dictionary<Value>:
+				object.write(out)
+			FunctionCall:
+				object.write(out)
+			List:
+				object.write(out)
+			Number:
+				out.append(object.value)
+			ResourceReference:
+				out.append(object.fullyQualifiedName.join("."))
+			Text:
+				out.append('"').append(object.value).append('"')
+			TextExpression: {
+				out.append('"${')
+				object.expression.write(out)
+				out.append('}"')
+			}
+		}
 	}
 
 	/**
-	 * Translates a {@link Number} from the HCL model to a {@link String}.
+	 * Writes a {@link Dictionary} from the HCL model. Nested dictionaries are
+	 * written as blocks, and entries with empty values are ignored.
 	 */
-	def protected String asText(Number object, Queue<String> context) {
-		'''«object.value»'''
+	def protected void write(Dictionary<Value> object, HclWriter out) {
+		if (object.name !== null)
+			out.append('"').append(object.name).append('" ')
+		out.append("{").push
+		for (e : object.elements) {
+			if (!e.value.omitted) {
+				out.newLine.append(e.key).append(" ")
+				if (!(e.value instanceof Dictionary<?>))
+					out.append("= ")
+				e.value.write(out)
+			}
+		}
+		out.pop.newLine.append("}")
 	}
 
 	/**
-	 * Translates a {@link ResourceReference} from the HCL model to a {@link String}.
+	 * Writes a {@link FunctionCall} from the HCL model.
 	 */
-	def protected String asText(ResourceReference object, Queue<String> context) {
-		val className = ModelPackage.eINSTANCE.functionCall.class.canonicalName
-		val qm = if (context.peek.equals(className)) "" else '"'
-		'''«qm»«FOR e : object.fullyQualifiedName SEPARATOR '.'»«e»«ENDFOR»«qm»'''
+	def protected void write(FunctionCall object, HclWriter out) {
+		out.append(object.name).append("(")
+		var first = true
+		for (e : object.arguments) {
+			if (!first)
+				out.append(", ")
+			first = false
+			e.write(out)
+		}
+		out.append(")")
 	}
 
 	/**
-	 * Translates a {@link Specification} from the HCL model to a {@link String}.
+	 * Writes a {@link List} from the HCL model.
 	 */
-	def protected String asText(Specification object, Queue<String> context) {
-		'''«FOR r : object.resources SEPARATOR "\n"»«r.asText(context)»«ENDFOR»'''
+	def protected void write(List object, HclWriter out) {
+		out.append("[")
+		var first = true
+		for (e : object.elements) {
+			if (!first)
+				out.append(", ")
+			first = false
+			e.write(out)
+		}
+		out.append("]")
 	}
 
 	/**
-	 * Translates a {@link Text} from the HCL model to a {@link String}.
+	 * Whether the entry with the given value is omitted, that is, if the value
+	 * is written as empty text, an empty string or an empty list. This is
+	 * decided without writing the value.
 	 */
-	def protected String asText(Text object, Queue<String> context) {
-		'''"«object.value?.toString»"'''
+	def protected boolean omitted(Value value) {
+		switch (value) {
+			Text:
+				value.value.nullOrEmpty
+			List:
+				value.elements.empty
+					|| value.elements.size == 1 && value.elements.head.blank
+			default:
+				value.blank
+		}
 	}
 
 	/**
-	 * Translates a {@link TextExpression} from the HCL model to a {@link String}.
+	 * Whether the given value is written as empty text.
 	 */
-	def protected String asText(TextExpression object, Queue<String> context) {
-		'''"${«object.expression.asText(context)»}"'''
+	def protected boolean blank(Value value) {
+		switch (value) {
+			case null:
+				true
+			Bool,
+			Dictionary<?>,
+			FunctionCall,
+			List,
+			Text,
+			TextExpression:
+				false
+			Number:
+				value.value.nullOrEmpty
+			ResourceReference:
+				value.fullyQualifiedName.join(".").empty
+			default:
+				true
+		}
 	}
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.transformation
+
+/**
+ * Writes text to an {@link Appendable}, indenting every line according to
+ * the current depth. Line breaks within the written text are normalized to
+ * the system's line separator and indented as well.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-26
+ * @version $Id$
+ * @since 0.0.1
+ */
+class HclWriter {
+
+	/**
+	 * Line feed.
+	 */
+	static val char LF = '\n'
+
+	/**
+	 * Carriage return.
+	 */
+	static val char CR = '\r'
+
+	/**
+	 * Indentation unit.
+	 */
+	static val char TAB = '\t'
+
+	/**
+	 * The line separator.
+	 */
+	static val String SEPARATOR = System.lineSeparator
+
+	/**
+	 * The target.
+	 */
+	val Appendable out
+
+	/**
+	 * The current depth, that is, the number of open blocks.
+	 */
+	var int depth
+
+	/**
+	 * Default constructor.
+	 * @param out The target
+	 */
+	new(Appendable out) {
+		this.out = out
+	}
+
+	/**
+	 * Writes the given text. Nothing is written if the text is {@code null}.
+	 * @param text The text to write
+	 * @return This writer
+	 */
+	def HclWriter append(CharSequence text) {
+		if (text === null)
+			return this
+		val length = text.length
+		var start = 0
+		var i = 0
+		while (i < length) {
+			val c = text.charAt(i)
+			if (c == LF || c == CR) {
+				this.out.append(text, start, i)
+				if (c == CR && i + 1 < length && text.charAt(i + 1) == LF)
+					i++
+				this.newLine
+				start = i + 1
+			}
+			i++
+		}
+		this.out.append(text, start, length)
+		this
+	}
+
+	/**
+	 * Writes a line break and the indentation of the current depth.
+	 * @return This writer
+	 */
+	def HclWriter newLine() {
+		this.out.append(SEPARATOR)
+		for (var i = 0; i < this.depth; i++)
+			this.out.append(TAB)
+		this
+	}
+
+	/**
+	 * Opens a block, increasing the indentation of the following lines.
+	 * @return This writer
+	 */
+	def HclWriter push() {
+		this.depth++
+		this
+	}
+
+	/**
+	 * Closes the current block.
+	 * @return This writer
+	 */
+	def HclWriter pop() {
+		if (this.depth == 0)
+			throw new IllegalStateException("There is no open block")
+		this.depth--
+		this
+	}
+}
@@ -73,8 +73,27 @@ class Infrastructure2Hcl {
 	 * @return the code representation of the model in HCL
 	 */
 	def Specification specification(VirtualInfrastructure model) {
+		this.h.specification(model.elements.map[r|r.resources].flatten)
+	}
+
+	/**
+	 * Translates a single element from an infrastructure model to HCL.
+	 * @param element a top-level element of the infrastructure model
+	 * @return a specification containing the corresponding resources
+	 */
+	def Specification fragment(EObject element) {
+		this.h.specification(element.resources)
+	}
+
+	/**
+	 * Lists the top-level elements of an infrastructure model in the order
+	 * in which they are translated.
+	 * @param model the infrastructure model
+	 * @return the model elements
+	 */
+	def Iterable<? extends EObject> elements(VirtualInfrastructure model) {
 		// Order is dependency-wise
-		val resources = #[
+		#[
 			model.credentials,
 			model.flavors,
 			model.volumes,
@@ -84,7 +103,6 @@ class Infrastructure2Hcl {
 			model.instances,
 			model.resources
 		].flatten
-		this.h.specification(resources.map[r|r.resources].flatten)
 	}
 
 	/**
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.transformation
+
+import co.migueljimenez.devops.infrastructure.model.VirtualInfrastructure
+import java.util.Map
+import java.util.Set
+import org.eclipse.emf.common.notify.Notification
+import org.eclipse.emf.ecore.EAttribute
+import org.eclipse.emf.ecore.EObject
+import org.eclipse.emf.ecore.util.EContentAdapter
+import org.eclipse.emf.ecore.util.EcoreUtil
+import org.eclipse.xtend.lib.annotations.Accessors
+
+/**
+ * Incrementally translates a {@link VirtualInfrastructure} to a Terraform
+ * template. The text of each top-level model element is cached, and only
+ * the elements affected by a model change are translated again; the rest
+ * of the template is assembled from the cached fragments. The output is
+ * the same as translating the whole model with {@link Infrastructure2Hcl}
+ * and {@link Hcl2Text}.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-03
+ * @version $Id$
+ * @since 0.0.1
+ */
+class Infrastructure2Text {
+
+	/**
+	 * The translated model.
+	 */
+	@Accessors(PUBLIC_GETTER)
+	val VirtualInfrastructure model
+
+	/**
+	 * Infrastructure to HCL parser.
+	 */
+	val Infrastructure2Hcl hclParser
+
+	/**
+	 * HCL to text parser.
+	 */
+	val Hcl2Text textParser
+
+	/**
+	 * The text fragment of each top-level model element.
+	 */
+	val Map<EObject, String> fragments
+
+	/**
+	 * Top-level elements whose fragment is outdated.
+	 */
+	val Set<EObject> outdated
+
+	/**
+	 * Listener of model changes.
+	 */
+	val ChangeAdapter adapter
+
+	/**
+	 * The number of fragments translated by the last call to {@link #source()}.
+	 */
+	@Accessors(PUBLIC_GETTER)
+	var int translated
+
+	/**
+	 * The number of changes made to the model since this translator was
+	 * created. Two equal numbers mean the model did not change in between.
+	 */
+	@Accessors(PUBLIC_GETTER)
+	var long modifications
+
+	/**
+	 * Default constructor.
+	 * @param model The model to translate
+	 */
+	new(VirtualInfrastructure model) {
+		this.model = model
+		this.hclParser = new Infrastructure2Hcl
+		this.textParser = new Hcl2Text
+		this.fragments = newHashMap
+		this.outdated = newHashSet
+		this.adapter = new ChangeAdapter(this)
+		this.model.eAdapters.add(this.adapter)
+	}
+
+	/**
+	 * Returns a text representation of the model, translating only the
+	 * elements that changed since the last call.
+	 */
+	def String source() {
+		val elements = this.hclParser.elements(this.model).toList
+		this.translated = 0
+		elements
+			.filter[e|this.outdated.contains(e) || !this.fragments.containsKey(e)]
+			.forEach [ e |
+				this.fragments.put(e, this.textParser.source(this.hclParser.fragment(e)))
+				this.translated++
+			]
+		this.outdated.clear
+		elements.map[e|this.fragments.get(e)].join("\n")
+	}
+
+	/**
+	 * Stops listening to model changes and discards the cached fragments.
+	 */
+	def void dispose() {
+		this.model.eAdapters.remove(this.adapter)
+		this.fragments.clear
+		this.outdated.clear
+	}
+
+	/**
+	 * Counts a change made to the model.
+	 */
+	def protected void modified() {
+		this.modifications++
+	}
+
+	/**
+	 * Marks the fragment of the top-level element containing the given
+	 * object as outdated.
+	 */
+	def protected void invalidate(EObject object) {
+		var element = object
+		while (element !== null && element.eContainer !== this.model) {
+			element = element.eContainer
+		}
+		if (element !== null) {
+			this.outdated.add(element)
+		}
+	}
+
+	/**
+	 * Discards the fragment of a top-level element removed from the model.
+	 */
+	def protected void discard(Object object) {
+		this.fragments.remove(object)
+		this.outdated.remove(object)
+	}
+
+	/**
+	 * Listens to changes in the model contents.
+	 */
+	static class ChangeAdapter extends EContentAdapter {
+
+		/**
+		 * The translator to notify.
+		 */
+		val Infrastructure2Text translator
+
+		new(Infrastructure2Text translator) {
+			this.translator = translator
+		}
+
+		override notifyChanged(Notification notification) {
+			super.notifyChanged(notification)
+			if (notification.touch) {
+				return
+			}
+			this.translator.modified
+			val notifier = notification.notifier as EObject
+			if (notifier === this.translator.model) {
+				switch (notification.eventType) {
+					case Notification.REMOVE:
+						this.translator.discard(notification.oldValue)
+					case Notification.REMOVE_MANY:
+						(notification.oldValue as Iterable<?>).forEach [ e |
+							this.translator.discard(e)
+						]
+				}
+				// New elements are translated lazily
+				return
+			}
+			this.translator.invalidate(notifier)
+			// Other elements render references by name
+			val feature = notification.feature
+			if (feature instanceof EAttribute && (feature as EAttribute).name == "name") {
+				EcoreUtil.UsageCrossReferencer.find(notifier, this.translator.model)
+					.forEach[s|this.translator.invalidate(s.EObject)]
+			}
+		}
+	}
+}
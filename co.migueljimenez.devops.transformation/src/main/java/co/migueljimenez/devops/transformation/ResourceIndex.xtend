@@ -0,0 +1,109 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.transformation
+
+import co.migueljimenez.devops.hcl.model.Resource
+import java.util.Collections
+import java.util.IdentityHashMap
+import java.util.Map
+import java.util.Set
+import org.eclipse.emf.ecore.EObject
+import org.eclipse.xtend.lib.annotations.Accessors
+
+/**
+ * Index of the resources of a specification and the model elements
+ * translated from them, both keyed by resource type and name. It is used
+ * by {@link Hcl2Infrastructure} to resolve references in constant time.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-04
+ * @version $Id$
+ * @since 0.0.1
+ */
+class ResourceIndex {
+
+	/**
+	 * The specification resources.
+	 */
+	val Map<Pair<String, String>, Resource> resources
+
+	/**
+	 * The model elements translated so far.
+	 */
+	val Map<Pair<String, String>, EObject> elements
+
+	/**
+	 * The resources that have already been translated.
+	 */
+	val Set<Resource> consumed
+
+	/**
+	 * Whether all of the model elements are registered in this index. If
+	 * not, elements not found in the index may still exist in the model.
+	 */
+	@Accessors(PUBLIC_GETTER)
+	val boolean complete
+
+	/**
+	 * Default constructor.
+	 * @param resources The specification resources
+	 * @param complete Whether the model is translated from scratch
+	 */
+	new(Iterable<? extends Resource> resources, boolean complete) {
+		this.resources = newHashMap
+		this.elements = newHashMap
+		this.consumed = Collections.newSetFromMap(new IdentityHashMap)
+		this.complete = complete
+		// The first resource wins, as when searching the list
+		resources.forEach[r|this.resources.putIfAbsent(r.type -> r.name, r)]
+	}
+
+	/**
+	 * Finds a resource by type and name.
+	 */
+	def Resource resource(String type, String name) {
+		this.resources.get(type -> name)
+	}
+
+	/**
+	 * Finds the model element translated from the given resource.
+	 */
+	def <T extends EObject> T element(Resource resource) {
+		this.elements.get(resource.type -> resource.name) as T
+	}
+
+	/**
+	 * Registers the model element translated from the given resource.
+	 */
+	def void register(Resource resource, EObject element) {
+		this.consumed.add(resource)
+		if (element !== null) {
+			this.elements.put(resource.type -> resource.name, element)
+		}
+	}
+
+	/**
+	 * Whether the given resource has already been translated.
+	 */
+	def boolean isConsumed(Resource resource) {
+		this.consumed.contains(resource)
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.transformation
+
+import org.eclipse.xtend.lib.annotations.Data
+
+/**
+ * Summary of an incremental update performed by {@link Hcl2Infrastructure}.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-02
+ * @version $Id$
+ * @since 0.0.1
+ */
+@Data
+class SyncReport {
+
+	/**
+	 * The number of resources in the new specification.
+	 */
+	int total
+
+	/**
+	 * The number of resources that were added.
+	 */
+	int added
+
+	/**
+	 * The number of resources that were removed.
+	 */
+	int removed
+
+	/**
+	 * The number of resources that changed.
+	 */
+	int changed
+
+	/**
+	 * Whether the model was translated from scratch.
+	 */
+	boolean full
+
+	/**
+	 * The number of resources whose model elements were reused.
+	 */
+	def reused() {
+		if (this.full) 0 else this.total - this.added - this.changed
+	}
+}
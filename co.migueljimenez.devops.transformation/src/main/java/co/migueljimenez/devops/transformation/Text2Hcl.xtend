@@ -36,6 +36,7 @@ import co.migueljimenez.terraform.terraform.TextLiteral
 import org.eclipse.emf.ecore.EObject
 import co.migueljimenez.terraform.terraform.Template
 import co.migueljimenez.terraform.parsing.TerraformParser
+import co.migueljimenez.terraform.parsing.ValidationLevel
 
 /**
  * Instantiates the HCL model (a {@link Specification}) from a Terraform
@@ -50,7 +51,7 @@ class Text2Hcl {
 	/**
 	 * The source code.
 	 */
-	val String source
+	val CharSequence source
 
 	/**
 	 * The AST.
@@ -66,9 +67,18 @@ class Text2Hcl {
 	 * Default constructor.
 	 * @param specification The source code
 	 */
-	new(String source) {
+	new(CharSequence source) {
+		this(source, ValidationLevel.FULL)
+	}
+
+	/**
+	 * Secondary constructor.
+	 * @param specification The source code
+	 * @param level The validation performed when parsing the source code
+	 */
+	new(CharSequence source, ValidationLevel level) {
 		this.source = source
-		this.template = new TerraformParser().parse(this.source)
+		this.template = new TerraformParser().parse(this.source, level)
 		this.e = new HclModelElements
 	}
 
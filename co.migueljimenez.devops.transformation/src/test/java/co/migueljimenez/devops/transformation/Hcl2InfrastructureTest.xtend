@@ -21,6 +21,7 @@
  */
 package co.migueljimenez.devops.transformation
 
+import de.xn__ho_hia.storage_unit.StorageUnits
 import org.junit.Test
 import org.junit.Assert
 
@@ -390,4 +391,152 @@ class Hcl2InfrastructureTest {
 		val text = new Hcl2Text().source(this.inverseTranslator.specification(model))
 		Assert.assertEquals(source, text)
 	}
-}
\ No newline at end of file
+
+	@Test
+	def void forwardReferences() {
+		val source = '''
+		resource "openstack_compute_volume_attach_v2" "basic_volume_1" {
+			compute_id = "${openstack_compute_instance_v2.basic.id}"
+			volume_id = "${openstack_blockstorage_volume_v2.volume_1.id}"
+		}
+		resource "openstack_compute_instance_v2" "basic" {
+			name = "basic"
+			flavor_id = "${openstack_compute_flavor_v2.small.id}"
+			key_pair = "${openstack_compute_keypair_v2.terraform.name}"
+		}
+		resource "openstack_blockstorage_volume_v2" "volume_1" {
+			name = "volume_1"
+			description = "first test volume"
+			image_id = "${openstack_images_image_v2.rancher-os.id}"
+			size = 5
+		}
+		resource "openstack_compute_keypair_v2" "terraform" {
+			name = "terraform"
+			public_key = "public-key"
+		}
+		resource "openstack_compute_flavor_v2" "small" {
+			name = "small"
+			ram = 512
+			vcpus = 1
+			disk = 4
+		}
+		resource "openstack_images_image_v2" "rancher-os" {
+			name = "rancher-os"
+			container_format = "bare"
+			disk_format = "ari"
+			image_source_url = "https://image"
+			min_disk_gb = 1
+			min_ram_mb = 1024
+		}'''
+		val model = this.translator.model(new Text2Hcl(source).model)
+		// Each resource is translated once, even if it is referenced before
+		// being declared
+		#[
+			model.credentials,
+			model.flavors,
+			model.images,
+			model.volumes,
+			model.instances
+		].forEach[l|Assert.assertEquals(1, l.size)]
+		Assert.assertSame(model.volumes.get(0), model.instances.get(0).volumes.get(0))
+		Assert.assertSame(model.images.get(0), model.volumes.get(0).image)
+	}
+
+	@Test
+	def void incrementalUpdate() {
+		val previous = '''
+		resource "openstack_compute_keypair_v2" "terraform" {
+			name = "terraform"
+			public_key = "public-key"
+		}
+		resource "openstack_compute_flavor_v2" "small" {
+			name = "small"
+			ram = 512
+			vcpus = 1
+			disk = 4
+		}
+		resource "openstack_compute_flavor_v2" "large" {
+			name = "large"
+			ram = 8096
+			vcpus = 4
+			disk = 40
+		}
+		resource "openstack_compute_instance_v2" "basic" {
+			name = "basic"
+			flavor_id = "${openstack_compute_flavor_v2.small.id}"
+			key_pair = "${openstack_compute_keypair_v2.terraform.name}"
+		}'''
+		val current = previous.toString.replace("ram = 512", "ram = 1024")
+		val baseline = new Text2Hcl(previous).model
+		val model = this.translator.model(baseline)
+		val credential = model.credentials.get(0)
+		val large = model.flavors.get(1)
+		val report = this.translator.update(
+			model,
+			baseline,
+			new Text2Hcl(current).model
+		)
+		Assert.assertFalse(report.full)
+		Assert.assertEquals(1, report.changed)
+		Assert.assertEquals(3, report.reused)
+		// Unchanged elements are kept and references point to the new flavor
+		Assert.assertSame(credential, model.credentials.get(0))
+		Assert.assertSame(large, model.flavors.get(1))
+		Assert.assertSame(model.flavors.get(0), model.instances.get(0).flavor)
+		Assert.assertEquals(2, model.flavors.size)
+		// Round-trip test
+		val text = new Hcl2Text().source(this.inverseTranslator.specification(model))
+		Assert.assertEquals(current, text)
+	}
+
+	@Test
+	def void incrementalUpdateWithForwardReferences() {
+		val previous = '''
+		resource "openstack_compute_keypair_v2" "terraform" {
+			name = "terraform"
+			public_key = "public-key"
+		}
+		resource "openstack_compute_keypair_v2" "other" {
+			name = "other"
+			public_key = "other-key"
+		}
+		resource "openstack_compute_instance_v2" "basic" {
+			name = "basic"
+			flavor_id = "${openstack_compute_flavor_v2.small.id}"
+			key_pair = "${openstack_compute_keypair_v2.terraform.name}"
+		}
+		resource "openstack_compute_flavor_v2" "small" {
+			name = "small"
+			ram = 512
+			vcpus = 1
+			disk = 4
+		}
+		resource "openstack_compute_flavor_v2" "large" {
+			name = "large"
+			ram = 8096
+			vcpus = 4
+			disk = 40
+		}'''
+		// Both the instance and the flavor it references (declared after the
+		// instance) change
+		val current = previous.toString
+			.replace("ram = 512", "ram = 1024")
+			.replace("keypair_v2.terraform.name", "keypair_v2.other.name")
+		val baseline = new Text2Hcl(previous).model
+		val model = this.translator.model(baseline)
+		val report = this.translator.update(
+			model,
+			baseline,
+			new Text2Hcl(current).model
+		)
+		Assert.assertFalse(report.full)
+		Assert.assertEquals(2, report.changed)
+		Assert.assertEquals(2, model.flavors.size)
+		Assert.assertEquals(1, model.instances.size)
+		val small = model.flavors.findFirst[f|f.name == "small"]
+		val instance = model.instances.get(0)
+		Assert.assertEquals(0, small.ram.compareTo(StorageUnits.megabyte(1024L)))
+		Assert.assertSame(small, instance.flavor)
+		Assert.assertEquals("other", instance.credential.name)
+	}
+}
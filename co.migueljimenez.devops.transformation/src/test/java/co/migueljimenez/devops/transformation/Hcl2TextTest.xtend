@@ -23,6 +23,7 @@ package co.migueljimenez.devops.transformation
 
 import co.migueljimenez.devops.hcl.model.HclModelElements
 import co.migueljimenez.devops.hcl.model.Value
+import java.io.StringWriter
 import org.junit.Assert
 import org.junit.Test
 
@@ -95,4 +96,40 @@ class Hcl2TextTest {
 		Assert.assertEquals(expected, text)
 	}
 
+	@Test
+	def void write() {
+		val e = new HclModelElements
+		val resource = e.resource(
+			"resource",
+			"openstack_compute_instance_v2",
+			"terraform",
+			e.<Value>dictionary(null, #[
+				e.entry("name", e.text("terraform")),
+				e.entry("description", e.text(null)),
+				e.entry("security_groups", e.list(#[])),
+				e.entry("count", e.number(null)),
+				e.entry("network", e.dictionary(
+					null,
+					e.entry("name", e.text("public")),
+					e.entry("metadata", e.dictionary(
+						null,
+						e.entry("size", e.number("2"))
+					))
+				))
+			])
+		)
+		val writer = new StringWriter
+		new Hcl2Text().write(e.specification(resource), writer)
+		val expected = '''
+		resource "openstack_compute_instance_v2" "terraform" {
+			name = "terraform"
+			network {
+				name = "public"
+				metadata {
+					size = 2
+				}
+			}
+		}'''
+		Assert.assertEquals(expected, writer.toString)
+	}
 }
\ No newline at end of file
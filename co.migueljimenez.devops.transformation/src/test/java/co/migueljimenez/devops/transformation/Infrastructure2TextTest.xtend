@@ -0,0 +1,104 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package co.migueljimenez.devops.transformation
+
+import de.xn__ho_hia.storage_unit.StorageUnits
+import org.junit.Assert
+import org.junit.Test
+
+/**
+ * Tests {@link Infrastructure2Text}
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-03
+ * @version $Id$
+ * @since 0.0.1
+ */
+class Infrastructure2TextTest {
+
+	/**
+	 * The template used to instantiate the model.
+	 */
+	val String source = '''
+		resource "openstack_compute_keypair_v2" "terraform" {
+			name = "terraform"
+			public_key = "public-key"
+		}
+		resource "openstack_compute_flavor_v2" "small" {
+			name = "small"
+			ram = 512
+			vcpus = 1
+			disk = 4
+		}
+		resource "openstack_compute_flavor_v2" "large" {
+			name = "large"
+			ram = 8096
+			vcpus = 4
+			disk = 40
+		}
+		resource "openstack_compute_instance_v2" "basic" {
+			name = "basic"
+			flavor_id = "${openstack_compute_flavor_v2.small.id}"
+			key_pair = "${openstack_compute_keypair_v2.terraform.name}"
+		}'''
+
+	@Test
+	def void unchanged() {
+		val model = new Hcl2Infrastructure().model(new Text2Hcl(this.source).model)
+		val translator = new Infrastructure2Text(model)
+		Assert.assertEquals(this.source, translator.source)
+		Assert.assertEquals(4, translator.translated)
+		Assert.assertEquals(this.source, translator.source)
+		Assert.assertEquals(0, translator.translated)
+	}
+
+	@Test
+	def void attributeChange() {
+		val model = new Hcl2Infrastructure().model(new Text2Hcl(this.source).model)
+		val translator = new Infrastructure2Text(model)
+		translator.source
+		model.flavors.get(0).ram = StorageUnits.megabyte(1024)
+		Assert.assertEquals(this.source.replace("ram = 512", "ram = 1024"), translator.source)
+		Assert.assertEquals(1, translator.translated)
+	}
+
+	@Test
+	def void nameChange() {
+		val model = new Hcl2Infrastructure().model(new Text2Hcl(this.source).model)
+		val translator = new Infrastructure2Text(model)
+		translator.source
+		model.flavors.get(0).name = "tiny"
+		// The instance references the flavor by name
+		Assert.assertEquals(this.source.replace("small", "tiny"), translator.source)
+		Assert.assertEquals(2, translator.translated)
+	}
+
+	@Test
+	def void removal() {
+		val model = new Hcl2Infrastructure().model(new Text2Hcl(this.source).model)
+		val translator = new Infrastructure2Text(model)
+		translator.source
+		model.flavors.remove(1)
+		val expected = new Hcl2Text().source(new Infrastructure2Hcl().specification(model))
+		Assert.assertEquals(expected, translator.source)
+		Assert.assertEquals(0, translator.translated)
+	}
+}
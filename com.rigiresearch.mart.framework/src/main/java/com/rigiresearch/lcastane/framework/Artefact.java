@@ -23,6 +23,7 @@ package com.rigiresearch.lcastane.framework;
 
 import com.rigiresearch.lcastane.framework.validation.ValidationException;
 import java.io.Serializable;
+import java.util.List;
 
 /**
  * Defines the basic behavior for a runtime artefact.
@@ -46,6 +47,20 @@ public interface Artefact extends Serializable {
      */
     void apply(Command command) throws ValidationException;
 
+    /**
+     * Applies the given commands, in order. Implementations may defer any
+     * side effect of the individual commands until the whole batch has been
+     * applied.
+     * @param commands The commands to apply
+     * @throws ValidationException If any of the operations cannot be
+     *  performed. The commands preceding the failing one remain applied
+     */
+    default void applyAll(List<Command> commands) throws ValidationException {
+        for (Command command : commands) {
+            this.apply(command);
+        }
+    }
+
     /**
      * Sets the MART instance associated with this artefact.
      * This is added for facilitating traversing from specification to artefact
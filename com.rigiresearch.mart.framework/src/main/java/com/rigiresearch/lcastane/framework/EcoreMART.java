@@ -22,6 +22,7 @@
 package com.rigiresearch.lcastane.framework;
 
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 
 import com.rigiresearch.lcastane.framework.validation.ValidationException;
 
@@ -41,10 +42,17 @@ public interface EcoreMART<S extends Specification, A extends Artefact>
 	extends MART<S, A> {
 
 	/**
-	 * The Ecore-based artefact serialized as XMI.
-	 * @return A XML string
+	 * The Ecore-based artefact, serialized according to {@link #format()}.
+	 * @return A non-empty array of bytes
 	 */
-	public String serializedArtefact();
+	public byte[] serializedArtefact();
+
+	/**
+	 * The format in which the artefact is serialized. The receiver decodes
+	 * the artefact according to this format.
+	 * @return A non-null format
+	 */
+	public Format format();
 
 	/**
 	 * Class name of the Ecore package. <b>Notice</b> that the class name should
@@ -71,6 +79,28 @@ public interface EcoreMART<S extends Specification, A extends Artefact>
 	 */
 	public String martClassName();
 
+	/**
+	 * The formats in which an Ecore-based artefact can be serialized.
+	 * @author Miguel Jimenez (miguel@uvic.ca)
+	 * @date 2018-07-21
+	 * @version $Id$
+	 * @since 0.0.1
+	 */
+	public static enum Format {
+		/**
+		 * XMI, encoded as UTF-8.
+		 */
+		XMI,
+		/**
+		 * EMF binary resource.
+		 */
+		BINARY,
+		/**
+		 * EMF binary resource, compressed.
+		 */
+		COMPRESSED_BINARY
+	}
+
 	/**
 	 * A default implementation of the Ecore-based MART.
 	 * @author Miguel Jimenez (miguel@uvic.ca)
@@ -93,9 +123,14 @@ public interface EcoreMART<S extends Specification, A extends Artefact>
 		private final S specification;
 
 		/**
-		 * The artefact serialized as XMI.
+		 * The serialized artefact.
 		 */
-		private final String serializedArtefact;
+		private final byte[] serializedArtefact;
+
+		/**
+		 * The format in which the artefact is serialized.
+		 */
+		private final Format format;
 
 		/**
 		 * Class name of the Ecore package. <b>Notice</b> that the class name should
@@ -118,6 +153,29 @@ public interface EcoreMART<S extends Specification, A extends Artefact>
 		 */
 		private final String martClassName;
 
+		/**
+		 * Secondary constructor for artefacts serialized as XMI.
+		 * @param specification The {@link Serializable} specification
+		 * @param serializedArtefact The artefact serialized as XMI
+		 * @param packageImplClassName Class name of the Ecore package
+		 * @param modelClassName Class name of the Ecore model
+		 * @param decoratorClassName Class name of the {@link Artefact}
+		 * @param martClassName Class name of the {@link MART}
+		 */
+		public Default(final S specification, final String serializedArtefact,
+			final String packageImplClassName, final String modelClassName,
+			final String decoratorClassName, final String martClassName) {
+			this(
+				specification,
+				serializedArtefact.getBytes(StandardCharsets.UTF_8),
+				Format.XMI,
+				packageImplClassName,
+				modelClassName,
+				decoratorClassName,
+				martClassName
+			);
+		}
+
 		/* (non-Javadoc)
 		 * @see com.rigiresearch.lcastane.framework.MART#artefact()
 		 */
@@ -146,10 +204,18 @@ public interface EcoreMART<S extends Specification, A extends Artefact>
 		 * @see com.rigiresearch.lcastane.framework.EcoreMART#serializedArtefact()
 		 */
 		@Override
-		public String serializedArtefact() {
+		public byte[] serializedArtefact() {
 			return this.serializedArtefact;
 		}
 
+		/* (non-Javadoc)
+		 * @see com.rigiresearch.lcastane.framework.EcoreMART#format()
+		 */
+		@Override
+		public Format format() {
+			return this.format;
+		}
+
 		/* (non-Javadoc)
 		 * @see com.rigiresearch.lcastane.framework.EcoreMART#packageClassName()
 		 */
@@ -21,10 +21,16 @@
  */
 package com.rigiresearch.lcastane.framework.impl;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.xtext.xbase.lib.Procedures.Procedure1;
 import org.slf4j.Logger;
@@ -34,13 +40,17 @@ import com.rigiresearch.lcastane.framework.Artefact;
 import com.rigiresearch.lcastane.framework.MART;
 import com.rigiresearch.lcastane.framework.Rule;
 import com.rigiresearch.lcastane.framework.Specification;
+import com.rigiresearch.lcastane.framework.validation.RuleEngine;
 import com.rigiresearch.lcastane.framework.validation.ValidationException;
 
 import lombok.Setter;
 
 /**
  * An abstract implementation of {@link MART} whose artefact and specification
- * are kept in sync.
+ * are kept in sync. Changes are propagated in the background, one at a time
+ * and in order; consecutive pending propagations in the same direction are
+ * coalesced. Implementations can fingerprint the contents of the artefact
+ * and the specification to skip the propagations that change nothing.
  * 
  * @author Miguel Jimenez (miguel@uvic.ca)
  * @date 2018-06-01
@@ -87,6 +97,33 @@ public abstract class AbstractMART<S extends Specification, A extends Artefact>
 	 */
 	protected final List<Rule<A>> validations;
 
+	/**
+	 * Propagates the changes between the artefact and the specification.
+	 */
+	private transient SequencedExecutor propagation;
+
+	/**
+	 * Evaluates the semantic validations.
+	 */
+	private transient RuleEngine<A> engine;
+
+	/**
+	 * The fingerprint of the specification's text as of the last
+	 * synchronization.
+	 */
+	private transient byte[] specificationFingerprint;
+
+	/**
+	 * The fingerprint of the serialized artefact as of the last
+	 * synchronization.
+	 */
+	private transient byte[] artefactFingerprint;
+
+	/**
+	 * The number of propagations skipped because nothing changed.
+	 */
+	private final AtomicLong skipped = new AtomicLong();
+
 	/**
 	 * Default constructor.
 	 * @param specification The specification associated with this MART.
@@ -108,30 +145,154 @@ public abstract class AbstractMART<S extends Specification, A extends Artefact>
 	 * @see java.util.Observer#update(java.util.Observable, java.lang.Object)
 	 */
 	@Override
-	@SuppressWarnings("unchecked")
 	public void update(Observable observable, Object argument) {
-		Map<String, Object> context = (Map<String, Object>) argument;
+		this.propagate(observable, argument);
+	}
+
+	/**
+	 * Schedules the propagation of a change in the artefact or the
+	 * specification.
+	 * @param observable The changed artefact or specification
+	 * @param argument The context associated with the change
+	 * @return A future completed once the change has been propagated
+	 */
+	@SuppressWarnings("unchecked")
+	public CompletableFuture<Void> propagate(Observable observable, Object argument) {
+		final Map<String, Object> context = argument instanceof Map<?, ?>
+			? (Map<String, Object>) argument
+			: new HashMap<>();
 		if (observable instanceof ObservableArtefact<?>) {
-			ObservableArtefact<A> a = (ObservableArtefact<A>) observable;
-			this.logger.info(
-				String.format("The %s artefact was updated", a.name())
-			);
-			this.updateSpecification.apply(context);
+			final ObservableArtefact<A> a = (ObservableArtefact<A>) observable;
+			return this.propagation().submit(a, context, c -> {
+				this.logger.info(
+					String.format("The %s artefact was updated", a.name())
+				);
+				this.updateSpecification.apply(c);
+			});
 		} else if (observable instanceof ObservableSpecification<?>) {
-			ObservableSpecification<S> s = (ObservableSpecification<S>) observable;
-			this.logger.info(
-				String.format("The %s specification was updated", s.name())
-			);
-			this.updateArtefact.apply(context);
+			final ObservableSpecification<S> s = (ObservableSpecification<S>) observable;
+			return this.propagation().submit(s, context, c -> {
+				this.logger.info(
+					String.format("The %s specification was updated", s.name())
+				);
+				this.updateArtefact.apply(c);
+			});
 		} else {
 			// Should not happen as this MART should only observe its artefact and
 			// specification
 			this.logger.info(
 				String.format("The unknown observable %s was updated", observable)
 			);
+			return CompletableFuture.completedFuture(null);
 		}
 	}
 
+	/**
+	 * Returns a future completed once the changes made so far have been
+	 * propagated.
+	 * @return A (possibly completed) future
+	 */
+	public CompletableFuture<Void> synced() {
+		return this.propagation().flush();
+	}
+
+	/**
+	 * Stops propagating new changes. The pending ones are still propagated.
+	 */
+	public void shutdown() {
+		this.propagation().shutdown();
+	}
+
+	/**
+	 * Propagates the artefact to the specification in the background, once
+	 * the artefact was modified without notifying this MART (e.g., when the
+	 * logged commands are replayed after a restart). The current contents of
+	 * the specification are taken as synchronized, thus it is only updated if
+	 * the artefact translates to a different text.
+	 * @return A future completed once the artefact has been propagated
+	 */
+	public CompletableFuture<Void> resume() {
+		this.assumeSpecificationSynchronized();
+		return this.propagate(this.artefact, new HashMap<>());
+	}
+
+	/**
+	 * Records the fingerprint of the specification's current contents. By
+	 * default, nothing is recorded.
+	 */
+	protected void assumeSpecificationSynchronized() {
+	}
+
+	/**
+	 * Whether the specification changed since the last synchronization.
+	 * @param fingerprint The fingerprint of the specification's text (see
+	 *  {@link Fingerprints#text(CharSequence)})
+	 * @return Whether the fingerprint differs from the recorded one
+	 */
+	protected synchronized boolean specificationChanged(final byte[] fingerprint) {
+		return !Arrays.equals(fingerprint, this.specificationFingerprint);
+	}
+
+	/**
+	 * Records the fingerprint of the specification's text, once it is
+	 * synchronized with the artefact.
+	 * @param fingerprint The fingerprint of the specification's text
+	 */
+	protected synchronized void specificationSynchronized(final byte[] fingerprint) {
+		this.specificationFingerprint = fingerprint;
+	}
+
+	/**
+	 * Whether the artefact changed since the last synchronization.
+	 * @param fingerprint The fingerprint of the serialized artefact (see
+	 *  {@link Fingerprints#bytes(byte[])})
+	 * @return Whether the fingerprint differs from the recorded one
+	 */
+	protected synchronized boolean artefactChanged(final byte[] fingerprint) {
+		return !Arrays.equals(fingerprint, this.artefactFingerprint);
+	}
+
+	/**
+	 * Records the fingerprint of the serialized artefact, once it is
+	 * synchronized with the specification.
+	 * @param fingerprint The fingerprint of the serialized artefact
+	 */
+	protected synchronized void artefactSynchronized(final byte[] fingerprint) {
+		this.artefactFingerprint = fingerprint;
+	}
+
+	/**
+	 * Records a propagation that was skipped because nothing changed.
+	 * @param reason Why the propagation was skipped
+	 */
+	protected void skip(final String reason) {
+		final long count = this.skipped.incrementAndGet();
+		this.logger.info(
+			String.format("Synchronization skipped: %s (%d skipped so far)", reason, count)
+		);
+	}
+
+	/**
+	 * The number of propagations skipped because nothing changed.
+	 * @return A positive number, or zero
+	 */
+	public long skippedSyncs() {
+		return this.skipped.get();
+	}
+
+	/**
+	 * Returns the executor propagating the changes of this MART, creating it
+	 * if necessary (e.g., after deserialization).
+	 */
+	private synchronized SequencedExecutor propagation() {
+		if (this.propagation == null) {
+			this.propagation = new SequencedExecutor(
+				String.format("%s-propagation", this.getClass().getSimpleName())
+			);
+		}
+		return this.propagation;
+	}
+
 	/* (non-Javadoc)
 	 * @see com.rigiresearch.lcastane.framework.MART#artefact()
 	 */
@@ -148,14 +309,38 @@ public abstract class AbstractMART<S extends Specification, A extends Artefact>
 		return this.specification;
 	}
 
-	/* (non-Javadoc)
+	/**
+	 * Validates the artefact while holding its monitor, as commands do when
+	 * they modify it, so that the rules evaluated in parallel see a stable
+	 * model.
 	 * @see com.rigiresearch.lcastane.framework.MART#validate()
 	 */
 	@Override
 	public void validate() throws ValidationException {
-		for (Rule<A> rule : this.validations) {
-			if (!rule.apply(this.artefact.origin()))
-				throw new ValidationException(this.artefact.origin(), rule);
+		synchronized (this.artefact.origin()) {
+			this.ruleEngine().validate(this.artefact.origin(), this.changed());
 		}
 	}
+
+	/**
+	 * Returns the engine evaluating the semantic validations, creating it if
+	 * necessary (e.g., after deserialization). Independent validations are
+	 * evaluated in parallel.
+	 * @return A rule engine
+	 */
+	public synchronized RuleEngine<A> ruleEngine() {
+		if (this.engine == null)
+			this.engine = new RuleEngine<>(this.validations, ForkJoinPool.commonPool());
+		return this.engine;
+	}
+
+	/**
+	 * Returns the elements of the artefact that changed since the last
+	 * validation, so that only those are validated again. By default, the
+	 * whole artefact is validated.
+	 * @return A collection of changed elements, or {@code null} if unknown
+	 */
+	protected Collection<?> changed() {
+		return null;
+	}
 }
@@ -23,10 +23,19 @@ package com.rigiresearch.lcastane.framework.impl;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,14 +49,18 @@ import lombok.ToString;
 import lombok.experimental.Accessors;
 
 /**
- * A file-based specification.
+ * A file-based specification, encoded in UTF-8.
+ * <p>
+ * The contents are read once and cached until the file changes (i.e., its
+ * file key, last modified time or size change). Large files are read
+ * through a memory-mapped channel.
  * @author Miguel Jimenez (miguel@uvic.ca)
  * @date 2018-06-02
  * @version $Id$
  * @since 0.0.1
  */
 @Accessors(fluent = true)
-@ToString
+@ToString(exclude = "cache")
 public class FileSpecification implements Specification {
 
 	/**
@@ -55,6 +68,11 @@ public class FileSpecification implements Specification {
 	 */
 	private static final long serialVersionUID = 138421129024385117L;
 
+	/**
+	 * The size (in bytes) from which files are memory-mapped.
+	 */
+	private static final long MAPPING_THRESHOLD = 1024 * 1024;
+
 	/**
 	 * The logger.
 	 */
@@ -70,6 +88,11 @@ public class FileSpecification implements Specification {
 	@Getter
 	private MART<?, ?> parent;
 
+	/**
+	 * The contents as of the last time the file was read.
+	 */
+	private transient volatile Cache cache;
+
 	/**
 	 * default constructor.
 	 * @param file The physical file represented by this specification.
@@ -91,18 +114,62 @@ public class FileSpecification implements Specification {
 	 */
 	@Override
 	public String contents() {
+		return this.contentsView().toString();
+	}
+
+	/**
+	 * Returns the contents of this specification without copying them. The
+	 * file is only read if it changed since the last time it was read.
+	 * @return The (possibly cached) contents
+	 */
+	public CharSequence contentsView() {
+		final Path path = Paths.get(this.file.toURI());
 		try {
-			return new String(
-				Files.readAllBytes(
-					Paths.get(this.file.toURI())
-				)
+			final BasicFileAttributes attributes =
+				Files.readAttributes(path, BasicFileAttributes.class);
+			final Cache current = this.cache;
+			if (current != null && current.valid(path, attributes))
+				return current.contents;
+			// The attributes are read first, thus a concurrent change makes
+			// the next call read the file again
+			final Cache updated = new Cache(
+				path,
+				attributes,
+				FileSpecification.read(path, attributes.size())
 			);
+			this.cache = updated;
+			return updated.contents;
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 		return new String();
 	}
 
+	/**
+	 * Reads and decodes the given file.
+	 * @param path The file path
+	 * @param size The file size, in bytes
+	 * @return The contents of the file
+	 * @throws IOException If the file cannot be read
+	 */
+	private static String read(final Path path, final long size)
+		throws IOException {
+		if (size < FileSpecification.MAPPING_THRESHOLD)
+			return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final MappedByteBuffer buffer = channel.map(
+				FileChannel.MapMode.READ_ONLY,
+				0,
+				channel.size()
+			);
+			return StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE)
+				.decode(buffer)
+				.toString();
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see com.rigiresearch.lcastane.framework.Specification
 	 *  #update(java.lang.String)
@@ -119,7 +186,11 @@ public class FileSpecification implements Specification {
 	@Override
 	public void update(String contents, Map<String, Object> data) {
 		try {
-			Files.write(Paths.get(this.file.toURI()), contents.getBytes());
+			this.cache = null;
+			Files.write(
+				Paths.get(this.file.toURI()),
+				contents.getBytes(StandardCharsets.UTF_8)
+			);
 			this.logger.info(
 				String.format(
 					"The specification file (%s) was updated",
@@ -135,4 +206,68 @@ public class FileSpecification implements Specification {
 	public void setMart(MART<?, ?> parent) {
 		this.parent = parent;
 	}
+
+	/**
+	 * The contents of a file and the attributes it had when it was read.
+	 * 
+	 * @author Miguel Jimenez (miguel@uvic.ca)
+	 * @date 2018-07-26
+	 * @version $Id$
+	 * @since 0.0.1
+	 */
+	private static final class Cache {
+
+		/**
+		 * The file path.
+		 */
+		private final Path path;
+
+		/**
+		 * The file key, if the file system supports it.
+		 */
+		private final Object key;
+
+		/**
+		 * The last modified time.
+		 */
+		private final FileTime modified;
+
+		/**
+		 * The file size, in bytes.
+		 */
+		private final long size;
+
+		/**
+		 * The decoded contents.
+		 */
+		private final String contents;
+
+		/**
+		 * Default constructor.
+		 * @param path The file path
+		 * @param attributes The file attributes
+		 * @param contents The decoded contents
+		 */
+		Cache(final Path path, final BasicFileAttributes attributes,
+			final String contents) {
+			this.path = path;
+			this.key = attributes.fileKey();
+			this.modified = attributes.lastModifiedTime();
+			this.size = attributes.size();
+			this.contents = contents;
+		}
+
+		/**
+		 * Whether the cached contents correspond to the given file.
+		 * @param path The file path
+		 * @param attributes The current file attributes
+		 * @return Whether the file did not change
+		 */
+		boolean valid(final Path path, final BasicFileAttributes attributes) {
+			return this.path.equals(path)
+				&& Objects.equals(this.key, attributes.fileKey())
+				&& this.modified.equals(attributes.lastModifiedTime())
+				&& this.size == attributes.size();
+		}
+	}
 }
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.rigiresearch.lcastane.framework.impl;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Computes content fingerprints to detect whether an artefact or a
+ * specification actually changed.
+ * 
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-26
+ * @version $Id$
+ * @since 0.0.1
+ */
+public final class Fingerprints {
+
+	/**
+	 * The digest algorithm.
+	 */
+	private static final String ALGORITHM = "SHA-256";
+
+	/**
+	 * The size of the buffer used to digest text.
+	 */
+	private static final int BUFFER_SIZE = 4096;
+
+	/**
+	 * Utility class.
+	 */
+	private Fingerprints() {}
+
+	/**
+	 * Fingerprints the given text, ignoring the white space outside double
+	 * quotes. That is, two texts differing only in their formatting (e.g.,
+	 * indentation, alignment and line separators) have the same fingerprint.
+	 * The white space in the body of multi-line strings (heredocs) is kept,
+	 * except for the line separators.
+	 * @param text The text to fingerprint
+	 * @return The digest of the normalized text
+	 */
+	public static byte[] text(final CharSequence text) {
+		final Digester digester = new Digester();
+		final int length = text.length();
+		boolean quoted = false;
+		boolean escaped = false;
+		String marker = null;
+		int i = 0;
+		while (i < length) {
+			final char c = text.charAt(i);
+			if (marker != null && c == '\n') {
+				// The body starts on the line following the heredoc's marker
+				i = Fingerprints.heredoc(text, i + 1, marker, digester);
+				marker = null;
+				continue;
+			}
+			if (quoted) {
+				if (escaped)
+					escaped = false;
+				else if (c == '\\')
+					escaped = true;
+				else if (c == '"')
+					quoted = false;
+			} else if (Character.isWhitespace(c)) {
+				i++;
+				continue;
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == '<' && i + 1 < length && text.charAt(i + 1) == '<') {
+				int start = i + 2;
+				if (start < length && text.charAt(start) == '-')
+					start++;
+				int end = start;
+				while (end < length && Fingerprints.identifier(text.charAt(end)))
+					end++;
+				if (end > start) {
+					marker = text.subSequence(start, end).toString();
+					for (; i < end; i++)
+						digester.update(text.charAt(i));
+					continue;
+				}
+			}
+			digester.update(c);
+			i++;
+		}
+		return digester.digest();
+	}
+
+	/**
+	 * Digests the body of a heredoc, keeping its white space, up to the line
+	 * closing it (i.e., the line containing the marker only).
+	 * @param text The text containing the heredoc
+	 * @param from The position of the body's first line
+	 * @param marker The heredoc's marker
+	 * @param digester The digester
+	 * @return The position following the marker that closes the heredoc
+	 */
+	private static int heredoc(final CharSequence text, final int from,
+		final String marker, final Digester digester) {
+		final int length = text.length();
+		int start = from;
+		while (start < length) {
+			int end = start;
+			while (end < length && text.charAt(end) != '\n')
+				end++;
+			// Line separators are normalized
+			final int last = end > start && text.charAt(end - 1) == '\r' ? end - 1 : end;
+			final String line = text.subSequence(start, last).toString();
+			if (line.trim().equals(marker)) {
+				for (int i = 0; i < marker.length(); i++)
+					digester.update(marker.charAt(i));
+				return end;
+			}
+			for (int i = 0; i < line.length(); i++)
+				digester.update(line.charAt(i));
+			digester.update('\n');
+			start = end + 1;
+		}
+		return length;
+	}
+
+	/**
+	 * Whether the given character can be part of a heredoc's marker.
+	 * @param c The character
+	 * @return Whether it is a letter, a digit or an underscore
+	 */
+	private static boolean identifier(final char c) {
+		return Character.isLetterOrDigit(c) || c == '_';
+	}
+
+	/**
+	 * Fingerprints the given bytes (e.g., a serialized model).
+	 * @param bytes The bytes to fingerprint
+	 * @return The digest of the bytes
+	 */
+	public static byte[] bytes(final byte[] bytes) {
+		return Fingerprints.digest().digest(bytes);
+	}
+
+	/**
+	 * Creates a new message digest.
+	 * @return A message digest
+	 */
+	private static MessageDigest digest() {
+		try {
+			return MessageDigest.getInstance(Fingerprints.ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Digests text, one character at a time.
+	 * 
+	 * @author Miguel Jimenez (miguel@uvic.ca)
+	 * @date 2018-07-26
+	 * @version $Id$
+	 * @since 0.0.1
+	 */
+	private static final class Digester {
+
+		/**
+		 * The message digest.
+		 */
+		private final MessageDigest digest = Fingerprints.digest();
+
+		/**
+		 * The characters not yet digested.
+		 */
+		private final byte[] buffer = new byte[Fingerprints.BUFFER_SIZE];
+
+		/**
+		 * The number of bytes in the buffer.
+		 */
+		private int position;
+
+		/**
+		 * Adds the given character.
+		 * @param c The character
+		 */
+		void update(final char c) {
+			if (this.position + 2 > this.buffer.length) {
+				this.digest.update(this.buffer, 0, this.position);
+				this.position = 0;
+			}
+			this.buffer[this.position++] = (byte) (c >>> 8);
+			this.buffer[this.position++] = (byte) c;
+		}
+
+		/**
+		 * Completes the digest.
+		 * @return The digest of the added characters
+		 */
+		byte[] digest() {
+			this.digest.update(this.buffer, 0, this.position);
+			return this.digest.digest();
+		}
+	}
+}
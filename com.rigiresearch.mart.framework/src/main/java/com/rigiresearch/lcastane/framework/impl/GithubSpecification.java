@@ -21,19 +21,28 @@
  */
 package com.rigiresearch.lcastane.framework.impl;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.configuration2.Configuration;
 import org.apache.commons.configuration2.builder.fluent.Configurations;
 import org.apache.commons.configuration2.ex.ConfigurationException;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.Status;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.api.errors.NoFilepatternException;
-import org.eclipse.jgit.merge.MergeStrategy;
 import org.eclipse.jgit.transport.CredentialsProvider;
 import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 import org.slf4j.Logger;
@@ -47,6 +56,15 @@ import lombok.experimental.Accessors;
 
 /**
  * A simple decorator to commit and push changes to a Github repository.
+ * <p>
+ * In write-behind mode (see github.properties), updates are written to the
+ * working tree right away, whereas the changes are committed and pushed in
+ * a single commit per time or size window. Failed pushes are rescheduled with
+ * an exponential backoff, so that the thread committing the updates of every
+ * specification is never blocked waiting for a retry, and pending changes are
+ * flushed on shutdown. Only
+ * the specification's file is committed, thus several specifications can
+ * share the same repository.
  * @author Miguel Jimenez (miguel@uvic.ca)
  * @date 2018-06-02
  * @version $Id$
@@ -81,6 +99,52 @@ public class GithubSpecification implements Specification {
 	 */
 	private final boolean skipCi;
 
+	/**
+	 * Whether commits are deferred and squashed.
+	 */
+	private final boolean writeBehind;
+
+	/**
+	 * The maximum time an update waits to be committed, in milliseconds.
+	 */
+	private final long windowTime;
+
+	/**
+	 * The maximum number of updates per commit.
+	 */
+	private final int windowSize;
+
+	/**
+	 * The number of times a failed commit and push is retried.
+	 */
+	private final int retries;
+
+	/**
+	 * The delay before the first retry, in milliseconds. It doubles on each
+	 * retry.
+	 */
+	private final long backoff;
+
+	/**
+	 * The authors of the pending updates, with their emails.
+	 */
+	private final Map<String, String> authors;
+
+	/**
+	 * The number of pending updates.
+	 */
+	private int pending;
+
+	/**
+	 * The scheduled commit of the pending updates.
+	 */
+	private transient ScheduledFuture<?> scheduled;
+
+	/**
+	 * The number of consecutive failed attempts to push the pending updates.
+	 */
+	private int attempts;
+
 	/**
 	 * Default constructor.
 	 * 
@@ -92,18 +156,29 @@ public class GithubSpecification implements Specification {
 	 */
 	public GithubSpecification(final FileSpecification origin,
 		final boolean skipCi) {
+		this(origin, skipCi, GithubSpecification.configuration());
+	}
+
+	/**
+	 * Creates a specification with the given configuration.
+	 * @param origin The decorated specification
+	 * @param skipCi Whether to skip CI
+	 * @param config The Github configuration (see github.properties)
+	 */
+	GithubSpecification(final FileSpecification origin, final boolean skipCi,
+		final Configuration config) {
 		this.origin = origin;
 		this.skipCi = skipCi;
-		Configuration config = null;
-		try {
-			config = new Configurations().properties("github.properties");
-		} catch (ConfigurationException e) {
-			throw new RuntimeException(e.getMessage(), e.getCause());
-		}
 		this.credentialsProvider = new UsernamePasswordCredentialsProvider(
 			config.getString("authentication-token"),
 			new String()
 		);
+		this.writeBehind = config.getBoolean("write-behind", false);
+		this.windowTime = config.getLong("window-time", 5000);
+		this.windowSize = config.getInt("window-size", 50);
+		this.retries = config.getInt("retries", 3);
+		this.backoff = config.getLong("backoff", 1000);
+		this.authors = new LinkedHashMap<>();
 	}
 
 	/**
@@ -115,6 +190,18 @@ public class GithubSpecification implements Specification {
 		this(origin, false);
 	}
 
+	/**
+	 * Reads the Github configuration from github.properties.
+	 * @return The configuration
+	 */
+	private static Configuration configuration() {
+		try {
+			return new Configurations().properties("github.properties");
+		} catch (ConfigurationException e) {
+			throw new RuntimeException(e.getMessage(), e.getCause());
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see com.rigiresearch.lcastane.framework.Specification#name()
 	 */
@@ -146,27 +233,203 @@ public class GithubSpecification implements Specification {
 	 */
 	@Override
 	public void update(String contents, Map<String, Object> data) {
-		try(Git git = Git.open(this.origin.file().getParentFile())) {
-			git.pull()
-				.setStrategy(MergeStrategy.THEIRS)
-				.setCredentialsProvider(credentialsProvider)
-				.call();
-			this.origin.update(contents, data);
-			if (git.status().call().isClean())
-				return;
-			this.addAndCommit(git, data);
-			git.push()
-				.setCredentialsProvider(credentialsProvider)
-				.call();
-			this.logger.info("The changes were pushed to Github");
+		if (this.writeBehind) {
+			this.defer(contents, data);
+			return;
+		}
+		try {
+			Repositories.with(this.origin.file().getParentFile(), git -> {
+				Repositories.update(git, this.credentialsProvider);
+				this.origin.update(contents, data);
+				if (git.status().addPath(this.path(git)).call().isClean())
+					return null;
+				Repositories.timed("commit", git, g -> {
+					this.addAndCommit(g, data);
+					return null;
+				});
+				Repositories.timed("push", git, g ->
+					g.push()
+						.setCredentialsProvider(this.credentialsProvider)
+						.call()
+				);
+				this.logger.info("The changes were pushed to Github");
+				return null;
+			});
 		} catch (IOException | GitAPIException e) {
 			e.printStackTrace();
-		}		
+		}
+	}
+
+	/**
+	 * Writes the contents to the working tree and schedules the commit.
+	 * @param contents The new contents
+	 * @param data Additional information to commit
+	 */
+	private synchronized void defer(String contents, Map<String, Object> data) {
+		this.origin.update(contents, data);
+		GithubSpecification.authors(data).forEach(this.authors::putIfAbsent);
+		this.pending++;
+		WriteBehind.PENDING.add(this);
+		if (this.pending >= this.windowSize) {
+			if (this.scheduled != null)
+				this.scheduled.cancel(false);
+			this.scheduled = WriteBehind.FLUSHER.submit(this::flush);
+		} else if (this.scheduled == null || this.scheduled.isDone()) {
+			this.scheduled = WriteBehind.FLUSHER.schedule(
+				this::flush,
+				this.windowTime,
+				TimeUnit.MILLISECONDS
+			);
+		}
+	}
+
+	/**
+	 * Commits and pushes the pending updates, if any. If the push fails, the
+	 * updates remain pending and the flush is scheduled again with an
+	 * exponential backoff, instead of waiting for the retry on the shared
+	 * thread. Once every retry fails, the updates are flushed again after the
+	 * time window. The pending updates are taken at once, thus new updates
+	 * can be deferred while these are pushed.
+	 */
+	public void flush() {
+		final int count;
+		final Map<String, String> authors;
+		synchronized (this) {
+			if (this.pending == 0) {
+				WriteBehind.PENDING.remove(this);
+				return;
+			}
+			count = this.pending;
+			authors = new LinkedHashMap<>(this.authors);
+			this.pending = 0;
+			this.authors.clear();
+		}
+		try {
+			this.commitAndPush(authors);
+			this.logger.info(
+				String.format("%d updates were pushed to Github", count)
+			);
+			synchronized (this) {
+				this.attempts = 0;
+				if (this.pending == 0)
+					WriteBehind.PENDING.remove(this);
+			}
+		} catch (IOException | GitAPIException e) {
+			synchronized (this) {
+				// The updates deferred in the meantime go after these ones
+				authors.putAll(this.authors);
+				this.authors.clear();
+				this.authors.putAll(authors);
+				this.pending += count;
+				this.attempts++;
+				final long delay;
+				if (this.attempts <= this.retries) {
+					delay = this.backoff << (this.attempts - 1);
+					this.logger.warn(
+						String.format(
+							"Attempt %d to push the changes failed, retrying in %d ms",
+							this.attempts,
+							delay
+						),
+						e
+					);
+				} else {
+					delay = this.windowTime;
+					this.attempts = 0;
+					this.logger.error(
+						String.format(
+							"%d updates could not be pushed to Github, retrying in %d ms",
+							this.pending,
+							delay
+						),
+						e
+					);
+				}
+				if (this.scheduled != null)
+					this.scheduled.cancel(false);
+				this.scheduled = WriteBehind.FLUSHER.schedule(
+					this::flush,
+					delay,
+					TimeUnit.MILLISECONDS
+				);
+			}
+		}
+	}
+
+	/**
+	 * Pulls the remote changes, keeping the local contents of the
+	 * specification, and then pushes a single commit with all the local
+	 * changes. Only the local git operations hold this specification's
+	 * monitor, so that the working tree does not change meanwhile, whereas
+	 * fetching and pushing do not.
+	 * @param authors The authors of the updates, with their emails
+	 * @throws IOException If the repository cannot be opened
+	 * @throws GitAPIException See {@link Git}
+	 */
+	private void commitAndPush(final Map<String, String> authors)
+		throws IOException, GitAPIException {
+		Repositories.with(this.origin.file().getParentFile(), git -> {
+			Repositories.fetch(git, this.credentialsProvider);
+			synchronized (this) {
+				// Same semantics as the synchronous mode: the remote changes are
+				// merged first, and then the specification is overwritten
+				final String contents = this.origin.contents();
+				final String path = this.path(git);
+				git.checkout().addPath(path).call();
+				Repositories.merge(git);
+				this.origin.update(contents);
+				final Status status = git.status().addPath(path).call();
+				if (!status.isClean()) {
+					final Set<String> files = new TreeSet<>();
+					files.addAll(status.getModified());
+					files.addAll(status.getMissing());
+					files.addAll(status.getUntracked());
+					git.add().addFilepattern(path).call();
+					git.add().setUpdate(true).addFilepattern(path).call();
+					final Map<String, Object> data = new HashMap<>();
+					if (!authors.isEmpty()) {
+						final Map.Entry<String, String> first =
+							authors.entrySet().iterator().next();
+						data.put("author", first.getKey());
+						data.put("email", first.getValue());
+					}
+					Repositories.timed("commit", git, g -> {
+						this.commit(
+							g,
+							data,
+							String.format("Update %s", String.join(", ", files)),
+							GithubSpecification.trailers(authors, data.get("author"))
+						);
+						return null;
+					});
+				}
+			}
+			// A previous attempt may have committed without pushing
+			Repositories.timed("push", git, g ->
+				g.push()
+					.setCredentialsProvider(this.credentialsProvider)
+					.call()
+			);
+			return null;
+		});
+	}
+
+	/**
+	 * Returns the path of the specification's file within the given
+	 * repository.
+	 * @param git The git repository
+	 * @return A path relative to the working tree
+	 */
+	private String path(final Git git) {
+		return git.getRepository().getWorkTree().toPath()
+			.relativize(this.origin.file().getAbsoluteFile().toPath())
+			.toString()
+			.replace(File.separatorChar, '/');
 	}
 
 	/**
-	 * Adds updated, removed and new files to the index and then commits the
-	 * changes.
+	 * Adds the specification's file to the index (whether it was updated,
+	 * removed or added) and then commits the changes.
 	 * @param git The git repository
 	 * @param data Additional information to commit
 	 * @throws NoFilepatternException See {@link Git#add()}
@@ -174,29 +437,75 @@ public class GithubSpecification implements Specification {
 	 */
 	private void addAndCommit(final Git git, final Map<String, Object> data)
 		throws NoFilepatternException, GitAPIException {
-		for (String file : git.status().call().getModified()) {
+		final String path = this.path(git);
+		final String trailers = GithubSpecification.trailers(
+			GithubSpecification.authors(data),
+			data.get("author")
+		);
+		for (String file : git.status().addPath(path).call().getModified()) {
 			git.add().addFilepattern(file).call();
-			this.commit(git, data, String.format("Update %s", file));
+			this.commit(git, data, String.format("Update %s", file), trailers);
 		}
-		for (String file : git.status().call().getMissing()) {
+		for (String file : git.status().addPath(path).call().getMissing()) {
 			git.rm().addFilepattern(file).call();
-			this.commit(git, data, String.format("Delete %s", file));
+			this.commit(git, data, String.format("Delete %s", file), trailers);
 		}
-		for (String file : git.status().call().getUntracked()) {
+		for (String file : git.status().addPath(path).call().getUntracked()) {
 			git.add().addFilepattern(file).call();
-			this.commit(git, data, String.format("Add %s", file));
+			this.commit(git, data, String.format("Add %s", file), trailers);
+		}
+	}
+
+	/**
+	 * Returns the authors of an update, with their emails. Updates merged
+	 * before reaching this specification (see {@link SequencedExecutor})
+	 * carry every author under "authors".
+	 * @param data Additional information to commit
+	 * @return The authors, in order
+	 */
+	private static Map<String, String> authors(final Map<String, Object> data) {
+		final Map<String, String> authors = new LinkedHashMap<>();
+		final Object merged = data.get("authors");
+		if (merged instanceof Map<?, ?>) {
+			((Map<?, ?>) merged).forEach((name, email) ->
+				authors.putIfAbsent(String.valueOf(name), String.valueOf(email))
+			);
 		}
+		final Object author = data.get("author");
+		if (author != null)
+			authors.putIfAbsent(author.toString(), String.valueOf(data.get("email")));
+		return authors;
+	}
+
+	/**
+	 * Credits the given authors, but the commit's author, as co-authors.
+	 * @param authors The authors, with their emails
+	 * @param author The commit's author
+	 * @return The trailers, or an empty string if there are no co-authors
+	 */
+	private static String trailers(final Map<String, String> authors,
+		final Object author) {
+		final StringBuilder trailers = new StringBuilder();
+		authors.forEach((name, email) -> {
+			if (!name.equals(author))
+				trailers.append(String.format("%nCo-authored-by: %s <%s>", name, email));
+		});
+		return trailers.length() > 0
+			? String.format("%n%n%s", trailers.toString().trim())
+			: "";
 	}
 
 	/**
-	 * Commits already added changes.
+	 * Commits already added changes. The CI build is skipped through the
+	 * subject line, since trailers must go last in the message.
 	 * @param git The git repository
 	 * @param data Additional information to commit
-	 * @param message The commit message
+	 * @param subject The subject line of the commit message
+	 * @param body The rest of the commit message (e.g., trailers)
 	 * @throws GitAPIException See {@link Git}
 	 */
 	private void commit(final Git git, final Map<String, Object> data,
-		String message) throws GitAPIException {
+		final String subject, final String body) throws GitAPIException {
 		String host = "Unknown";
 		try {
 			host = InetAddress.getLocalHost().getHostName();
@@ -206,9 +515,10 @@ public class GithubSpecification implements Specification {
 			.setCommitter("PrIMOr", String.format("PrIMoR@%s", host))
 			.setMessage(
 				String.format(
-					"%s%s",
-					message,
-					this.skipCi ? " [skip ci]" : ""
+					"%s%s%s",
+					subject,
+					this.skipCi ? " [skip ci]" : "",
+					body
 				)
 			)
 			.call();
@@ -223,4 +533,47 @@ public class GithubSpecification implements Specification {
 	public void setMart(MART<?, ?> parent) {
 		this.origin.setMart(parent);
 	}
+
+	/**
+	 * The state shared by the write-behind specifications: a single thread
+	 * commits the pending updates, and a single shutdown hook flushes them.
+	 * It is initialized the first time an update is deferred.
+	 * 
+	 * @author Miguel Jimenez (miguel@uvic.ca)
+	 * @date 2018-07-26
+	 * @version $Id$
+	 * @since 0.0.1
+	 */
+	private static final class WriteBehind {
+
+		/**
+		 * Commits the pending updates.
+		 */
+		static final ScheduledExecutorService FLUSHER =
+			Executors.newSingleThreadScheduledExecutor(runnable -> {
+				final Thread thread = new Thread(runnable, "github-write-behind");
+				thread.setDaemon(true);
+				return thread;
+			});
+
+		/**
+		 * The specifications with pending updates.
+		 */
+		static final Set<GithubSpecification> PENDING =
+			ConcurrentHashMap.newKeySet();
+
+		static {
+			Runtime.getRuntime().addShutdownHook(
+				new Thread(
+					() -> WriteBehind.PENDING.forEach(GithubSpecification::flush),
+					"github-write-behind-shutdown"
+				)
+			);
+		}
+
+		/**
+		 * Utility class.
+		 */
+		private WriteBehind() {}
+	}
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.rigiresearch.lcastane.framework.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Keeps track of the duration of an operation across calls.
+ * 
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-22
+ * @version $Id$
+ * @since 0.0.1
+ */
+public final class LatencyTimer {
+
+	/**
+	 * Number of recorded calls.
+	 */
+	private final AtomicLong calls = new AtomicLong();
+
+	/**
+	 * Accumulated duration, in nanoseconds.
+	 */
+	private final AtomicLong elapsed = new AtomicLong();
+
+	/**
+	 * Longest duration, in nanoseconds.
+	 */
+	private final LongAccumulator longest = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Records the duration of a call that started at the given time.
+	 * @param start The start time, as returned by {@link System#nanoTime()}
+	 * @return The duration of the call, in nanoseconds
+	 */
+	public long record(final long start) {
+		final long duration = System.nanoTime() - start;
+		this.calls.incrementAndGet();
+		this.elapsed.addAndGet(duration);
+		this.longest.accumulate(duration);
+		return duration;
+	}
+
+	/**
+	 * Number of recorded calls.
+	 * @return A positive number, or zero
+	 */
+	public long count() {
+		return this.calls.get();
+	}
+
+	/**
+	 * Mean duration, in milliseconds.
+	 * @return A positive number, or zero if no call was recorded
+	 */
+	public double mean() {
+		final long calls = this.calls.get();
+		if (calls == 0)
+			return 0.0;
+		return TimeUnit.NANOSECONDS.toMicros(this.elapsed.get()) / 1000.0 / calls;
+	}
+
+	/**
+	 * Longest duration, in milliseconds.
+	 * @return A positive number, or zero if no call was recorded
+	 */
+	public double max() {
+		return TimeUnit.NANOSECONDS.toMicros(this.longest.get()) / 1000.0;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format(
+			"%d calls, mean %.2f ms, max %.2f ms",
+			this.count(),
+			this.mean(),
+			this.max()
+		);
+	}
+}
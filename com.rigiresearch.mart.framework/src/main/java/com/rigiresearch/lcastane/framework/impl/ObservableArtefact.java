@@ -25,7 +25,11 @@ import com.rigiresearch.lcastane.framework.Artefact;
 import com.rigiresearch.lcastane.framework.Command;
 import com.rigiresearch.lcastane.framework.MART;
 import com.rigiresearch.lcastane.framework.validation.ValidationException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Observable;
+import java.util.function.Consumer;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -33,6 +37,8 @@ import lombok.experimental.Accessors;
 
 /**
  * Adds observability to an {@link Artefact}.
+ * Commands are applied while holding the decorated artefact's monitor, so
+ * that observers reading the artefact on other threads can synchronize on it.
  * @author Lorena Castaneda - Initial contribution and API
  * @date 2018-02-25
  * @version $Id$
@@ -69,11 +75,55 @@ public final class ObservableArtefact<T extends Artefact>
      */
     @Override
     public void apply(Command command) throws ValidationException {
-        this.origin.apply(command);
+        synchronized (this.origin) {
+            this.origin.apply(command);
+        }
         this.setChanged();
         this.notifyObservers(command.context());
     }
 
+    /**
+     * Applies the given commands and notifies the observers only once, with
+     * the context of all the commands merged (the latest context wins). The
+     * observers are notified even if one of the commands fails, so that they
+     * see the commands that were actually applied.
+     * @see com.rigiresearch.lcastane.framework.Artefact#applyAll(java.util.List)
+     */
+    @Override
+    public void applyAll(List<Command> commands) throws ValidationException {
+        this.applyAll(commands, command -> { });
+    }
+
+    /**
+     * Applies the given commands as {@link #applyAll(List)} does, passing
+     * each command to the given consumer once it is applied.
+     * @param commands The commands to apply
+     * @param applied The consumer of the applied commands
+     * @throws ValidationException If any of the operations cannot be
+     *  performed. The commands preceding the failing one remain applied
+     */
+    public void applyAll(List<Command> commands, Consumer<Command> applied)
+        throws ValidationException {
+        final Map<String, Object> context = new HashMap<>();
+        int count = 0;
+        try {
+            synchronized (this.origin) {
+                for (Command command : commands) {
+                    this.origin.apply(command);
+                    count++;
+                    applied.accept(command);
+                    if (command.context() != null)
+                        context.putAll(command.context());
+                }
+            }
+        } finally {
+            if (count > 0) {
+                this.setChanged();
+                this.notifyObservers(context);
+            }
+        }
+    }
+
     /*
      * (non-Javadoc)
      * @see com.rigiresearch.lcastane.framework.Artefact
@@ -0,0 +1,353 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.rigiresearch.lcastane.framework.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.configuration2.builder.fluent.Configurations;
+import org.apache.commons.configuration2.ex.ConfigurationException;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.MergeCommand.FastForwardMode;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.BranchConfig;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.merge.MergeStrategy;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches open git repositories by working directory. Repositories that are
+ * not used for a while (see idle-timeout in github.properties) are closed.
+ * Operations on the same repository are serialized.
+ * 
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-26
+ * @version $Id$
+ * @since 0.0.1
+ */
+public final class Repositories {
+
+	/**
+	 * The logger.
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(Repositories.class);
+
+	/**
+	 * The open repositories, indexed by working directory.
+	 */
+	private static final Map<File, Handle> HANDLES = new ConcurrentHashMap<>();
+
+	/**
+	 * The time after which an unused repository is closed, in milliseconds.
+	 */
+	private static final long IDLE_TIMEOUT = Repositories.idleTimeout();
+
+	/**
+	 * Closes the idle repositories.
+	 */
+	private static final ScheduledExecutorService EVICTOR =
+		Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "git-repository-evictor");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+	static {
+		Repositories.EVICTOR.scheduleWithFixedDelay(
+			Repositories::evict,
+			Repositories.IDLE_TIMEOUT,
+			Repositories.IDLE_TIMEOUT,
+			TimeUnit.MILLISECONDS
+		);
+	}
+
+	/**
+	 * An operation on a git repository.
+	 * @param <T> The type of result
+	 */
+	@FunctionalInterface
+	public interface Operation<T> {
+
+		/**
+		 * Applies this operation.
+		 * @param git The repository
+		 * @return The result of the operation
+		 * @throws IOException If the repository cannot be accessed
+		 * @throws GitAPIException See {@link Git}
+		 */
+		T apply(Git git) throws IOException, GitAPIException;
+	}
+
+	/**
+	 * Utility class.
+	 */
+	private Repositories() {}
+
+	/**
+	 * Applies the given operation on the repository of the given directory,
+	 * opening it if necessary. The repository must not be closed by the
+	 * operation.
+	 * @param directory The working directory, or its .git directory
+	 * @param operation The operation to apply
+	 * @return The result of the operation
+	 * @throws IOException If the repository cannot be opened or accessed
+	 * @throws GitAPIException See {@link Git}
+	 */
+	public static <T> T with(final File directory, final Operation<T> operation)
+		throws IOException, GitAPIException {
+		File key = directory.getCanonicalFile();
+		if (Constants.DOT_GIT.equals(key.getName()))
+			key = key.getParentFile();
+		while (true) {
+			final Handle handle = Repositories.handle(key);
+			handle.lock.lock();
+			try {
+				// It may have been evicted while waiting for the lock
+				if (handle.closed)
+					continue;
+				handle.used = System.currentTimeMillis();
+				return operation.apply(handle.git);
+			} finally {
+				handle.lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Brings the given repository up to date with its upstream branch. The
+	 * remote is fetched and, only if the upstream branch moved, merged into
+	 * the current branch: fast-forwarding if possible and otherwise
+	 * favouring the remote changes, as in a pull with
+	 * {@link MergeStrategy#THEIRS}.
+	 * @param git The repository
+	 * @param credentials The credentials to fetch the remote
+	 * @throws IOException If the repository cannot be accessed
+	 * @throws GitAPIException See {@link Git}
+	 */
+	public static void update(final Git git, final CredentialsProvider credentials)
+		throws IOException, GitAPIException {
+		Repositories.fetch(git, credentials);
+		Repositories.merge(git);
+	}
+
+	/**
+	 * Fetches the remote of the given repository, without updating the
+	 * working tree.
+	 * @param git The repository
+	 * @param credentials The credentials to fetch the remote
+	 * @throws IOException If the repository cannot be accessed
+	 * @throws GitAPIException See {@link Git}
+	 */
+	public static void fetch(final Git git, final CredentialsProvider credentials)
+		throws IOException, GitAPIException {
+		Repositories.timed("fetch", git, g ->
+			g.fetch().setCredentialsProvider(credentials).call()
+		);
+	}
+
+	/**
+	 * Merges the (already fetched) upstream branch into the current branch,
+	 * as {@link #update(Git, CredentialsProvider)} does, without accessing
+	 * the remote.
+	 * @param git The repository
+	 * @throws IOException If the repository cannot be accessed
+	 * @throws GitAPIException See {@link Git}
+	 */
+	public static void merge(final Git git) throws IOException, GitAPIException {
+		final Repository repository = git.getRepository();
+		final String tracking = new BranchConfig(
+			repository.getConfig(),
+			repository.getBranch()
+		).getRemoteTrackingBranch();
+		if (tracking == null)
+			return;
+		final ObjectId upstream = repository.resolve(tracking);
+		final ObjectId head = repository.resolve(Constants.HEAD);
+		if (upstream == null || upstream.equals(head))
+			return;
+		if (head != null) {
+			try (RevWalk walk = new RevWalk(repository)) {
+				// The local branch is ahead of the upstream branch
+				if (walk.isMergedInto(walk.parseCommit(upstream), walk.parseCommit(head)))
+					return;
+			}
+		}
+		Repositories.timed("merge", git, g ->
+			g.merge()
+				.include(upstream)
+				.setStrategy(MergeStrategy.THEIRS)
+				.setFastForward(FastForwardMode.FF)
+				.call()
+		);
+	}
+
+	/**
+	 * Applies the given operation and logs how long it took.
+	 * @param name The name of the operation
+	 * @param git The repository
+	 * @param operation The operation to apply
+	 * @return The result of the operation
+	 * @throws IOException If the repository cannot be accessed
+	 * @throws GitAPIException See {@link Git}
+	 */
+	public static <T> T timed(final String name, final Git git,
+		final Operation<T> operation) throws IOException, GitAPIException {
+		final long start = System.nanoTime();
+		try {
+			return operation.apply(git);
+		} finally {
+			LOGGER.info(
+				String.format(
+					"git %s took %d ms (dir: %s)",
+					name,
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+					git.getRepository().getWorkTree()
+				)
+			);
+		}
+	}
+
+	/**
+	 * Returns the handle of the given working directory, opening the
+	 * repository if necessary.
+	 */
+	private static Handle handle(final File directory) throws IOException {
+		try {
+			return HANDLES.computeIfAbsent(directory, d -> {
+				try {
+					return new Handle(Git.open(d));
+				} catch (IOException e) {
+					throw new OpenException(e);
+				}
+			});
+		} catch (OpenException e) {
+			throw (IOException) e.getCause();
+		}
+	}
+
+	/**
+	 * Closes the repositories that have not been used recently.
+	 */
+	private static void evict() {
+		final long now = System.currentTimeMillis();
+		HANDLES.forEach((directory, handle) -> {
+			if (now - handle.used < IDLE_TIMEOUT || !handle.lock.tryLock())
+				return;
+			try {
+				HANDLES.remove(directory, handle);
+				handle.closed = true;
+				handle.git.close();
+				LOGGER.info(String.format("Closed idle repository %s", directory));
+			} finally {
+				handle.lock.unlock();
+			}
+		});
+	}
+
+	/**
+	 * Reads the idle timeout from github.properties.
+	 */
+	private static long idleTimeout() {
+		try {
+			return new Configurations().properties("github.properties")
+				.getLong("idle-timeout", 300000);
+		} catch (ConfigurationException e) {
+			return 300000;
+		}
+	}
+
+	/**
+	 * An open repository.
+	 * 
+	 * @author Miguel Jimenez (miguel@uvic.ca)
+	 * @date 2018-07-26
+	 * @version $Id$
+	 * @since 0.0.1
+	 */
+	private static final class Handle {
+
+		/**
+		 * The repository.
+		 */
+		private final Git git;
+
+		/**
+		 * Serializes the operations on the repository.
+		 */
+		private final ReentrantLock lock;
+
+		/**
+		 * The last time the repository was used.
+		 */
+		private volatile long used;
+
+		/**
+		 * Whether the repository was closed.
+		 */
+		private volatile boolean closed;
+
+		/**
+		 * Default constructor.
+		 * @param git The repository
+		 */
+		Handle(final Git git) {
+			this.git = git;
+			this.lock = new ReentrantLock();
+			this.used = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Wraps an {@link IOException} thrown while opening a repository.
+	 * 
+	 * @author Miguel Jimenez (miguel@uvic.ca)
+	 * @date 2018-07-26
+	 * @version $Id$
+	 * @since 0.0.1
+	 */
+	private static final class OpenException extends RuntimeException {
+
+		/**
+		 * Serial version UID.
+		 */
+		private static final long serialVersionUID = 2316547830263461273L;
+
+		/**
+		 * Default constructor.
+		 * @param cause The original exception
+		 */
+		OpenException(final IOException cause) {
+			super(cause);
+		}
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.rigiresearch.lcastane.framework.impl;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.xtext.xbase.lib.Procedures.Procedure1;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs procedures one at a time, in submission order, on a dedicated thread.
+ * Consecutive submissions with the same key are coalesced while they are
+ * pending, that is, the procedure runs once with the merged contexts. Since
+ * the latest values win, the authors of the merged contexts are collected
+ * under "authors" (author to email, in submission order), so that none of
+ * them is lost.
+ * 
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-24
+ * @version $Id$
+ * @since 0.0.1
+ */
+public final class SequencedExecutor {
+
+	/**
+	 * The logger.
+	 */
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	/**
+	 * The thread running the procedures.
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * The last submitted task.
+	 */
+	private Task tail;
+
+	/**
+	 * Default constructor.
+	 * @param name The name of the thread running the procedures
+	 */
+	public SequencedExecutor(final String name) {
+		this.executor = Executors.newSingleThreadExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, name);
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Schedules the given procedure. If the last submitted task has the same
+	 * key and has not started yet, the given context is merged into its
+	 * context (the latest values win, but the authors are collected) and no
+	 * new task is scheduled.
+	 * @param key Identifies the kind of procedure
+	 * @param context The context passed to the procedure
+	 * @param procedure The procedure to run
+	 * @return A future completed once the procedure has run
+	 */
+	public synchronized CompletableFuture<Void> submit(final Object key,
+		final Map<String, Object> context,
+		final Procedure1<Map<String, Object>> procedure) {
+		if (this.tail == null || this.tail.started || !this.tail.key.equals(key)) {
+			this.tail = new Task(key, procedure);
+			this.executor.execute(this.tail);
+		} else {
+			this.logger.debug(String.format("Coalesced pending task %s", key));
+		}
+		if (context != null)
+			this.tail.merge(context);
+		return this.tail.future;
+	}
+
+	/**
+	 * Returns a future completed once the tasks submitted so far have run.
+	 * @return A (possibly completed) future
+	 */
+	public synchronized CompletableFuture<Void> flush() {
+		if (this.tail == null)
+			return CompletableFuture.completedFuture(null);
+		// Completes normally even if the last task failed
+		return this.tail.future.handle((result, throwable) -> null);
+	}
+
+	/**
+	 * Stops accepting tasks. The pending ones still run.
+	 */
+	public void shutdown() {
+		this.executor.shutdown();
+	}
+
+	/**
+	 * A submitted procedure.
+	 * 
+	 * @author Miguel Jimenez (miguel@uvic.ca)
+	 * @date 2018-07-24
+	 * @version $Id$
+	 * @since 0.0.1
+	 */
+	private final class Task implements Runnable {
+
+		/**
+		 * Identifies the kind of procedure.
+		 */
+		private final Object key;
+
+		/**
+		 * The procedure to run.
+		 */
+		private final Procedure1<Map<String, Object>> procedure;
+
+		/**
+		 * The context passed to the procedure.
+		 */
+		private final Map<String, Object> context;
+
+		/**
+		 * The authors of the merged contexts, with their emails.
+		 */
+		private final Map<String, String> authors;
+
+		/**
+		 * Completed once the procedure has run.
+		 */
+		private final CompletableFuture<Void> future;
+
+		/**
+		 * Whether this task has started, and therefore cannot be coalesced.
+		 */
+		private boolean started;
+
+		/**
+		 * Default constructor.
+		 * @param key Identifies the kind of procedure
+		 * @param procedure The procedure to run
+		 */
+		Task(final Object key, final Procedure1<Map<String, Object>> procedure) {
+			this.key = key;
+			this.procedure = procedure;
+			this.context = new HashMap<>();
+			this.authors = new LinkedHashMap<>();
+			this.future = new CompletableFuture<>();
+		}
+
+		/**
+		 * Merges the given context into this task's context.
+		 * @param other The context to merge
+		 */
+		void merge(final Map<String, Object> other) {
+			final Object authors = other.get("authors");
+			if (authors instanceof Map<?, ?>) {
+				((Map<?, ?>) authors).forEach((name, email) ->
+					this.authors.putIfAbsent(String.valueOf(name), String.valueOf(email))
+				);
+			}
+			final Object author = other.get("author");
+			if (author != null)
+				this.authors.putIfAbsent(author.toString(), String.valueOf(other.get("email")));
+			this.context.putAll(other);
+			if (this.authors.size() > 1)
+				this.context.put("authors", new LinkedHashMap<>(this.authors));
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Runnable#run()
+		 */
+		@Override
+		public void run() {
+			synchronized (SequencedExecutor.this) {
+				this.started = true;
+			}
+			try {
+				this.procedure.apply(this.context);
+				this.future.complete(null);
+			} catch (final Throwable e) {
+				// Errors must complete the future too, or waiters would hang
+				SequencedExecutor.this.logger.error(
+					String.format("Task %s failed", this.key),
+					e
+				);
+				this.future.completeExceptionally(e);
+			}
+		}
+	}
+}
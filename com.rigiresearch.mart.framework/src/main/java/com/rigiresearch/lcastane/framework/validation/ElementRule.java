@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.rigiresearch.lcastane.framework.validation;
+
+import java.util.Collections;
+
+import com.rigiresearch.lcastane.framework.Artefact;
+import com.rigiresearch.lcastane.framework.Rule;
+
+/**
+ * A {@link Rule} that holds if it holds for each element of an
+ * {@link Artefact}. This allows the {@link RuleEngine} to validate only the
+ * elements that changed since the last validation.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-26
+ * @version $Id$
+ * @since 0.0.1
+ */
+public interface ElementRule<T extends Artefact, E> extends Rule<T> {
+
+    /**
+     * The type of the elements this rule applies to.
+     * @return A class
+     */
+    Class<E> elementType();
+
+    /**
+     * The elements this rule applies to.
+     * @param artefact The {@link Artefact} containing the elements
+     * @return A (possibly empty) iterable
+     */
+    Iterable<? extends E> elements(T artefact);
+
+    /**
+     * Applies this validation rule to one element.
+     * @param artefact The {@link Artefact} containing the element
+     * @param element The element
+     * @param arguments An array of optional arguments
+     * @return whether this rule passes or fails for the element
+     */
+    boolean applyTo(T artefact, E element, Object... arguments);
+
+    /**
+     * The elements to validate again when an object changes. By default,
+     * it is the changed object if it is of the {@link #elementType()}.
+     * @param artefact The {@link Artefact} containing the elements
+     * @param changed The changed object
+     * @return A (possibly empty) iterable
+     */
+    default Iterable<? extends E> affected(T artefact, Object changed) {
+        if (this.elementType().isInstance(changed))
+            return Collections.singletonList(this.elementType().cast(changed));
+        return Collections.emptyList();
+    }
+
+    /**
+     * Applies this validation rule to each element, stopping at the first
+     * element for which it fails.
+     */
+    @Override
+    default boolean apply(T artefact, Object... arguments) {
+        for (E element : this.elements(artefact)) {
+            if (!this.applyTo(artefact, element, arguments))
+                return false;
+        }
+        return true;
+    }
+}
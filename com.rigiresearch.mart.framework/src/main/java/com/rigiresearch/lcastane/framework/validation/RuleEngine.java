@@ -0,0 +1,269 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.rigiresearch.lcastane.framework.validation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.rigiresearch.lcastane.framework.Artefact;
+import com.rigiresearch.lcastane.framework.Rule;
+import com.rigiresearch.lcastane.framework.impl.LatencyTimer;
+
+/**
+ * Evaluates a fixed list of {@link Rule}s over an {@link Artefact}.
+ * <p>
+ * The evaluation stops at the first failing rule. Given an executor, the
+ * rules (which are supposed to be independent) are evaluated in parallel
+ * instead, and the rules that did not start before a failure are skipped.
+ * After a successful evaluation, the {@link ElementRule}s can be evaluated
+ * again only for the elements that changed since then. The duration of each
+ * rule is recorded.
+ * 
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-26
+ * @version $Id$
+ * @since 0.0.1
+ */
+public final class RuleEngine<T extends Artefact> {
+
+    /**
+     * The rules, in evaluation order.
+     */
+    private final List<Rule<T>> rules;
+
+    /**
+     * The duration of each rule, in the same order as the rules.
+     */
+    private final List<LatencyTimer> timers;
+
+    /**
+     * Evaluates the rules in parallel, or {@code null} to evaluate them
+     * sequentially.
+     */
+    private final Executor executor;
+
+    /**
+     * Whether all of the rules held in the last evaluation.
+     */
+    private final AtomicBoolean clean;
+
+    /**
+     * Default constructor. The rules are evaluated sequentially.
+     * @param rules The rules to evaluate
+     */
+    public RuleEngine(final List<? extends Rule<T>> rules) {
+        this(rules, null);
+    }
+
+    /**
+     * Secondary constructor.
+     * @param rules The rules to evaluate
+     * @param executor Evaluates the rules in parallel, or {@code null} to
+     *  evaluate them sequentially
+     */
+    public RuleEngine(final List<? extends Rule<T>> rules,
+        final Executor executor) {
+        this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+        this.timers = new ArrayList<>(this.rules.size());
+        for (int i = 0; i < this.rules.size(); i++)
+            this.timers.add(new LatencyTimer());
+        this.executor = executor;
+        this.clean = new AtomicBoolean();
+    }
+
+    /**
+     * Evaluates the rules over the whole artefact.
+     * @param artefact The artefact to validate
+     * @param arguments An array of optional arguments
+     * @return The first failing rule, if any
+     */
+    public Optional<Rule<T>> evaluate(final T artefact,
+        final Object... arguments) {
+        return this.reevaluate(artefact, null, arguments);
+    }
+
+    /**
+     * Evaluates the rules over the elements that changed since the last
+     * evaluation. {@link ElementRule}s are only applied to the elements
+     * affected by the changes, whereas the other rules are applied to the
+     * whole artefact. If the last evaluation failed (or there was none), the
+     * whole artefact is evaluated.
+     * @param artefact The artefact to validate
+     * @param changed The objects that changed since the last evaluation, or
+     *  {@code null} to evaluate the whole artefact
+     * @param arguments An array of optional arguments
+     * @return The first failing rule, if any. In parallel, the first (in
+     *  the rules' order) of the failing rules that were evaluated
+     */
+    public Optional<Rule<T>> reevaluate(final T artefact,
+        final Collection<?> changed, final Object... arguments) {
+        final Collection<?> scope = this.clean.get() ? changed : null;
+        final Optional<Rule<T>> failure;
+        if (this.executor == null || this.rules.size() < 2)
+            failure = this.sequential(artefact, scope, arguments);
+        else
+            failure = this.parallel(artefact, scope, arguments);
+        this.clean.set(!failure.isPresent());
+        return failure;
+    }
+
+    /**
+     * Evaluates the rules over the elements that changed since the last
+     * evaluation (see {@link #reevaluate(Artefact, Collection, Object...)}).
+     * @param artefact The artefact to validate
+     * @param changed The objects that changed since the last evaluation, or
+     *  {@code null} to evaluate the whole artefact
+     * @param arguments An array of optional arguments
+     * @throws ValidationException If a rule fails
+     */
+    public void validate(final T artefact, final Collection<?> changed,
+        final Object... arguments) throws ValidationException {
+        final Optional<Rule<T>> failure =
+            this.reevaluate(artefact, changed, arguments);
+        if (failure.isPresent())
+            throw new ValidationException(artefact, failure.get());
+    }
+
+    /**
+     * The duration of each rule.
+     * @return A map from rule to timer, in the rules' order
+     */
+    public Map<Rule<T>, LatencyTimer> timers() {
+        final Map<Rule<T>, LatencyTimer> timers = new LinkedHashMap<>();
+        for (int i = 0; i < this.rules.size(); i++)
+            timers.put(this.rules.get(i), this.timers.get(i));
+        return timers;
+    }
+
+    /**
+     * Evaluates the rules one after another.
+     * @param artefact The artefact to validate
+     * @param changed The changed objects, or {@code null}
+     * @param arguments An array of optional arguments
+     * @return The first failing rule, if any
+     */
+    private Optional<Rule<T>> sequential(final T artefact,
+        final Collection<?> changed, final Object... arguments) {
+        for (int i = 0; i < this.rules.size(); i++) {
+            if (!this.holds(i, artefact, changed, arguments))
+                return Optional.of(this.rules.get(i));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Evaluates the rules in parallel. Once a rule fails, the rules that
+     * did not start yet are skipped.
+     * @param artefact The artefact to validate
+     * @param changed The changed objects, or {@code null}
+     * @param arguments An array of optional arguments
+     * @return The first failing rule, if any
+     */
+    private Optional<Rule<T>> parallel(final T artefact,
+        final Collection<?> changed, final Object... arguments) {
+        final AtomicBoolean failed = new AtomicBoolean();
+        final List<CompletableFuture<Boolean>> results =
+            new ArrayList<>(this.rules.size());
+        for (int i = 0; i < this.rules.size(); i++) {
+            final int index = i;
+            results.add(
+                CompletableFuture.supplyAsync(() -> {
+                    if (failed.get())
+                        return true;
+                    final boolean holds =
+                        this.holds(index, artefact, changed, arguments);
+                    if (!holds)
+                        failed.set(true);
+                    return holds;
+                }, this.executor)
+            );
+        }
+        Optional<Rule<T>> failure = Optional.empty();
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                if (!results.get(i).join() && !failure.isPresent())
+                    failure = Optional.of(this.rules.get(i));
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) e.getCause();
+                throw e;
+            }
+        }
+        return failure;
+    }
+
+    /**
+     * Applies a rule, recording its duration.
+     * @param index The rule's index
+     * @param artefact The artefact to validate
+     * @param changed The changed objects, or {@code null}
+     * @param arguments An array of optional arguments
+     * @return Whether the rule holds
+     */
+    @SuppressWarnings("unchecked")
+    private boolean holds(final int index, final T artefact,
+        final Collection<?> changed, final Object... arguments) {
+        final Rule<T> rule = this.rules.get(index);
+        final long start = System.nanoTime();
+        try {
+            if (changed != null && rule instanceof ElementRule<?, ?>)
+                return RuleEngine.holds(
+                    (ElementRule<T, ?>) rule,
+                    artefact,
+                    changed,
+                    arguments
+                );
+            return rule.apply(artefact, arguments);
+        } finally {
+            this.timers.get(index).record(start);
+        }
+    }
+
+    /**
+     * Applies a rule to the elements affected by the given changes.
+     * @param rule The rule
+     * @param artefact The artefact to validate
+     * @param changed The changed objects
+     * @param arguments An array of optional arguments
+     * @return Whether the rule holds for every affected element
+     */
+    private static <T extends Artefact, E> boolean holds(
+        final ElementRule<T, E> rule, final T artefact,
+        final Collection<?> changed, final Object... arguments) {
+        for (Object object : changed) {
+            for (E element : rule.affected(artefact, object)) {
+                if (!rule.applyTo(artefact, element, arguments))
+                    return false;
+            }
+        }
+        return true;
+    }
+}
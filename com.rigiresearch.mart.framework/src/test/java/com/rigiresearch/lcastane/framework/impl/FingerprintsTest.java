@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.rigiresearch.lcastane.framework.impl;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests {@link Fingerprints}.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-26
+ * @version $Id$
+ * @since 0.0.1
+ */
+public final class FingerprintsTest {
+
+	@Test
+	public void formattingIsIgnored() {
+		this.same(
+			"resource \"a\" \"b\" {\n  name = \"x\"\n}\n",
+			"resource   \"a\" \"b\"   {\n\tname=\"x\"\n\n}"
+		);
+	}
+
+	@Test
+	public void lineSeparatorsAreIgnored() {
+		this.same(
+			"resource \"a\" \"b\" {\n  name = \"x\"\n}\n",
+			"resource \"a\" \"b\" {\r\n  name = \"x\"\r\n}\r\n"
+		);
+	}
+
+	@Test
+	public void quotedWhiteSpaceIsKept() {
+		this.different("name = \"a b\"", "name = \"ab\"");
+		this.different("name = \"a b\"", "name = \"a  b\"");
+	}
+
+	@Test
+	public void escapedQuotesDoNotEndStrings() {
+		this.different("name = \"a\\\" b\"", "name = \"a\\\"b\"");
+	}
+
+	@Test
+	public void heredocWhiteSpaceIsKept() {
+		this.different(
+			"user_data = <<EOF\n#!/bin/sh\n  echo a\nEOF\n",
+			"user_data = <<EOF\n#!/bin/sh\necho a\nEOF\n"
+		);
+		this.different(
+			"user_data = <<-EOF\n  echo a b\n  EOF\n",
+			"user_data = <<-EOF\n  echo ab\n  EOF\n"
+		);
+	}
+
+	@Test
+	public void heredocLineSeparatorsAreIgnored() {
+		this.same(
+			"user_data = <<EOF\n  echo a\nEOF\nname = \"x\"\n",
+			"user_data = <<EOF\r\n  echo a\r\nEOF\r\nname = \"x\"\r\n"
+		);
+	}
+
+	@Test
+	public void textAfterHeredocIsNormalized() {
+		this.same(
+			"user_data = <<EOF\necho a\nEOF\nname = \"x\"\n",
+			"user_data = <<EOF\necho a\nEOF\n  name   =   \"x\""
+		);
+	}
+
+	@Test
+	public void bytes() {
+		Assert.assertArrayEquals(
+			Fingerprints.bytes(new byte[] {1, 2, 3}),
+			Fingerprints.bytes(new byte[] {1, 2, 3})
+		);
+		Assert.assertFalse(
+			Arrays.equals(
+				Fingerprints.bytes(new byte[] {1, 2, 3}),
+				Fingerprints.bytes(new byte[] {3, 2, 1})
+			)
+		);
+	}
+
+	private void same(final String first, final String second) {
+		Assert.assertArrayEquals(Fingerprints.text(first), Fingerprints.text(second));
+	}
+
+	private void different(final String first, final String second) {
+		Assert.assertFalse(
+			Arrays.equals(Fingerprints.text(first), Fingerprints.text(second))
+		);
+	}
+}
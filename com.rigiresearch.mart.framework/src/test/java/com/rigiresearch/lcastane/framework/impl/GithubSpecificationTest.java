@@ -0,0 +1,176 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.rigiresearch.lcastane.framework.impl;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import org.apache.commons.configuration2.BaseConfiguration;
+import org.apache.commons.configuration2.Configuration;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests {@link GithubSpecification} in write-behind mode, using a local bare
+ * repository as the remote.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-26
+ * @version $Id$
+ * @since 0.0.1
+ */
+public final class GithubSpecificationTest {
+
+	@Test
+	public void squashesUpdatesPerWindow() throws Exception {
+		final File directory = Files.createTempDirectory("github").toFile();
+		final File remote = new File(directory, "remote.git");
+		final File local = this.clone(remote, new File(directory, "local"));
+		final GithubSpecification specification = new GithubSpecification(
+			new FileSpecification(new File(local, "main.tf")),
+			true,
+			this.configuration(200)
+		);
+		specification.update("a", this.author("first"));
+		specification.update("b", this.author("second"));
+		specification.update("c", this.author("third"));
+		this.await(() -> this.commits(remote) == 2);
+		// No other commit follows
+		Thread.sleep(500);
+		Assert.assertEquals(2, this.commits(remote));
+		try (Git git = Git.open(remote)) {
+			final RevCommit commit = git.log().call().iterator().next();
+			Assert.assertEquals("first", commit.getAuthorIdent().getName());
+			Assert.assertTrue(commit.getFullMessage().contains("[skip ci]"));
+			Assert.assertTrue(
+				commit.getFullMessage().contains("Co-authored-by: second <second@test>")
+			);
+			Assert.assertTrue(
+				commit.getFullMessage().contains("Co-authored-by: third <third@test>")
+			);
+		}
+	}
+
+	@Test
+	public void retriesAfterFailedPush() throws Exception {
+		final File directory = Files.createTempDirectory("github").toFile();
+		final File remote = new File(directory, "remote.git");
+		final File local = this.clone(remote, new File(directory, "local"));
+		this.pushUrl(local, new File(directory, "missing.git").toURI().toString());
+		final GithubSpecification specification = new GithubSpecification(
+			new FileSpecification(new File(local, "main.tf")),
+			false,
+			this.configuration(100)
+		);
+		specification.update("a", this.author("first"));
+		// The update is committed, but the push fails
+		this.await(() -> this.commits(local) == 2);
+		Assert.assertEquals(1, this.commits(remote));
+		this.pushUrl(local, null);
+		// A later attempt pushes the same commit
+		this.await(() -> this.commits(remote) == 2);
+		Assert.assertEquals(2, this.commits(local));
+	}
+
+	/**
+	 * Creates a bare repository with an initial commit and clones it.
+	 */
+	private File clone(final File remote, final File local) throws Exception {
+		Git.init().setBare(true).setDirectory(remote).call().close();
+		try (Git git = Git.cloneRepository()
+			.setURI(remote.toURI().toString())
+			.setDirectory(local)
+			.call()) {
+			Files.write(new File(local, "README").toPath(), new byte[0]);
+			git.add().addFilepattern("README").call();
+			git.commit().setMessage("Initial commit").call();
+			git.push().call();
+			final StoredConfig config = git.getRepository().getConfig();
+			config.setString("branch", "master", "remote", "origin");
+			config.setString("branch", "master", "merge", "refs/heads/master");
+			config.save();
+		}
+		return local;
+	}
+
+	/**
+	 * Sets (or unsets) the URL the local repository pushes to.
+	 */
+	private void pushUrl(final File local, final String url) throws Exception {
+		try (Git git = Git.open(local)) {
+			final StoredConfig config = git.getRepository().getConfig();
+			if (url == null)
+				config.unset("remote", "origin", "pushurl");
+			else
+				config.setString("remote", "origin", "pushurl", url);
+			config.save();
+		}
+	}
+
+	/**
+	 * Counts the commits of the given repository.
+	 */
+	private int commits(final File repository) {
+		try (Git git = Git.open(repository)) {
+			int count = 0;
+			for (RevCommit commit : git.log().call())
+				count++;
+			return count;
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Waits until the given condition holds, for at most 10 seconds.
+	 */
+	private void await(final BooleanSupplier condition) throws InterruptedException {
+		final long deadline = System.currentTimeMillis() + 10000;
+		while (!condition.getAsBoolean()) {
+			Assert.assertTrue(System.currentTimeMillis() < deadline);
+			Thread.sleep(50);
+		}
+	}
+
+	private Map<String, Object> author(final String name) {
+		final Map<String, Object> data = new HashMap<>();
+		data.put("author", name);
+		data.put("email", String.format("%s@test", name));
+		return data;
+	}
+
+	private Configuration configuration(final long windowTime) {
+		final Configuration config = new BaseConfiguration();
+		config.setProperty("authentication-token", "");
+		config.setProperty("write-behind", true);
+		config.setProperty("window-time", windowTime);
+		config.setProperty("window-size", 50);
+		config.setProperty("retries", 3);
+		config.setProperty("backoff", 200);
+		return config;
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.rigiresearch.lcastane.framework.impl;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests {@link SequencedExecutor}.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-26
+ * @version $Id$
+ * @since 0.0.1
+ */
+public final class SequencedExecutorTest {
+
+	@Test
+	public void mergedContextsKeepEveryAuthor() throws Exception {
+		final SequencedExecutor executor = new SequencedExecutor("test");
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger runs = new AtomicInteger();
+		final AtomicReference<Map<String, Object>> context = new AtomicReference<>();
+		try {
+			// Blocks the executor so that the next tasks remain pending
+			executor.submit("blocker", null, c -> {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			for (String author : new String[] {"first", "second", "first", "third"}) {
+				executor.submit("key", this.author(author), c -> {
+					runs.incrementAndGet();
+					context.set(new HashMap<>(c));
+				});
+			}
+			release.countDown();
+			executor.flush().get();
+		} finally {
+			executor.shutdown();
+		}
+		Assert.assertEquals(1, runs.get());
+		final Map<String, String> expected = new LinkedHashMap<>();
+		expected.put("first", "first@test");
+		expected.put("second", "second@test");
+		expected.put("third", "third@test");
+		Assert.assertEquals(expected, context.get().get("authors"));
+		Assert.assertEquals("third", context.get().get("author"));
+	}
+
+	@Test
+	public void singleAuthorIsNotCollected() throws Exception {
+		final SequencedExecutor executor = new SequencedExecutor("test");
+		final AtomicReference<Map<String, Object>> context = new AtomicReference<>();
+		try {
+			executor.submit("key", this.author("first"), c -> context.set(new HashMap<>(c)))
+				.get();
+		} finally {
+			executor.shutdown();
+		}
+		Assert.assertNull(context.get().get("authors"));
+		Assert.assertEquals("first", context.get().get("author"));
+	}
+
+	private Map<String, Object> author(final String name) {
+		final Map<String, Object> data = new HashMap<>();
+		data.put("author", name);
+		data.put("email", String.format("%s@test", name));
+		return data;
+	}
+}
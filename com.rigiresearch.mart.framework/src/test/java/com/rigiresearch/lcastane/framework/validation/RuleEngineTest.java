@@ -0,0 +1,250 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.rigiresearch.lcastane.framework.validation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.rigiresearch.lcastane.framework.Artefact;
+import com.rigiresearch.lcastane.framework.Command;
+import com.rigiresearch.lcastane.framework.MART;
+import com.rigiresearch.lcastane.framework.Rule;
+
+/**
+ * Tests {@link RuleEngine}.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-26
+ * @version $Id$
+ * @since 0.0.1
+ */
+public final class RuleEngineTest {
+
+    @Test
+    public void sequentialEvaluationStopsAtFirstFailure() {
+        final Constant failing = new Constant(false);
+        final Constant skipped = new Constant(true);
+        final RuleEngine<Numbers> engine =
+            new RuleEngine<>(Arrays.asList(new Constant(true), failing, skipped));
+        Assert.assertEquals(Optional.of(failing), engine.evaluate(new Numbers()));
+        Assert.assertEquals(1, failing.calls);
+        Assert.assertEquals(0, skipped.calls);
+    }
+
+    @Test
+    public void parallelEvaluationSkipsPendingRules() throws Exception {
+        // A single thread runs the rules in order, making the test deterministic
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Constant failing = new Constant(false);
+            final Constant skipped = new Constant(false);
+            final RuleEngine<Numbers> engine = new RuleEngine<>(
+                Arrays.asList(new Constant(true), failing, skipped),
+                executor
+            );
+            Assert.assertEquals(Optional.of(failing), engine.evaluate(new Numbers()));
+            Assert.assertEquals(1, failing.calls);
+            Assert.assertEquals(0, skipped.calls);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void parallelEvaluationReportsFirstFailingRule() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final Constant first = new Constant(false);
+            final List<Rule<Numbers>> rules = new ArrayList<>();
+            for (int i = 0; i < 8; i++)
+                rules.add(new Constant(true));
+            rules.add(first);
+            rules.add(new Constant(false));
+            final RuleEngine<Numbers> engine = new RuleEngine<>(rules, executor);
+            final Optional<Rule<Numbers>> failure = engine.evaluate(new Numbers());
+            Assert.assertTrue(failure.isPresent());
+            // The second failing rule is only reported if the first one was skipped
+            Assert.assertTrue(failure.get() == first || first.calls == 0);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void onlyChangedElementsAreReevaluated() {
+        final Numbers numbers = new Numbers(1, 2, 3);
+        final Positive positive = new Positive();
+        final Constant constant = new Constant(true);
+        final RuleEngine<Numbers> engine =
+            new RuleEngine<>(Arrays.asList(positive, constant));
+        Assert.assertEquals(Optional.empty(), engine.reevaluate(numbers, null));
+        Assert.assertEquals(3, positive.calls);
+        numbers.values.add(4);
+        Assert.assertEquals(
+            Optional.empty(),
+            engine.reevaluate(numbers, Arrays.asList(4, "unrelated"))
+        );
+        Assert.assertEquals(4, positive.calls);
+        // Other rules are evaluated over the whole artefact
+        Assert.assertEquals(2, constant.calls);
+        numbers.values.add(-5);
+        Assert.assertEquals(
+            Optional.of(positive),
+            engine.reevaluate(numbers, Collections.singletonList(-5))
+        );
+        Assert.assertEquals(5, positive.calls);
+    }
+
+    @Test
+    public void failureForcesFullEvaluation() {
+        final Numbers numbers = new Numbers(1, -2);
+        final Positive positive = new Positive();
+        final RuleEngine<Numbers> engine =
+            new RuleEngine<>(Collections.singletonList(positive));
+        Assert.assertEquals(Optional.of(positive), engine.evaluate(numbers));
+        positive.calls = 0;
+        numbers.values.set(1, 2);
+        numbers.values.add(3);
+        // The previous evaluation failed, thus the changes are not enough
+        Assert.assertEquals(
+            Optional.empty(),
+            engine.reevaluate(numbers, Collections.singletonList(3))
+        );
+        Assert.assertEquals(3, positive.calls);
+        Assert.assertEquals(
+            Optional.empty(),
+            engine.reevaluate(numbers, Collections.emptyList())
+        );
+        Assert.assertEquals(3, positive.calls);
+    }
+
+    @Test(expected = ValidationException.class)
+    public void validationFailure() throws ValidationException {
+        new RuleEngine<>(Collections.singletonList(new Positive()))
+            .validate(new Numbers(0), null);
+    }
+
+    /**
+     * An artefact made of numbers.
+     */
+    private static final class Numbers implements Artefact {
+
+        private static final long serialVersionUID = 1L;
+
+        final List<Integer> values;
+
+        Numbers(final Integer... values) {
+            this.values = new ArrayList<>(Arrays.asList(values));
+        }
+
+        @Override
+        public String name() {
+            return Numbers.class.getSimpleName();
+        }
+
+        @Override
+        public void apply(final Command command) throws ValidationException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setMart(final MART<?, ?> parent) {
+        }
+    }
+
+    /**
+     * A rule with a constant result.
+     */
+    private static final class Constant implements Rule<Numbers> {
+
+        private static final long serialVersionUID = 1L;
+
+        final boolean result;
+
+        volatile int calls;
+
+        Constant(final boolean result) {
+            this.result = result;
+        }
+
+        @Override
+        public String name() {
+            return Constant.class.getSimpleName();
+        }
+
+        @Override
+        public String errorMessage() {
+            return "Constant failure";
+        }
+
+        @Override
+        public synchronized boolean apply(final Numbers artefact,
+            final Object... arguments) {
+            this.calls++;
+            return this.result;
+        }
+    }
+
+    /**
+     * Checks that every number is positive.
+     */
+    private static final class Positive implements ElementRule<Numbers, Integer> {
+
+        private static final long serialVersionUID = 1L;
+
+        int calls;
+
+        @Override
+        public String name() {
+            return Positive.class.getSimpleName();
+        }
+
+        @Override
+        public String errorMessage() {
+            return "A number is not positive";
+        }
+
+        @Override
+        public Class<Integer> elementType() {
+            return Integer.class;
+        }
+
+        @Override
+        public Iterable<? extends Integer> elements(final Numbers artefact) {
+            return artefact.values;
+        }
+
+        @Override
+        public boolean applyTo(final Numbers artefact, final Integer element,
+            final Object... arguments) {
+            this.calls++;
+            return element > 0;
+        }
+    }
+}
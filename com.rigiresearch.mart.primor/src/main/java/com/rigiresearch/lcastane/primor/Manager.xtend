@@ -21,31 +21,40 @@
  */
 package com.rigiresearch.lcastane.primor
 
+import co.migueljimenez.devops.mart.infrastructure.EcoreCodec
+import com.rigiresearch.lcastane.framework.Artefact
 import com.rigiresearch.lcastane.framework.Command
 import com.rigiresearch.lcastane.framework.EcoreMART
+import com.rigiresearch.lcastane.framework.EcoreMART.Format
 import com.rigiresearch.lcastane.framework.MART
+import com.rigiresearch.lcastane.framework.impl.AbstractMART
 import com.rigiresearch.lcastane.framework.impl.FileSpecification
+import com.rigiresearch.lcastane.framework.impl.LatencyTimer
+import com.rigiresearch.lcastane.framework.impl.ObservableArtefact
+import com.rigiresearch.lcastane.framework.impl.Repositories
 import com.rigiresearch.lcastane.framework.validation.ValidationException
 import java.io.File
-import java.io.StringReader
 import java.nio.file.Files
 import java.nio.file.Paths
 import java.rmi.RemoteException
 import java.util.Comparator
+import java.util.List
 import java.util.Map
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.locks.Lock
+import java.util.concurrent.locks.ReentrantLock
 import org.apache.commons.configuration2.builder.fluent.Configurations
-import org.eclipse.emf.ecore.EcorePackage
-import org.eclipse.emf.ecore.resource.URIConverter
-import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl
 import org.eclipse.jgit.api.Git
 import org.eclipse.jgit.transport.CredentialsProvider
 import org.eclipse.jgit.transport.URIish
 import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider
 import org.slf4j.LoggerFactory
-import org.eclipse.jgit.merge.MergeStrategy
 
 /**
  * A {@link ManagerService} implementation.
+ * Calls on the same model are serialized, whereas calls on different models
+ * run concurrently. If a store directory is configured, the registered models
+ * and the commands applied to them are kept on disk, and restored on start.
  * @author Miguel Jimenez (miguel@uvic.ca) - Port to Xtend
  * @author Lorena Castaneda - Initial contribution and API
  * @date 2018-05-30
@@ -69,35 +78,86 @@ class Manager implements ManagerService {
 	 */
 	val Map<String, File> clonedRepositories
 
+	/**
+	 * The local repositories, indexed by remote URI. MARTs from the same
+	 * remote share the same local repository.
+	 */
+	val Map<String, File> clones
+
+	/**
+	 * The lock associated with each model identifier.
+	 */
+	val Map<String, Lock> locks
+
+	/**
+	 * The duration of model registrations and updates.
+	 */
+	val LatencyTimer registrations
+
 	/**
 	 * The Github credentials provider.
 	 */
 	val CredentialsProvider credentialsProvider
 
+	/**
+	 * The local store for the registered models, or {@code null} if models
+	 * are kept in memory only.
+	 */
+	val ModelStore store
+
 	/**
 	 * Default constructor.
 	 */
 	new() {
-		this.models = newHashMap
-		this.clonedRepositories = newHashMap
+		this.models = new ConcurrentHashMap
+		this.clonedRepositories = new ConcurrentHashMap
+		this.clones = new ConcurrentHashMap
+		this.locks = new ConcurrentHashMap
+		this.registrations = new LatencyTimer
 		val config = new Configurations().properties("github.properties");
 		this.credentialsProvider = new UsernamePasswordCredentialsProvider(
 			config.getString("authentication-token"),
 			new String()
 		)
+		val primor = new Configurations().properties("primor.properties")
+		val directory = primor.getString("store-directory", "")
+		this.store = if (!directory.empty)
+				new ModelStore(
+					new File(directory),
+					primor.getInt("snapshot-interval", 100)
+				)
+		if (this.store !== null)
+			this.restore()
 		Runtime.runtime.addShutdownHook(new Thread()[
-			this.clonedRepositories.keySet.forEach [ id |
-				Files.walk(Paths.get(this.clonedRepositories.get(id).canonicalPath))
+			// Stored models keep using their local repositories after a restart
+			if (this.store !== null)
+				return;
+			this.clones.keySet.forEach [ remote |
+				Files.walk(Paths.get(this.clones.get(remote).canonicalPath))
 				    .sorted(Comparator.reverseOrder)
 				    .map(p|p.toFile)
 				    .forEach[f|f.delete]
-				this.logger.info('''Local repository for model "«id»" has been deleted''')
+				this.logger.info('''Local repository for "«remote»" has been deleted''')
 			]
 		])
 	}
 
 	override register(String modelIdentifier, MART<?, ?> model, URIish repository)
 		throws RemoteException {
+		val lock = this.lock(modelIdentifier)
+		try {
+			this.doRegister(modelIdentifier, model, repository)
+		} finally {
+			lock.unlock
+		}
+	}
+
+	/**
+	 * Registers a model. The caller is expected to hold the model's lock.
+	 */
+	def private void doRegister(String modelIdentifier, MART<?, ?> model,
+		URIish repository) {
+		val begin = System.nanoTime
 		var action = "updated"
 		if (repository !== null) {
 			this.cloneRepository(modelIdentifier, repository)
@@ -118,74 +178,290 @@ class Manager implements ManagerService {
 			EcoreMART<?, ?>: this.instantiate(model)
 			default: model
 		}
-		this.models.put(modelIdentifier, instance)
-		this.logger.info('''Model "«modelIdentifier»" was «action»''')
+		val previous = this.models.put(modelIdentifier, instance)
+		switch (previous) {
+			AbstractMART<?, ?>: previous.shutdown
+		}
+		this.snapshot(modelIdentifier, instance)
+		val duration = String.format("%.2f", this.registrations.record(begin) / 1e6)
+		this.logger.info(
+			'''Model "«modelIdentifier»" was «action» in «duration» ms («this.registrations»)'''
+		)
 	}
 
 	override update(String modelIdentifier, MART<?, ?> model)
 		throws RemoteException {
-		this.ensureModelExists(modelIdentifier)
-		val directory = new File(this.clonedRepositories.get(modelIdentifier), ".git")
-		val git = Git.open(directory)
-		git.pull()
-			.setStrategy(MergeStrategy.THEIRS)
-			.setCredentialsProvider(credentialsProvider)
-			.call()
-		git.close
-		this.logger.info('''Remote changes for model "«modelIdentifier»" have been pulled''')
-		this.register(modelIdentifier, model, null)
+		val lock = this.lock(modelIdentifier)
+		try {
+			this.ensureModelExists(modelIdentifier)
+			this.synced(this.models.get(modelIdentifier))
+			Repositories.with(this.clonedRepositories.get(modelIdentifier)) [ git |
+				Repositories.update(git, this.credentialsProvider)
+				null
+			]
+			this.logger.info('''Remote changes for model "«modelIdentifier»" have been pulled''')
+			this.doRegister(modelIdentifier, model, null)
+		} finally {
+			lock.unlock
+		}
+	}
+
+	override deployAll(Map<String, MART<?, ?>> models, URIish repository)
+		throws RemoteException {
+		models.forEach [ identifier, model |
+			if (this.modelRegistered(identifier))
+				this.update(identifier, model)
+			else
+				this.register(identifier, model, repository)
+		]
+		this.logger.info('''«models.size» models were deployed''')
 	}
 
+	/**
+	 * Associates the given model with a local repository of the given remote,
+	 * cloning it only if no other model has done it before.
+	 */
 	def private cloneRepository(String modelIdentifier, URIish remote) {
-		val repository = Git.cloneRepository
-			.setURI(remote.toString)
-			.setDirectory(Files.createTempDirectory("").toFile)
-			.setCredentialsProvider(this.credentialsProvider)
-			.call
-			.repository
-		this.logger.info('''Repository "«remote»" has been cloned''')
-		this.clonedRepositories.put(modelIdentifier, repository.directory.parentFile)
-		repository.close
+		val directory = this.clones.computeIfAbsent(remote.toString) [ uri |
+			val repository = Git.cloneRepository
+				.setURI(uri)
+				.setDirectory(
+					if (this.store !== null)
+						Files.createTempDirectory(this.store.repositories.toPath, "").toFile
+					else
+						Files.createTempDirectory("").toFile
+				)
+				.setCredentialsProvider(this.credentialsProvider)
+				.call
+				.repository
+			this.logger.info('''Repository "«uri»" has been cloned''')
+			val d = repository.directory.parentFile
+			repository.close
+			d
+		]
+		this.clonedRepositories.put(modelIdentifier, directory)
 	}
 
+	/**
+	 * Instantiates the given model, resolving its classes only the first time
+	 * a model with the same class names is instantiated.
+	 */
 	def private instantiate(EcoreMART<?, ?> model) {
-		// Register the Ecore package
-		EcorePackage.eINSTANCE.eClass()
-		Class.forName(model.packageImplClassName).getMethod("init").invoke(null)
-		// Load the resource and instantiate the corresponding classes
-		val resource = new XMIResourceImpl()
-		val stream = new URIConverter.ReadableInputStream(new StringReader(model.serializedArtefact))
-		resource.load(stream, newHashMap)
-		val rootClass = Class.forName(model.modelClassName)
-		val artefactClass = Class.forName(model.decoratorClassName)
-		val martClass = Class.forName(model.martClassName)
-		val root = rootClass.cast(resource.contents.get(0))
-		val artefact = artefactClass.getDeclaredConstructor(rootClass).newInstance(root)
-		val mart = martClass.getDeclaredConstructor(model.specification.class, artefactClass)
-			.newInstance(model.specification, artefact) as MART<?, ?>
-		return mart
+		ModelFactory.of(model).instantiate(model)
 	}
 
 	override model(String modelIdentifier)
 		throws RemoteException, ModelNotFoundException {
-		this.ensureModelExists(modelIdentifier)
-		this.models.get(modelIdentifier).export()
+		val lock = this.lock(modelIdentifier)
+		try {
+			this.ensureModelExists(modelIdentifier)
+			val model = this.models.get(modelIdentifier)
+			this.synced(model)
+			model.export()
+		} finally {
+			lock.unlock
+		}
+	}
+
+	override model(String modelIdentifier, Format format)
+		throws RemoteException, ModelNotFoundException {
+		val model = this.model(modelIdentifier)
+		switch (model) {
+			EcoreMART<?, ?> case model.format != format: {
+				// Ecore packages are initialized once the model is instantiated
+				val contents = new EcoreCodec(model.format).decode(model.serializedArtefact)
+				new EcoreMART.Default(
+					model.specification,
+					new EcoreCodec(format).encode(contents),
+					format,
+					model.packageImplClassName,
+					model.modelClassName,
+					model.decoratorClassName,
+					model.martClassName
+				)
+			}
+			default: model
+		}
 	}
 
 	override execute(String modelIdentifier, Command command)
 		throws RemoteException, ValidationException, ModelNotFoundException {
-		this.ensureModelExists(modelIdentifier)
-		this.models.get(modelIdentifier).artefact.apply(command)
+		val lock = this.lock(modelIdentifier)
+		try {
+			this.ensureModelExists(modelIdentifier)
+			val model = this.models.get(modelIdentifier)
+			model.artefact.apply(command)
+			if (this.log(modelIdentifier, #[command]))
+				this.snapshot(modelIdentifier, model)
+		} finally {
+			lock.unlock
+		}
 		this.logger.info(
 			'''
 			Command «command.operationType» was applied to model "«modelIdentifier»"'''
 		)
 	}
 
+	override executeAll(String modelIdentifier, List<Command> commands)
+		throws RemoteException, ValidationException, ModelNotFoundException {
+		if (commands.empty)
+			return;
+		val lock = this.lock(modelIdentifier)
+		try {
+			this.ensureModelExists(modelIdentifier)
+			val model = this.models.get(modelIdentifier)
+			val applied = <Command>newArrayList
+			var snapshot = false
+			try {
+				this.applyAll(model.artefact, commands, applied)
+			} finally {
+				// The commands preceding a failing one remain applied
+				snapshot = this.log(modelIdentifier, applied)
+			}
+			if (snapshot)
+				this.snapshot(modelIdentifier, model)
+		} finally {
+			lock.unlock
+		}
+		this.logger.info(
+			'''
+			«commands.size» commands were applied to model "«modelIdentifier»"'''
+		)
+	}
+
 	override modelRegistered(String modelIdentifier) throws RemoteException {
 		this.models.containsKey(modelIdentifier)
 	}
 
+	/**
+	 * Restores the stored models. The MARTs are instantiated without the
+	 * synthetic synchronization, and the commands logged since the last
+	 * snapshot are applied to the artefact only. The specification is then
+	 * updated in the background, and only if it differs from the artefact
+	 * (e.g., the restart happened before the last changes were propagated).
+	 * No repository is cloned nor pulled.
+	 */
+	def private void restore() {
+		val begin = System.currentTimeMillis
+		this.store.entries.forEach [ entry |
+			try {
+				if (entry.repository !== null) {
+					this.clonedRepositories.put(entry.identifier, entry.repository)
+					if (entry.remote !== null)
+						this.clones.put(entry.remote, entry.repository)
+				}
+				val instance = ModelFactory.of(entry.model).restore(entry.model)
+				this.replay(entry.identifier, instance, entry.commands)
+				this.models.put(entry.identifier, instance)
+				if (!entry.commands.empty) {
+					switch (instance) {
+						AbstractMART<?, ?>: instance.resume
+					}
+				}
+			} catch (Exception e) {
+				this.logger.error('''Model "«entry.identifier»" could not be restored''', e)
+			}
+		]
+		this.logger.info(
+			'''«this.models.size» models were restored in «System.currentTimeMillis - begin» ms'''
+		)
+	}
+
+	/**
+	 * Applies the given commands to the model's artefact without notifying
+	 * its observers. Only applied commands are logged, but commands that fail
+	 * validation (e.g., due to a change in the rules) are skipped anyway.
+	 */
+	def private void replay(String modelIdentifier, MART<?, ?> model,
+		List<Command> commands) {
+		val artefact = model.artefact
+		val Artefact target = switch (artefact) {
+			ObservableArtefact<?>: artefact.origin
+			default: artefact
+		}
+		synchronized (target) {
+			commands.forEach [ command |
+				try {
+					target.apply(command)
+				} catch (ValidationException e) {
+					this.logger.warn(
+						'''Command «command.operationType» was skipped for model "«modelIdentifier»"'''
+					)
+				}
+			]
+		}
+	}
+
+	/**
+	 * Applies the given commands, collecting the ones that were applied
+	 * before any of them failed.
+	 */
+	def private void applyAll(Artefact artefact, List<Command> commands,
+		List<Command> applied) throws ValidationException {
+		switch (artefact) {
+			ObservableArtefact<?>:
+				artefact.applyAll(commands)[applied.add(it)]
+			default:
+				for (command : commands) {
+					artefact.apply(command)
+					applied.add(command)
+				}
+		}
+	}
+
+	/**
+	 * Logs the given commands once they are applied, so that only the
+	 * commands that changed the artefact are replayed after a restart.
+	 * @return Whether a new snapshot of the model should be taken
+	 */
+	def private boolean log(String modelIdentifier, List<Command> commands) {
+		if (this.store === null)
+			return false
+		this.store.append(modelIdentifier, commands)
+	}
+
+	/**
+	 * Stores a snapshot of the given model, once its pending changes have
+	 * been propagated.
+	 */
+	def private void snapshot(String modelIdentifier, MART<?, ?> model) {
+		if (this.store === null)
+			return;
+		this.synced(model)
+		val exported = model.export
+		switch (exported) {
+			EcoreMART<?, ?>: {
+				val repository = this.clonedRepositories.get(modelIdentifier)
+				val remote = this.clones.entrySet.findFirst[value == repository]?.key
+				this.store.snapshot(modelIdentifier, exported, remote, repository)
+			}
+			default:
+				this.logger.warn(
+					'''Model "«modelIdentifier»" cannot be stored, it is not an EcoreMART'''
+				)
+		}
+	}
+
+	/**
+	 * Waits until the changes made to the given model have been propagated.
+	 * Commands return as soon as the artefact is updated, whereas the
+	 * specification is updated in the background.
+	 */
+	def private void synced(MART<?, ?> model) {
+		switch (model) {
+			AbstractMART<?, ?>: model.synced.join
+		}
+	}
+
+	/**
+	 * Acquires the lock associated with the given model identifier.
+	 */
+	def private Lock lock(String modelIdentifier) {
+		val lock = this.locks.computeIfAbsent(modelIdentifier)[new ReentrantLock]
+		lock.lock
+		return lock
+	}
+
 	def private ensureModelExists(String modelIdentifier)
 		throws ModelNotFoundException {
 		if (!this.models.containsKey(modelIdentifier))
@@ -22,10 +22,13 @@
 package com.rigiresearch.lcastane.primor
 
 import com.rigiresearch.lcastane.framework.Command
+import com.rigiresearch.lcastane.framework.EcoreMART.Format
 import com.rigiresearch.lcastane.framework.MART
 import com.rigiresearch.lcastane.framework.validation.ValidationException
 import java.rmi.Remote
 import java.rmi.RemoteException
+import java.util.List
+import java.util.Map
 import org.eclipse.jgit.transport.URIish
 
 /**
@@ -55,6 +58,16 @@ interface ManagerService extends Remote {
 	def void update(String modelIdentifier, MART<?, ?> model)
 		throws RemoteException
 
+	/**
+	 * Registers or updates several models in a single call. Models are
+	 * processed in the iteration order of the given map.
+	 * @param models The models to deploy, indexed by identifier
+	 * @param repository A remote repository associated with the MARTs
+	 * @throws RemoteException If there is a communication error
+	 */
+	def void deployAll(Map<String, MART<?, ?>> models, URIish repository)
+		throws RemoteException
+
 	/**
 	 * Returns the specified model.
 	 * @param identifier The model's identifier
@@ -65,6 +78,18 @@ interface ManagerService extends Remote {
 	def MART<?, ?> model(String modelIdentifier)
 		throws RemoteException, ModelNotFoundException
 
+	/**
+	 * Returns the specified model, with its artefact serialized in the given
+	 * format if it is an Ecore-based model.
+	 * @param identifier The model's identifier
+	 * @param format The format in which the caller expects the artefact
+	 * @return A {@link MART}
+	 * @throws ModelNotFoundException If the model is not found
+	 * @throws RemoteException If there is a communication error
+	 */
+	def MART<?, ?> model(String modelIdentifier, Format format)
+		throws RemoteException, ModelNotFoundException
+
 	/**
 	 * Executes the given command on the specified model.
 	 * @param modelIdentifier The model's identifier
@@ -78,6 +103,19 @@ interface ManagerService extends Remote {
 		throws RemoteException, ValidationException, ModelNotFoundException
 
 	/**
+	 * Executes the given commands, in order, on the specified model. The
+	 * model's specification is synchronized once, after the last command.
+	 * @param modelIdentifier The model's identifier
+	 * @param commands The commands to execute
+	 * @throws ValidationException If a sentence is not compliant with the
+	 *  corresponding operation. The preceding commands remain applied
+	 * @throws ModelNotFoundException If the model is not found
+	 * @throws RemoteException If there is a communication error
+	 */
+	def void executeAll(String modelIdentifier, List<Command> commands)
+		throws RemoteException, ValidationException, ModelNotFoundException
+
+	/**
      * Whether the specified model is registered.
      * @param modelIdentifier The model's identifier
      * @throws RemoteException If there is a communication error
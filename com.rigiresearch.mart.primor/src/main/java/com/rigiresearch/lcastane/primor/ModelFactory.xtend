@@ -0,0 +1,165 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.rigiresearch.lcastane.primor
+
+import co.migueljimenez.devops.mart.infrastructure.EcoreCodec
+import com.rigiresearch.lcastane.framework.EcoreMART
+import com.rigiresearch.lcastane.framework.MART
+import com.rigiresearch.lcastane.framework.Rule
+import java.lang.invoke.MethodHandle
+import java.lang.invoke.MethodHandles
+import java.lang.invoke.MethodType
+import java.lang.reflect.Array
+import java.util.List
+import java.util.Map
+import java.util.concurrent.ConcurrentHashMap
+import org.eclipse.emf.ecore.EcorePackage
+
+/**
+ * Instantiates the {@link MART}s described by {@link EcoreMART}s. Classes
+ * and constructors are resolved, and Ecore packages initialized, only once
+ * per combination of class names.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-22
+ * @version $Id$
+ * @since 0.0.1
+ */
+class ModelFactory {
+
+	/**
+	 * The factories, indexed by the class names they were resolved from.
+	 */
+	static val Map<List<String>, ModelFactory> FACTORIES = new ConcurrentHashMap
+
+	/**
+	 * The root class of the Ecore model.
+	 */
+	val Class<?> rootClass
+
+	/**
+	 * The artefact's constructor, taking the root object.
+	 */
+	val MethodHandle artefactConstructor
+
+	/**
+	 * The MART's constructor, taking the specification and the artefact.
+	 */
+	val MethodHandle martConstructor
+
+	/**
+	 * The MART's constructor taking the specification, the artefact and the
+	 * validations, which does not synchronize them, or {@code null} if there
+	 * is none.
+	 */
+	val MethodHandle restoreConstructor
+
+	/**
+	 * The validations passed to the restore constructor.
+	 */
+	val Object noValidations
+
+	/**
+	 * Resolves the classes and constructors of the given model, and
+	 * initializes its Ecore package.
+	 */
+	private new(EcoreMART<?, ?> model) {
+		// Register the Ecore package
+		EcorePackage.eINSTANCE.eClass()
+		Class.forName(model.packageImplClassName).getMethod("init").invoke(null)
+		val lookup = MethodHandles.publicLookup
+		this.rootClass = Class.forName(model.modelClassName)
+		val artefactClass = Class.forName(model.decoratorClassName)
+		val martClass = Class.forName(model.martClassName)
+		this.artefactConstructor = lookup
+			.unreflectConstructor(artefactClass.getDeclaredConstructor(this.rootClass))
+			.asType(MethodType.genericMethodType(1))
+		this.martConstructor = lookup
+			.unreflectConstructor(
+				martClass.getDeclaredConstructor(model.specification.class, artefactClass)
+			)
+			.asType(MethodType.genericMethodType(2))
+		val restore = martClass.declaredConstructors.findFirst [ c |
+			c.parameterCount == 3
+				&& c.parameterTypes.get(0).isAssignableFrom(model.specification.class)
+				&& c.parameterTypes.get(1).isAssignableFrom(artefactClass)
+				&& c.parameterTypes.get(2).array
+				&& Rule.isAssignableFrom(c.parameterTypes.get(2).componentType)
+		]
+		this.restoreConstructor = if (restore !== null)
+				lookup.unreflectConstructor(restore)
+					.asFixedArity
+					.asType(MethodType.genericMethodType(3))
+		this.noValidations = if (restore !== null)
+				Array.newInstance(restore.parameterTypes.get(2).componentType, 0)
+	}
+
+	/**
+	 * Returns the factory for the given model.
+	 * @param model The model to instantiate
+	 * @return A factory, created if necessary
+	 */
+	def static ModelFactory of(EcoreMART<?, ?> model) {
+		val key = #[
+			model.packageImplClassName,
+			model.modelClassName,
+			model.decoratorClassName,
+			model.martClassName,
+			model.specification.class.name
+		]
+		FACTORIES.computeIfAbsent(key)[new ModelFactory(model)]
+	}
+
+	/**
+	 * Instantiates the given model.
+	 * @param model The model to instantiate
+	 * @return The corresponding MART
+	 */
+	def MART<?, ?> instantiate(EcoreMART<?, ?> model) {
+		this.martConstructor.invoke(model.specification, this.artefact(model)) as MART<?, ?>
+	}
+
+	/**
+	 * Instantiates the given model without synchronizing its artefact and
+	 * specification (e.g., when restoring a stored model). If the MART has
+	 * no such constructor, the model is instantiated as usual.
+	 * @param model The model to instantiate
+	 * @return The corresponding MART
+	 */
+	def MART<?, ?> restore(EcoreMART<?, ?> model) {
+		if (this.restoreConstructor === null)
+			return this.instantiate(model)
+		this.restoreConstructor.invoke(
+			model.specification,
+			this.artefact(model),
+			this.noValidations
+		) as MART<?, ?>
+	}
+
+	/**
+	 * Decodes the artefact of the given model.
+	 */
+	def private artefact(EcoreMART<?, ?> model) {
+		val contents = new EcoreCodec(model.format).decode(model.serializedArtefact)
+		val root = this.rootClass.cast(contents.get(0))
+		this.artefactConstructor.invoke(root)
+	}
+}
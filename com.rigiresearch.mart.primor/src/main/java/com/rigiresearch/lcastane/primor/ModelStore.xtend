@@ -0,0 +1,331 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.rigiresearch.lcastane.primor
+
+import com.rigiresearch.lcastane.framework.Command
+import com.rigiresearch.lcastane.framework.EcoreMART
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.EOFException
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.ObjectInputStream
+import java.io.ObjectOutputStream
+import java.net.URLDecoder
+import java.net.URLEncoder
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+import java.util.List
+import java.util.Map
+import java.util.concurrent.ConcurrentHashMap
+import org.eclipse.xtend.lib.annotations.Accessors
+import org.eclipse.xtend.lib.annotations.Data
+import org.slf4j.LoggerFactory
+
+/**
+ * A local store for the models registered in the {@link Manager}. Each model
+ * is kept as a snapshot of its serialized form, together with an append-only
+ * log of the commands applied since the snapshot was taken. Each model has
+ * its own directory, in which the snapshot is replaced atomically and the log
+ * is forced to disk on every append. Logged commands are numbered, and each
+ * snapshot records the number of the last command it covers, so that the
+ * commands logged before a snapshot are never applied twice. A log whose last
+ * frame was truncated or corrupted by a crash is cut back to the last
+ * complete frame when it is read.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-20
+ * @version $Id$
+ * @since 0.0.1
+ */
+class ModelStore {
+
+	/**
+	 * The name of the snapshot file.
+	 */
+	static val SNAPSHOT = "snapshot.ser"
+
+	/**
+	 * The name of the command log file.
+	 */
+	static val LOG = "commands.log"
+
+	/**
+	 * The logger.
+	 */
+	val logger = LoggerFactory.getLogger(ModelStore)
+
+	/**
+	 * The directory containing one sub directory per model.
+	 */
+	val File models
+
+	/**
+	 * The directory in which local repositories are cloned, so that they
+	 * survive restarts.
+	 */
+	@Accessors(PUBLIC_GETTER)
+	val File repositories
+
+	/**
+	 * Number of logged commands after which a new snapshot should be taken.
+	 */
+	val int snapshotInterval
+
+	/**
+	 * Number of commands logged since the last snapshot, per model.
+	 */
+	val Map<String, Integer> logged
+
+	/**
+	 * The number of the last logged command, per model.
+	 */
+	val Map<String, Long> sequences
+
+	/**
+	 * Default constructor.
+	 * @param directory The root directory of the store
+	 * @param snapshotInterval Number of logged commands after which a new
+	 *  snapshot should be taken
+	 */
+	new(File directory, int snapshotInterval) {
+		this.models = new File(directory, "models")
+		this.repositories = new File(directory, "repositories")
+		this.snapshotInterval = snapshotInterval
+		this.logged = new ConcurrentHashMap
+		this.sequences = new ConcurrentHashMap
+		this.models.mkdirs
+		this.repositories.mkdirs
+	}
+
+	/**
+	 * Replaces the snapshot of the given model and truncates its log. The
+	 * snapshot is supposed to include every command logged so far; if the
+	 * log is not truncated (e.g., due to a crash), its commands are ignored.
+	 * @param modelIdentifier The model identifier
+	 * @param model The serialized model
+	 * @param remote The remote URI of the model's repository, if any
+	 * @param repository The model's local repository, if any
+	 */
+	def void snapshot(String modelIdentifier, EcoreMART<?, ?> model,
+		String remote, File repository) {
+		val directory = this.directory(modelIdentifier)
+		directory.mkdirs
+		val temporary = new File(directory, SNAPSHOT + ".tmp")
+		val sequence = this.sequences.getOrDefault(modelIdentifier, 0L)
+		val stream = new FileOutputStream(temporary)
+		try {
+			val output = new ObjectOutputStream(stream)
+			output.writeObject(model)
+			output.writeObject(remote)
+			output.writeObject(repository?.absolutePath)
+			output.writeLong(sequence)
+			output.flush
+			stream.channel.force(true)
+		} finally {
+			stream.close
+		}
+		Files.move(
+			temporary.toPath,
+			new File(directory, SNAPSHOT).toPath,
+			StandardCopyOption.REPLACE_EXISTING,
+			StandardCopyOption.ATOMIC_MOVE
+		)
+		new FileOutputStream(new File(directory, LOG)).close
+		this.logged.put(modelIdentifier, 0)
+	}
+
+	/**
+	 * Appends the given (already applied) commands to the log of the given
+	 * model. Each command is written as a length-prefixed frame with its
+	 * number, so that a frame truncated by a crash can be detected and
+	 * ignored.
+	 * @param modelIdentifier The model identifier
+	 * @param commands The commands to log
+	 * @return Whether a new snapshot should be taken
+	 */
+	def boolean append(String modelIdentifier, List<Command> commands) {
+		if (commands.empty)
+			return false
+		val bytes = new ByteArrayOutputStream
+		val frames = new DataOutputStream(bytes)
+		var sequence = this.sequences.getOrDefault(modelIdentifier, 0L)
+		for (command : commands) {
+			val frame = new ByteArrayOutputStream
+			val output = new ObjectOutputStream(frame)
+			output.writeObject(command)
+			output.close
+			frames.writeInt(frame.size)
+			frames.writeLong(++sequence)
+			frame.writeTo(frames)
+		}
+		frames.flush
+		val stream = new FileOutputStream(
+			new File(this.directory(modelIdentifier), LOG),
+			true
+		)
+		try {
+			bytes.writeTo(stream)
+			stream.channel.force(false)
+		} finally {
+			stream.close
+		}
+		this.sequences.put(modelIdentifier, sequence)
+		val count = this.logged.merge(modelIdentifier, commands.size)[a, b|a + b]
+		return count >= this.snapshotInterval
+	}
+
+	/**
+	 * Reads the stored models. Models whose snapshot cannot be read are
+	 * skipped.
+	 * @return The last snapshot of each model, with the commands logged since
+	 *  it was taken
+	 */
+	def List<Entry> entries() {
+		val entries = newArrayList
+		this.models.listFiles?.filter[new File(it, SNAPSHOT).exists].forEach [ directory |
+			val identifier = URLDecoder.decode(directory.name, "UTF-8")
+			try {
+				val input = new ObjectInputStream(
+					new FileInputStream(new File(directory, SNAPSHOT))
+				)
+				try {
+					val model = input.readObject as EcoreMART<?, ?>
+					val remote = input.readObject as String
+					val repository = input.readObject as String
+					val sequence = input.readLong
+					// Frames covered by the snapshot are leftovers of a crash
+					// that happened before the log was truncated
+					val frames = this.frames(new File(directory, LOG))
+					val commands = frames.filter[key > sequence].map[value].toList
+					val last = frames.map[key].fold(sequence)[a, b|Math.max(a, b)]
+					this.sequences.put(identifier, last)
+					this.logged.put(identifier, commands.size)
+					entries.add(
+						new Entry(
+							identifier,
+							model,
+							remote,
+							if (repository !== null) new File(repository),
+							commands
+						)
+					)
+				} finally {
+					input.close
+				}
+			} catch (Exception e) {
+				this.logger.error('''Model "«identifier»" could not be read''', e)
+			}
+		]
+		return entries
+	}
+
+	/**
+	 * Reads the numbered commands from the given log. The first frame that is
+	 * truncated or cannot be read (e.g., it was half-written when the process
+	 * crashed) is taken as the end of the log, and the log is truncated to
+	 * the last complete frame, so that the commands appended later on are
+	 * not written after it.
+	 */
+	def private List<Pair<Long, Command>> frames(File log) {
+		val frames = <Pair<Long, Command>>newArrayList
+		if (!log.exists)
+			return frames
+		val bytes = Files.readAllBytes(log.toPath)
+		val input = new DataInputStream(new ByteArrayInputStream(bytes))
+		// The length of the frame header: its length and its number
+		val header = 12
+		var valid = 0
+		var previous = Long.MIN_VALUE
+		try {
+			while (valid < bytes.length) {
+				val length = input.readInt
+				val sequence = input.readLong
+				if (length < 0 || length > bytes.length - valid - header
+					|| sequence <= previous)
+					throw new EOFException('''Corrupt frame at byte «valid»''')
+				val frame = newByteArrayOfSize(length)
+				input.readFully(frame)
+				val object = new ObjectInputStream(new ByteArrayInputStream(frame))
+				frames.add(sequence -> object.readObject as Command)
+				previous = sequence
+				valid += header + length
+			}
+		} catch (Exception e) {
+			this.logger.warn(
+				'''The log «log» is truncated to its last complete frame: «e»'''
+			)
+			val channel = FileChannel.open(log.toPath, StandardOpenOption.WRITE)
+			try {
+				channel.truncate(valid)
+				channel.force(true)
+			} finally {
+				channel.close
+			}
+		}
+		return frames
+	}
+
+	def private directory(String modelIdentifier) {
+		new File(this.models, URLEncoder.encode(modelIdentifier, "UTF-8"))
+	}
+
+	/**
+	 * A stored model.
+	 * @author Miguel Jimenez (miguel@uvic.ca)
+	 * @date 2018-07-20
+	 * @version $Id$
+	 * @since 0.0.1
+	 */
+	@Data
+	static class Entry {
+
+		/**
+		 * The model identifier.
+		 */
+		String identifier
+
+		/**
+		 * The last snapshot of the model.
+		 */
+		EcoreMART<?, ?> model
+
+		/**
+		 * The remote URI of the model's repository, if any.
+		 */
+		String remote
+
+		/**
+		 * The model's local repository, if any.
+		 */
+		File repository
+
+		/**
+		 * The commands applied since the snapshot was taken.
+		 */
+		List<Command> commands
+	}
+}
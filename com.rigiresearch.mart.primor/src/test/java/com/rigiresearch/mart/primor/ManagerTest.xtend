@@ -21,14 +21,20 @@
  */
 package com.rigiresearch.mart.primor
 
+import co.migueljimenez.devops.infrastructure.model.InfrastructureModelElements
+import co.migueljimenez.devops.infrastructure.model.SerializationParser
 import co.migueljimenez.devops.infrastructure.model.VirtualInfrastructure
 import co.migueljimenez.devops.infrastructure.model.impl.ModelPackageImpl
 import co.migueljimenez.devops.mart.infrastructure.Infrastructure
 import co.migueljimenez.devops.mart.infrastructure.InfrastructureMart
+import co.migueljimenez.devops.mart.infrastructure.operations.InfrastructureModelOp
+import com.rigiresearch.lcastane.framework.Command
 import com.rigiresearch.lcastane.framework.EcoreMART
 import com.rigiresearch.lcastane.framework.impl.FileSpecification
 import com.rigiresearch.lcastane.primor.Manager
 import java.io.File
+import java.nio.charset.StandardCharsets
+import org.junit.Assert
 import org.junit.Test
 
 /**
@@ -92,4 +98,66 @@ class ManagerTest {
 		val mart = manager.model(id)
 		println(mart.specification.contents)
 	}
+
+	@Test
+	def void concurrentExecution() {
+		val models = 8
+		val threads = 16
+		val commands = 50
+		val xml = '''
+		<?xml version="1.0" encoding="ASCII"?>
+		<infrastructure:VirtualInfrastructure xmi:version="2.0" xmlns:xmi="http://www.omg.org/XMI" xmlns:infrastructure="https://migueljimenez.co/devops/infrastructure"/>
+		'''
+		val manager = new Manager
+		for (m : 0 ..< models) {
+			val file = File.createTempFile("model", ".tf")
+			file.deleteOnExit
+			manager.register(
+				'''model-«m»''',
+				new EcoreMART.Default(
+					new FileSpecification(file),
+					xml,
+					ModelPackageImpl.canonicalName,
+					VirtualInfrastructure.canonicalName,
+					Infrastructure.canonicalName,
+					InfrastructureMart.canonicalName
+				),
+				null
+			)
+		}
+		val begin = System.nanoTime
+		val clients = (0 ..< threads).map [ t |
+			new Thread [
+				val elements = new InfrastructureModelElements
+				val parser = new SerializationParser
+				for (c : 0 ..< commands) {
+					val group = elements.securityGroup(
+						'''«t»-«c»''',
+						'''group-«t»-«c»''',
+						"",
+						elements.infrastructure
+					)
+					manager.execute(
+						'''model-«(t + c) % models»''',
+						new Command(
+							InfrastructureModelOp.ADD_RESOURCE,
+							<String, Object>newHashMap("author" -> "test", "email" -> "test@test"),
+							parser.asXml(group)
+						)
+					)
+				}
+			]
+		].toList
+		clients.forEach[start]
+		clients.forEach[join]
+		val seconds = (System.nanoTime - begin) / 1e9
+		println('''«threads * commands» commands on «models» models: «threads * commands / seconds» commands/s''')
+		// No command was lost
+		val int groups = (0 ..< models).map [ m |
+			val model = manager.model('''model-«m»''', EcoreMART.Format.XMI) as EcoreMART<?, ?>
+			new String(model.serializedArtefact, StandardCharsets.UTF_8)
+				.split("<securityGroups").length - 1
+		].reduce[a, b|a + b]
+		Assert.assertEquals(threads * commands, groups)
+	}
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 University of Victoria
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.rigiresearch.mart.primor
+
+import co.migueljimenez.devops.infrastructure.model.VirtualInfrastructure
+import co.migueljimenez.devops.infrastructure.model.impl.ModelPackageImpl
+import co.migueljimenez.devops.mart.infrastructure.Infrastructure
+import co.migueljimenez.devops.mart.infrastructure.InfrastructureMart
+import co.migueljimenez.devops.mart.infrastructure.operations.InfrastructureModelOp
+import com.rigiresearch.lcastane.framework.Command
+import com.rigiresearch.lcastane.framework.EcoreMART
+import com.rigiresearch.lcastane.framework.impl.FileSpecification
+import com.rigiresearch.lcastane.primor.ModelStore
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileOutputStream
+import java.nio.file.Files
+import org.junit.Assert
+import org.junit.Test
+
+/**
+ * Tests {@link ModelStore}.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @date 2018-07-26
+ * @version $Id$
+ * @since 0.0.1
+ */
+class ModelStoreTest {
+
+	@Test
+	def void truncatedFrame() {
+		val directory = Files.createTempDirectory("store").toFile
+		val first = new ModelStore(directory, 100)
+		first.snapshot("model-id", this.model, null, null)
+		first.append("model-id", #[this.command(1), this.command(2)])
+		// A frame half-written when the process crashed
+		this.appendToLog(directory, 100, 3L, newByteArrayOfSize(10))
+		val second = new ModelStore(directory, 100)
+		Assert.assertEquals(
+			#[this.command(1), this.command(2)],
+			second.entries.head.commands
+		)
+		second.append("model-id", #[this.command(3), this.command(4)])
+		Assert.assertEquals(
+			#[this.command(1), this.command(2), this.command(3), this.command(4)],
+			new ModelStore(directory, 100).entries.head.commands
+		)
+	}
+
+	@Test
+	def void corruptFrame() {
+		val directory = Files.createTempDirectory("store").toFile
+		val first = new ModelStore(directory, 100)
+		first.snapshot("model-id", this.model, null, null)
+		first.append("model-id", #[this.command(1)])
+		// A complete frame that does not contain a command
+		this.appendToLog(directory, 4, 2L, newByteArrayOfSize(4))
+		val second = new ModelStore(directory, 100)
+		val entries = second.entries
+		Assert.assertEquals(1, entries.size)
+		Assert.assertEquals(#[this.command(1)], entries.head.commands)
+		second.append("model-id", #[this.command(2)])
+		Assert.assertEquals(
+			#[this.command(1), this.command(2)],
+			new ModelStore(directory, 100).entries.head.commands
+		)
+	}
+
+	@Test
+	def void commandsCoveredBySnapshot() {
+		val directory = Files.createTempDirectory("store").toFile
+		val store = new ModelStore(directory, 100)
+		store.snapshot("model-id", this.model, null, null)
+		store.append("model-id", #[this.command(1)])
+		store.snapshot("model-id", this.model, null, null)
+		store.append("model-id", #[this.command(2)])
+		Assert.assertEquals(
+			#[this.command(2)],
+			new ModelStore(directory, 100).entries.head.commands
+		)
+	}
+
+	/**
+	 * Writes a raw frame at the end of the model's log.
+	 */
+	def private void appendToLog(File directory, int length, long sequence,
+		byte[] contents) {
+		val output = new DataOutputStream(
+			new FileOutputStream(new File(directory, "models/model-id/commands.log"), true)
+		)
+		try {
+			output.writeInt(length)
+			output.writeLong(sequence)
+			output.write(contents)
+		} finally {
+			output.close
+		}
+	}
+
+	def private command(int number) {
+		new Command(
+			InfrastructureModelOp.REMOVE_RESOURCE,
+			<String, Object>newHashMap("author" -> "test", "email" -> "test@test"),
+			'''group-«number»''',
+			"security_group"
+		)
+	}
+
+	def private model() {
+		val file = File.createTempFile("model", ".tf")
+		file.deleteOnExit
+		new EcoreMART.Default(
+			new FileSpecification(file),
+			'''
+			<?xml version="1.0" encoding="ASCII"?>
+			<infrastructure:VirtualInfrastructure xmi:version="2.0" xmlns:xmi="http://www.omg.org/XMI" xmlns:infrastructure="https://migueljimenez.co/devops/infrastructure"/>
+			''',
+			ModelPackageImpl.canonicalName,
+			VirtualInfrastructure.canonicalName,
+			Infrastructure.canonicalName,
+			InfrastructureMart.canonicalName
+		)
+	}
+}